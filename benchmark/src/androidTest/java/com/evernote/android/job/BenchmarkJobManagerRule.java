@@ -0,0 +1,43 @@
+package com.evernote.android.job;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.rules.ExternalResource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates a {@link JobManager} whose jobs never reach the platform, see {@link BenchmarkJobs.NoOpProxy}.
+ *
+ * @author rwondratschek
+ */
+public class BenchmarkJobManagerRule extends ExternalResource {
+
+    private JobManager mManager;
+
+    @Override
+    protected void before() {
+        JobConfig.setJobReschedulePause(0, TimeUnit.MILLISECONDS);
+        JobConfig.setSkipJobReschedule(true);
+        JobConfig.setLogcatEnabled(false);
+        JobConfig.forceApi(JobApi.V_14);
+        JobApi.V_14.setCachedProxy(new BenchmarkJobs.NoOpProxy());
+
+        mManager = JobManager.create(ApplicationProvider.getApplicationContext());
+        mManager.addJobCreator(BenchmarkJobs.CREATOR);
+        mManager.cancelAll();
+    }
+
+    @Override
+    protected void after() {
+        mManager.cancelAll();
+        mManager.destroy();
+
+        JobApi.V_14.invalidateCachedProxy();
+        JobConfig.reset();
+    }
+
+    public JobManager getManager() {
+        return mManager;
+    }
+}
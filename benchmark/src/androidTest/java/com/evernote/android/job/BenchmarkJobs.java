@@ -0,0 +1,103 @@
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.evernote.android.job.util.support.PersistableBundleCompat;
+
+import java.util.List;
+
+/**
+ * @author rwondratschek
+ */
+/*package*/ final class BenchmarkJobs {
+
+    public static final String TAG = "benchmark";
+
+    public static final JobCreator CREATOR = new JobCreator() {
+        @Nullable
+        @Override
+        public Job create(@NonNull String tag) {
+            return TAG.equals(tag) ? new NoOpJob() : null;
+        }
+    };
+
+    public static JobRequest.Builder createBuilder() {
+        PersistableBundleCompat extras = new PersistableBundleCompat();
+        extras.putString("account", "benchmark@example.com");
+        extras.putLong("timestamp", 1_500_000_000_000L);
+        extras.putInt("retries", 3);
+
+        return new JobRequest.Builder(TAG)
+                .setExecutionWindow(60_000L, 120_000L)
+                .setRequiredNetworkType(JobRequest.NetworkType.CONNECTED)
+                .setExtras(extras);
+    }
+
+    public static PersistableBundleCompat createBundle(int size) {
+        PersistableBundleCompat bundle = new PersistableBundleCompat();
+        for (int i = 0; i < size; i++) {
+            switch (i % 4) {
+                case 0:
+                    bundle.putString("string" + i, "value" + i);
+                    break;
+                case 1:
+                    bundle.putLong("long" + i, i * 1_000_000L);
+                    break;
+                case 2:
+                    bundle.putBoolean("boolean" + i, i % 3 == 0);
+                    break;
+                default:
+                    bundle.putIntArray("intArray" + i, new int[]{i, i + 1, i + 2});
+                    break;
+            }
+        }
+        return bundle;
+    }
+
+    private static final class NoOpJob extends Job {
+        @NonNull
+        @Override
+        protected Result onRunJob(@NonNull Params params) {
+            return Result.SUCCESS;
+        }
+    }
+
+    /**
+     * Doesn't talk to the platform, so that the benchmarks only measure the library itself.
+     */
+    public static final class NoOpProxy implements JobProxy {
+        @Override
+        public void plantOneOff(JobRequest request) {
+        }
+
+        @Override
+        public void plantPeriodic(JobRequest request) {
+        }
+
+        @Override
+        public void plantPeriodicFlexSupport(JobRequest request) {
+        }
+
+        @Override
+        public void plantBatch(@NonNull List<JobRequest> requests) {
+        }
+
+        @Override
+        public void cancel(int jobId) {
+        }
+
+        @Override
+        public void cancelBatch(@NonNull int[] jobIds) {
+        }
+
+        @Override
+        public boolean isPlatformJobScheduled(JobRequest request) {
+            return true;
+        }
+    }
+
+    private BenchmarkJobs() {
+        // no op
+    }
+}
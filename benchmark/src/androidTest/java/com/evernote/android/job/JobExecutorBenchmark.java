@@ -0,0 +1,50 @@
+package com.evernote.android.job;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.evernote.android.job.util.JobCat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures the path from the platform starting a job until the finished job was removed, that's
+ * the work done in each platform service.
+ *
+ * @author rwondratschek
+ */
+@RunWith(AndroidJUnit4.class)
+public class JobExecutorBenchmark {
+
+    private static final JobCat CAT = new JobCat("JobExecutorBenchmark");
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Rule
+    public final BenchmarkJobManagerRule mJobManagerRule = new BenchmarkJobManagerRule();
+
+    @Test
+    public void dispatch() {
+        Context context = ApplicationProvider.getApplicationContext();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            int jobId = BenchmarkJobs.createBuilder().build().schedule();
+            state.resumeTiming();
+
+            JobProxy.Common common = new JobProxy.Common(context, CAT, jobId);
+            JobRequest request = common.getPendingRequest(true, true);
+            if (request == null || common.executeJobRequest(request, null) != Job.Result.SUCCESS) {
+                throw new AssertionError();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.evernote.android.job;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures scheduling without the platform, the proxy doesn't do anything.
+ *
+ * @author rwondratschek
+ */
+@RunWith(AndroidJUnit4.class)
+public class JobManagerBenchmark {
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Rule
+    public final BenchmarkJobManagerRule mJobManagerRule = new BenchmarkJobManagerRule();
+
+    @Test
+    public void schedule() {
+        JobManager manager = mJobManagerRule.getManager();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            int jobId = BenchmarkJobs.createBuilder().build().schedule();
+
+            state.pauseTiming();
+            manager.cancel(jobId);
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void scheduleColdApiSelector() {
+        JobManager manager = mJobManagerRule.getManager();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            // same as schedule(), but each request queries the package manager for the API again
+            int jobId = BenchmarkJobs.createBuilder().build().schedule();
+
+            state.pauseTiming();
+            manager.cancel(jobId);
+            JobApiSelector.invalidate();
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void scheduleAndCancel() {
+        JobManager manager = mJobManagerRule.getManager();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            manager.cancel(BenchmarkJobs.createBuilder().build().schedule());
+        }
+    }
+
+    @Test
+    public void getAllJobRequestsForTag() {
+        JobManager manager = mJobManagerRule.getManager();
+        for (int i = 0; i < 50; i++) {
+            BenchmarkJobs.createBuilder().build().schedule();
+        }
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            manager.getAllJobRequestsForTag(BenchmarkJobs.TAG);
+        }
+    }
+}
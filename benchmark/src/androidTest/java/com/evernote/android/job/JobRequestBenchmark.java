@@ -0,0 +1,74 @@
+package com.evernote.android.job;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures the mapping between {@link JobRequest} and the database row.
+ *
+ * @author rwondratschek
+ */
+@RunWith(AndroidJUnit4.class)
+public class JobRequestBenchmark {
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Rule
+    public final BenchmarkJobManagerRule mJobManagerRule = new BenchmarkJobManagerRule();
+
+    private JobRequest mRequest;
+    private Cursor mCursor;
+
+    @Before
+    public void prepare() {
+        mRequest = BenchmarkJobs.createBuilder().build();
+        mRequest.setScheduledAt(System.currentTimeMillis());
+
+        JobStorage storage = new JobStorage(ApplicationProvider.getApplicationContext(), null);
+        storage.put(mRequest);
+
+        SQLiteDatabase database = storage.getDatabase();
+        mCursor = database.query(JobStorage.JOB_TABLE_NAME, null, null, null, null, null, null);
+        mCursor.moveToFirst();
+    }
+
+    @After
+    public void cleanup() {
+        mCursor.close();
+    }
+
+    @Test
+    public void toContentValues() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ContentValues contentValues = mRequest.toContentValues();
+            if (contentValues.size() == 0) {
+                throw new AssertionError();
+            }
+        }
+    }
+
+    @Test
+    public void fromCursor() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            JobRequest request = JobRequest.fromCursor(mCursor);
+            if (request.getJobId() != mRequest.getJobId()) {
+                throw new AssertionError();
+            }
+        }
+    }
+}
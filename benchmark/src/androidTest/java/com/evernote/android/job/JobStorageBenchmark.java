@@ -0,0 +1,87 @@
+package com.evernote.android.job;
+
+import android.content.ContentValues;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures the database operations on an in-memory database, so that disk speed doesn't distort
+ * the results.
+ *
+ * @author rwondratschek
+ */
+@RunWith(AndroidJUnit4.class)
+public class JobStorageBenchmark {
+
+    private static final int STORED_JOBS = 100;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Rule
+    public final BenchmarkJobManagerRule mJobManagerRule = new BenchmarkJobManagerRule();
+
+    private JobStorage mStorage;
+
+    @Before
+    public void prepare() {
+        // a null path creates an in-memory database
+        mStorage = new JobStorage(ApplicationProvider.getApplicationContext(), null);
+        for (int i = 0; i < STORED_JOBS; i++) {
+            mStorage.put(createRequest());
+        }
+    }
+
+    @Test
+    public void putAndRemove() {
+        JobRequest request = createRequest();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mStorage.put(request);
+            mStorage.remove(request);
+        }
+    }
+
+    @Test
+    public void update() {
+        JobRequest request = mStorage.getAllJobRequests(null, true).iterator().next();
+        ContentValues contentValues = new ContentValues();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            contentValues.put(JobStorage.COLUMN_LAST_RUN, System.currentTimeMillis());
+            mStorage.update(request, contentValues);
+        }
+    }
+
+    @Test
+    public void getAllJobRequests() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mStorage.getAllJobRequests(null, true);
+        }
+    }
+
+    @Test
+    public void getAllJobRequestsForTag() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mStorage.getAllJobRequests(BenchmarkJobs.TAG, false);
+        }
+    }
+
+    private static JobRequest createRequest() {
+        JobRequest request = BenchmarkJobs.createBuilder().build();
+        request.setScheduledAt(System.currentTimeMillis());
+        return request;
+    }
+}
@@ -0,0 +1,51 @@
+package com.evernote.android.job;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.evernote.android.job.util.support.PersistableBundleCompat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the XML and binary encoding of the extras stored with each request.
+ *
+ * @author rwondratschek
+ */
+@RunWith(AndroidJUnit4.class)
+public class PersistableBundleCompatBenchmark {
+
+    private static final int BUNDLE_SIZE = 20;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void xmlRoundTrip() {
+        PersistableBundleCompat bundle = BenchmarkJobs.createBundle(BUNDLE_SIZE);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            PersistableBundleCompat result = PersistableBundleCompat.fromXml(bundle.saveToXml());
+            if (result.size() != BUNDLE_SIZE) {
+                throw new AssertionError();
+            }
+        }
+    }
+
+    @Test
+    public void binaryRoundTrip() {
+        PersistableBundleCompat bundle = BenchmarkJobs.createBundle(BUNDLE_SIZE);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            PersistableBundleCompat result = PersistableBundleCompat.fromBinary(bundle.saveToBinary());
+            if (result.size() != BUNDLE_SIZE) {
+                throw new AssertionError();
+            }
+        }
+    }
+}
@@ -1,17 +1,15 @@
 package com.evernote.android.job.v21;
 
-import android.app.PendingIntent;
-import android.content.Context;
-import android.content.Intent;
+import android.app.job.JobInfo;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.PersistableBundle;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.evernote.android.job.JobApi;
 import com.evernote.android.job.JobConfig;
 import com.evernote.android.job.JobRequest;
 import com.evernote.android.job.PlatformJobManagerRule;
-import com.evernote.android.job.v14.PlatformAlarmServiceExact;
 import java.util.concurrent.TimeUnit;
 import org.junit.FixMethodOrder;
 import org.junit.Rule;
@@ -34,42 +32,37 @@ public class TransientBundleCompatTest {
     public PlatformJobManagerRule mJobManagerRule = new PlatformJobManagerRule();
 
     @Test
-    public void verifyAlarmIsCanceled() {
+    public void verifyBundleIsCanceled() {
         assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP);
         JobConfig.forceApi(JobApi.V_21);
 
         int jobId = scheduleJob();
 
-        final Intent intent = PlatformAlarmServiceExact.createIntent(context(), jobId, null);
-        PendingIntent pendingIntent = PendingIntent.getService(context(), jobId, intent, PendingIntent.FLAG_NO_CREATE);
-        assertThat(pendingIntent).isNotNull();
+        PersistableBundle extras = getJobInfo(jobId).getExtras();
+        assertThat(TransientBundleCompat.isScheduled(extras, jobId)).isTrue();
 
         mJobManagerRule.getManager().cancel(jobId);
 
-        pendingIntent = PendingIntent.getService(context(), jobId, intent, PendingIntent.FLAG_NO_CREATE);
-        assertThat(pendingIntent).isNull();
+        assertThat(TransientBundleCompat.isScheduled(extras, jobId)).isFalse();
     }
 
     @Test
-    public void verifyAlarmIsCanceledAfterStart() {
+    public void verifyBundleIsRemovedAfterStart() {
         assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP);
         JobConfig.forceApi(JobApi.V_21);
 
         int jobId = scheduleJob();
 
-        final Intent intent = PlatformAlarmServiceExact.createIntent(context(), jobId, null);
-        PendingIntent pendingIntent = PendingIntent.getService(context(), jobId, intent, PendingIntent.FLAG_NO_CREATE);
-        assertThat(pendingIntent).isNotNull();
+        PersistableBundle extras = getJobInfo(jobId).getExtras();
+        Bundle bundle = TransientBundleCompat.startWithTransientBundle(extras, mJobManagerRule.getManager().getJobRequest(jobId));
+        assertThat(bundle).isNotNull();
+        assertThat(bundle.getString("key")).isEqualTo("value");
 
-        boolean started = TransientBundleCompat.startWithTransientBundle(context(), mJobManagerRule.getManager().getJobRequest(jobId));
-        assertThat(started).isTrue();
-
-        pendingIntent = PendingIntent.getService(context(), jobId, intent, PendingIntent.FLAG_NO_CREATE);
-        assertThat(pendingIntent).isNull();
+        assertThat(TransientBundleCompat.isScheduled(extras, jobId)).isFalse();
     }
 
     @Test
-    public void verifyAlarmNotCanceledForPeriodicAfterStart() {
+    public void verifyBundleNotRemovedForPeriodicAfterStart() {
         assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP);
         JobConfig.forceApi(JobApi.V_21);
 
@@ -82,20 +75,26 @@ public class TransientBundleCompatTest {
                 .build()
                 .schedule();
 
-        assertThat(mJobManagerRule.getAllPendingJobsFromScheduler()).isNotNull().isNotEmpty();
-
         JobRequest request = mJobManagerRule.getManager().getJobRequest(jobId);
         assertThat(request.isTransient()).isTrue();
 
-        final Intent intent = PlatformAlarmServiceExact.createIntent(context(), jobId, null);
-        PendingIntent pendingIntent = PendingIntent.getService(context(), jobId, intent, PendingIntent.FLAG_NO_CREATE);
-        assertThat(pendingIntent).isNotNull();
+        PersistableBundle jobExtras = getJobInfo(jobId).getExtras();
+        assertThat(TransientBundleCompat.startWithTransientBundle(jobExtras, request)).isNotNull();
+        assertThat(TransientBundleCompat.isScheduled(jobExtras, jobId)).isTrue();
+    }
+
+    @Test
+    public void verifyBundleOfPreviousProcessIsLost() {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP);
+        JobConfig.forceApi(JobApi.V_21);
+
+        int jobId = scheduleJob();
 
-        boolean started = TransientBundleCompat.startWithTransientBundle(context(), request);
-        assertThat(started).isTrue();
+        PersistableBundle extras = new PersistableBundle();
+        extras.putLong("android-job-transient-generation", TransientBundleCompat.GENERATION - 1);
 
-        pendingIntent = PendingIntent.getService(context(), jobId, intent, PendingIntent.FLAG_NO_CREATE);
-        assertThat(pendingIntent).isNotNull();
+        assertThat(TransientBundleCompat.isScheduled(extras, jobId)).isFalse();
+        assertThat(TransientBundleCompat.startWithTransientBundle(extras, mJobManagerRule.getManager().getJobRequest(jobId))).isNull();
     }
 
     @Test
@@ -106,13 +105,16 @@ public class TransientBundleCompatTest {
 
         int jobId = scheduleJob();
 
-        final Intent intent = PlatformAlarmServiceExact.createIntent(context(), jobId, null);
-        PendingIntent pendingIntent = PendingIntent.getService(context(), jobId, intent, PendingIntent.FLAG_NO_CREATE);
-        assertThat(pendingIntent).isNull();
+        assertThat(TransientBundleCompat.isScheduled(getJobInfo(jobId).getExtras(), jobId)).isFalse();
     }
 
-    private Context context() {
-        return ApplicationProvider.getApplicationContext();
+    private JobInfo getJobInfo(int jobId) {
+        for (JobInfo info : mJobManagerRule.getAllPendingJobsFromScheduler()) {
+            if (info.getId() == jobId) {
+                return info;
+            }
+        }
+        throw new AssertionError("JobInfo not found");
     }
 
     private int scheduleJob() {
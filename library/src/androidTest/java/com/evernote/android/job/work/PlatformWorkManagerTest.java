@@ -7,6 +7,7 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.LargeTest;
 import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 import com.evernote.android.job.Job;
 import com.evernote.android.job.JobCreator;
 import com.evernote.android.job.JobRequest;
@@ -70,6 +71,25 @@ public class PlatformWorkManagerTest {
         assertThat(jobProxyWorkManager.isPlatformJobScheduled(request)).isFalse();
     }
 
+    @Test
+    public void testUniqueWork() throws Exception {
+        int jobId = new JobRequest.Builder(TAG)
+                .setExecutionWindow(TimeUnit.HOURS.toMillis(4), TimeUnit.HOURS.toMillis(5))
+                .build()
+                .schedule();
+
+        String name = JobProxyWorkManager.createTag(jobId);
+        List<WorkInfo> statuses = WorkManager.getInstance(ApplicationProvider.getApplicationContext())
+                .getWorkInfosForUniqueWork(name)
+                .get();
+
+        assertThat(statuses).isNotNull().hasSize(1);
+        assertThat(statuses.get(0).getState()).isEqualTo(WorkInfo.State.ENQUEUED);
+
+        mWorkManagerRule.getManager().cancel(jobId);
+        assertThat(mWorkManagerRule.getWorkStatus(name).get(0).getState()).isEqualTo(WorkInfo.State.CANCELLED);
+    }
+
     @Test
     public void testTransientExtras() {
         Bundle extras = new Bundle();
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import android.content.Context;
+import android.os.Bundle;
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+import android.util.SparseArray;
+
+import com.evernote.android.job.util.BatteryStatus;
+import com.evernote.android.job.util.DeviceStateCache;
+import com.evernote.android.job.util.JobCat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps non-periodic requests with unmet requirements in memory instead of rescheduling them. The
+ * requests are grouped by the device state change, which could make them runnable, and all requests
+ * of a group are checked again when a matching broadcast arrives. The database isn't touched, the
+ * requests stay in the started state. If the process dies, they're rescheduled like any other
+ * started request without a running job. The {@link JobManager} still reports parked requests as
+ * pending.
+ *
+ * @author rwondratschek
+ * @see JobConfig#setConstraintWatcherEnabled(boolean)
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+/*package*/ final class ConstraintWatcher implements DeviceStateCache.Listener {
+
+    private static final JobCat CAT = new JobCat("ConstraintWatcher");
+
+    private final Context mContext;
+    private final DeviceStateCache mDeviceStateCache;
+
+    // device state change -> job ID -> request
+    private final SparseArray<SparseArray<ParkedRequest>> mParked;
+
+    public ConstraintWatcher(@NonNull Context context, @NonNull DeviceStateCache deviceStateCache) {
+        mContext = context;
+        mDeviceStateCache = deviceStateCache;
+        mParked = new SparseArray<>();
+    }
+
+    /**
+     * @param changes The device state changes, which could make the request runnable.
+     * @return Whether the request was parked. If not, then it needs to be rescheduled.
+     */
+    public boolean park(@NonNull JobRequest request, @NonNull Bundle transientExtras, int changes) {
+        if (changes <= 0 || !mDeviceStateCache.addListener(this)) {
+            return false;
+        }
+
+        int jobId = request.getJobId();
+        ParkedRequest parked = new ParkedRequest(request, transientExtras);
+        int bucket = Integer.lowestOneBit(changes);
+        boolean met = false;
+
+        synchronized (mParked) {
+            getBucket(bucket).put(jobId, parked);
+
+            // a broadcast could have arrived after the caller checked the requirements, check again
+            // while holding the lock, any later broadcast finds the request in its bucket
+            int unmetChanges = getUnmetChanges(request, mDeviceStateCache);
+            if (unmetChanges == 0) {
+                getBucket(bucket).remove(jobId);
+                met = true;
+
+            } else if (Integer.lowestOneBit(unmetChanges) != bucket) {
+                getBucket(bucket).remove(jobId);
+                getBucket(Integer.lowestOneBit(unmetChanges)).put(jobId, parked);
+            }
+        }
+
+        if (met) {
+            CAT.d("Requirements of %s were met while parking", request);
+            releaseAsync(parked);
+        } else {
+            CAT.i("Parked %s until its requirements are met", request);
+        }
+        return true;
+    }
+
+    public boolean unpark(int jobId) {
+        synchronized (mParked) {
+            for (int i = 0; i < mParked.size(); i++) {
+                SparseArray<ParkedRequest> bucket = mParked.valueAt(i);
+                if (bucket.get(jobId) != null) {
+                    bucket.remove(jobId);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public boolean isParked(int jobId) {
+        synchronized (mParked) {
+            for (int i = 0; i < mParked.size(); i++) {
+                if (mParked.valueAt(i).get(jobId) != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return The IDs of all parked requests.
+     */
+    @NonNull
+    public int[] getParkedJobIds() {
+        synchronized (mParked) {
+            int[] jobIds = new int[getParkedCount()];
+            int index = 0;
+            for (int i = 0; i < mParked.size(); i++) {
+                SparseArray<ParkedRequest> bucket = mParked.valueAt(i);
+                for (int j = 0; j < bucket.size(); j++) {
+                    jobIds[index++] = bucket.keyAt(j);
+                }
+            }
+            return jobIds;
+        }
+    }
+
+    public int getParkedCount() {
+        synchronized (mParked) {
+            int count = 0;
+            for (int i = 0; i < mParked.size(); i++) {
+                count += mParked.valueAt(i).size();
+            }
+            return count;
+        }
+    }
+
+    public void clear() {
+        mDeviceStateCache.removeListener(this);
+        synchronized (mParked) {
+            mParked.clear();
+        }
+    }
+
+    @Override
+    public void onDeviceStateChanged(int change) {
+        List<ParkedRequest> released = null;
+
+        synchronized (mParked) {
+            SparseArray<ParkedRequest> bucket = mParked.get(change);
+            if (bucket == null || bucket.size() == 0) {
+                return;
+            }
+
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                ParkedRequest parked = bucket.valueAt(i);
+                int unmetChanges = getUnmetChanges(parked.mRequest, mDeviceStateCache);
+
+                if (unmetChanges == 0) {
+                    if (released == null) {
+                        released = new ArrayList<>();
+                    }
+                    released.add(parked);
+                    bucket.removeAt(i);
+
+                } else if ((unmetChanges & change) == 0) {
+                    // this requirement is met now, but another one isn't, wait for the other broadcast
+                    bucket.removeAt(i);
+                    getBucket(Integer.lowestOneBit(unmetChanges)).put(parked.mRequest.getJobId(), parked);
+                }
+            }
+        }
+
+        if (released == null) {
+            return;
+        }
+
+        CAT.d("Release %d parked requests", released.size());
+        for (ParkedRequest parked : released) {
+            releaseAsync(parked);
+        }
+    }
+
+    private void releaseAsync(final ParkedRequest parked) {
+        JobConfig.getExecutorService().execute(new Runnable() {
+            @Override
+            public void run() {
+                release(parked);
+            }
+        });
+    }
+
+    private void release(ParkedRequest parked) {
+        int jobId = parked.mRequest.getJobId();
+        try {
+            JobProxy.Common common = new JobProxy.Common(mContext, CAT, jobId);
+            if (JobManager.instance().getJobRequest(jobId, true) == null) {
+                CAT.d("Parked request %d was removed in the meantime", jobId);
+                return;
+            }
+
+            common.executeJobRequest(parked.mRequest, parked.mTransientExtras);
+        } catch (Exception e) {
+            CAT.e(e, "Could not run parked request %d", jobId);
+        }
+    }
+
+    private SparseArray<ParkedRequest> getBucket(int change) {
+        SparseArray<ParkedRequest> bucket = mParked.get(change);
+        if (bucket == null) {
+            bucket = new SparseArray<>();
+            mParked.put(change, bucket);
+        }
+        return bucket;
+    }
+
+    /*package*/ static int getUnmetChanges(@NonNull JobRequest request, @NonNull DeviceStateCache deviceStateCache) {
+        int changes = 0;
+
+        if (request.requiresCharging() || request.requiresBatteryNotLow()) {
+            BatteryStatus batteryStatus = deviceStateCache.getBatteryStatus();
+            if ((request.requiresCharging() && !batteryStatus.isCharging())
+                    || (request.requiresBatteryNotLow() && batteryStatus.isBatteryLow())) {
+                changes |= DeviceStateCache.CHANGE_BATTERY;
+            }
+        }
+        if (request.requiresDeviceIdle() && !deviceStateCache.isIdle()) {
+            changes |= DeviceStateCache.CHANGE_IDLE;
+        }
+        if (request.requiredNetworkType() != JobRequest.NetworkType.ANY
+                && !Job.isNetworkTypeMet(request.requiredNetworkType(), deviceStateCache.getNetworkType())) {
+            changes |= DeviceStateCache.CHANGE_NETWORK;
+        }
+
+        return changes;
+    }
+
+    private static final class ParkedRequest {
+        private final JobRequest mRequest;
+        private final Bundle mTransientExtras;
+
+        private ParkedRequest(JobRequest request, Bundle transientExtras) {
+            mRequest = request;
+            mTransientExtras = transientExtras;
+        }
+    }
+}
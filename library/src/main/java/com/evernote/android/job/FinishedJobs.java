@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import java.lang.ref.WeakReference;
+import java.util.Set;
+
+/**
+ * Remembers the most recently finished jobs in a ring of fixed size. Recording a finished job
+ * overwrites the oldest entry, so the memory stays bounded in long-lived processes, and job IDs are
+ * stored as primitive ints.
+ *
+ * <br>
+ * <br>
+ *
+ * Only the newest entries keep a weak reference to their job, older entries keep the result only.
+ * Not thread-safe, the {@link JobExecutor} guards all calls.
+ *
+ * @author rwondratschek
+ */
+/*package*/ final class FinishedJobs {
+
+    private final int mCapacity;
+    private final int mJobCapacity;
+
+    private final int[] mIds;
+    private final Job.Result[] mResults;
+    private final WeakReference<Job>[] mJobs;
+
+    private int mHead; // the next position to write
+    private int mSize;
+
+    @SuppressWarnings("unchecked")
+    public FinishedJobs(int capacity, int jobCapacity) {
+        if (capacity <= 0 || jobCapacity <= 0 || jobCapacity > capacity) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity + ", " + jobCapacity);
+        }
+
+        mCapacity = capacity;
+        mJobCapacity = jobCapacity;
+        mIds = new int[capacity];
+        mResults = new Job.Result[capacity];
+        mJobs = (WeakReference<Job>[]) new WeakReference[capacity];
+    }
+
+    public void put(int jobId, @NonNull Job job, Job.Result result) {
+        mIds[mHead] = jobId;
+        mResults[mHead] = result;
+        mJobs[mHead] = new WeakReference<>(job);
+
+        if (mJobCapacity < mCapacity) {
+            // this entry falls out of the job window, only its result is kept
+            mJobs[index(mHead - mJobCapacity)] = null;
+        }
+
+        mHead = index(mHead + 1);
+        mSize = Math.min(mSize + 1, mCapacity);
+    }
+
+    /**
+     * @return The job of the newest entry with this ID, if it's still referenced.
+     */
+    @Nullable
+    public Job getJob(int jobId) {
+        int count = Math.min(mSize, mJobCapacity);
+        for (int i = 1; i <= count; i++) {
+            int index = index(mHead - i);
+            if (mIds[index] == jobId) {
+                WeakReference<Job> reference = mJobs[index];
+                return reference == null ? null : reference.get();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds all finished jobs, which are still referenced, to the result. Only the newest job for
+     * each ID is added.
+     */
+    public void collectJobs(@Nullable String tag, @NonNull Set<Job> result) {
+        SparseBooleanArray seenIds = new SparseBooleanArray();
+
+        int count = Math.min(mSize, mJobCapacity);
+        for (int i = 1; i <= count; i++) {
+            int index = index(mHead - i);
+            if (seenIds.get(mIds[index])) {
+                continue;
+            }
+            seenIds.put(mIds[index], true);
+
+            WeakReference<Job> reference = mJobs[index];
+            Job job = reference == null ? null : reference.get();
+            if (job != null && (tag == null || tag.equals(job.getParams().getTag()))) {
+                result.add(job);
+            }
+        }
+    }
+
+    /**
+     * @return The newest result for each ID in the ring.
+     */
+    @NonNull
+    public SparseArray<Job.Result> getResults() {
+        SparseArray<Job.Result> results = new SparseArray<>(mSize);
+        // oldest first, newer results replace older ones
+        for (int i = mSize; i >= 1; i--) {
+            int index = index(mHead - i);
+            results.put(mIds[index], mResults[index]);
+        }
+        return results;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    private int index(int position) {
+        int index = position % mCapacity;
+        return index < 0 ? index + mCapacity : index;
+    }
+}
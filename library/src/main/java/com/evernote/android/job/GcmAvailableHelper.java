@@ -30,6 +30,9 @@ import com.google.android.gms.common.GoogleApiAvailability;
 import java.util.List;
 
 /**
+ * The result of the availability check is cached. The package receiver of {@link JobApiSelector}
+ * invalidates the cache when Google Play Services are installed, updated or removed.
+ *
  * @author rwondratschek
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
@@ -45,6 +48,8 @@ import java.util.List;
     private static int gcmServiceAvailable = -1;
     private static boolean checkedServiceEnabled;
 
+    private static volatile Boolean gcmApiSupported;
+
     static {
         boolean gcmInClasspath;
         try {
@@ -57,15 +62,23 @@ import java.util.List;
     }
 
     public static boolean isGcmApiSupported(Context context) {
+        Boolean supported = gcmApiSupported;
+        if (supported != null) {
+            return supported;
+        }
+
         try {
             if (!checkedServiceEnabled) {
                 checkedServiceEnabled = true;
                 setServiceEnabled(context, GCM_IN_CLASSPATH);
             }
 
-            return GCM_IN_CLASSPATH
+            supported = GCM_IN_CLASSPATH
                     && GoogleApiAvailability.getInstance().isGooglePlayServicesAvailable(context) == ConnectionResult.SUCCESS
                     && isGcmServiceRegistered(context) == ConnectionResult.SUCCESS;
+
+            gcmApiSupported = supported;
+            return supported;
         } catch (Throwable t) {
             // seeing sometimes a DeadObjectException, return false, we can't do anything in this case
             // still sometimes seeing a NoClassDefFoundError here
@@ -153,6 +166,13 @@ import java.util.List;
         }
     }
 
+    /**
+     * Called when Google Play Services changed, see {@link JobApiSelector}.
+     */
+    /*package*/ static void invalidate() {
+        gcmApiSupported = null;
+    }
+
     private static String getPlatformGcmServiceClassName() {
         return JobProxyGcm.class.getPackage().getName() + ".PlatformGcmService";
     }
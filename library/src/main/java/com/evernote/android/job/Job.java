@@ -20,9 +20,12 @@ import android.content.Context;
 import android.os.Bundle;
 import android.os.PowerManager.WakeLock;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
+import com.evernote.android.job.util.BatteryStatus;
 import com.evernote.android.job.util.Device;
+import com.evernote.android.job.util.DeviceStateCache;
 import com.evernote.android.job.util.JobCat;
 import com.evernote.android.job.util.support.PersistableBundleCompat;
 
@@ -71,9 +74,12 @@ public abstract class Job {
     private Params mParams;
     private WeakReference<Context> mContextReference;
     private Context mApplicationContext;
+    private DeviceStateCache mDeviceStateCache;
 
     private volatile boolean mCanceled;
     private volatile boolean mDeleted;
+    private volatile boolean mRequirementsMissed;
+    private volatile boolean mParked;
     volatile long mFinishedTimeStamp = -1;
 
     private Result mResult = Result.FAILURE;
@@ -123,6 +129,7 @@ public abstract class Job {
             if (this instanceof DailyJob || meetsRequirements(true)) {
                 mResult = onRunJob(getParams());
             } else {
+                mRequirementsMissed = true;
                 mResult = getParams().isPeriodic() ? Result.FAILURE : Result.RESCHEDULE;
             }
 
@@ -170,8 +177,7 @@ public abstract class Job {
             return false;
         }
         if (!isRequirementNetworkTypeMet()) {
-            CAT.w("Job requires network to be %s, but was %s", getParams().getRequest().requiredNetworkType(),
-                    Device.getNetworkType(getContext()));
+            CAT.w("Job requires network to be %s, but was %s", getParams().getRequest().requiredNetworkType(), getNetworkType());
             return false;
         }
         if (!isRequirementBatteryNotLowMet()) {
@@ -192,7 +198,7 @@ public abstract class Job {
      * Otherwise always returns {@code true}.
      */
     protected boolean isRequirementChargingMet() {
-        return !(getParams().getRequest().requiresCharging() && !Device.getBatteryStatus(getContext()).isCharging());
+        return !(getParams().getRequest().requiresCharging() && !getBatteryStatus().isCharging());
     }
 
     /**
@@ -200,7 +206,7 @@ public abstract class Job {
      * always returns {@code true}.
      */
     protected boolean isRequirementDeviceIdleMet() {
-        return !(getParams().getRequest().requiresDeviceIdle() && !Device.isIdle(getContext()));
+        return !(getParams().getRequest().requiresDeviceIdle() && !isDeviceIdle());
     }
 
     /**
@@ -209,7 +215,7 @@ public abstract class Job {
      * charging.
      */
     protected boolean isRequirementBatteryNotLowMet() {
-        return !(getParams().getRequest().requiresBatteryNotLow() && Device.getBatteryStatus(getContext()).isBatteryLow());
+        return !(getParams().getRequest().requiresBatteryNotLow() && getBatteryStatus().isBatteryLow());
     }
 
     /**
@@ -226,13 +232,13 @@ public abstract class Job {
      */
     protected boolean isRequirementNetworkTypeMet() {
         JobRequest.NetworkType requirement = getParams().getRequest().requiredNetworkType();
-        if (requirement == JobRequest.NetworkType.ANY) {
-            return true;
-        }
-
-        JobRequest.NetworkType current = Device.getNetworkType(getContext());
+        return requirement == JobRequest.NetworkType.ANY || isNetworkTypeMet(requirement, getNetworkType());
+    }
 
+    /*package*/ static boolean isNetworkTypeMet(@NonNull JobRequest.NetworkType requirement, @NonNull JobRequest.NetworkType current) {
         switch (requirement) {
+            case ANY:
+                return true;
             case CONNECTED:
                 return current != JobRequest.NetworkType.ANY;
             case NOT_ROAMING:
@@ -260,6 +266,23 @@ public abstract class Job {
         return mParams;
     }
 
+    /*package*/ final Job setDeviceStateCache(@Nullable DeviceStateCache deviceStateCache) {
+        mDeviceStateCache = deviceStateCache;
+        return this;
+    }
+
+    private BatteryStatus getBatteryStatus() {
+        return mDeviceStateCache != null ? mDeviceStateCache.getBatteryStatus() : Device.getBatteryStatus(getContext());
+    }
+
+    private boolean isDeviceIdle() {
+        return mDeviceStateCache != null ? mDeviceStateCache.isIdle() : Device.isIdle(getContext());
+    }
+
+    private JobRequest.NetworkType getNetworkType() {
+        return mDeviceStateCache != null ? mDeviceStateCache.getNetworkType() : Device.getNetworkType(getContext());
+    }
+
     /*package*/ final Job setContext(Context context) {
         mContextReference = new WeakReference<>(context);
         mApplicationContext = context.getApplicationContext();
@@ -327,6 +350,46 @@ public abstract class Job {
         return mResult;
     }
 
+    /*package*/ final boolean isRequirementsMissed() {
+        return mRequirementsMissed;
+    }
+
+    /**
+     * @return The device state changes, which could make the missed requirements met, see
+     * {@link DeviceStateCache#CHANGE_BATTERY}. {@code -1} if a requirement isn't announced by
+     * a broadcast.
+     */
+    /*package*/ final int getUnmetRequirementChanges() {
+        if (!isRequirementStorageNotLowMet()) {
+            return -1;
+        }
+
+        int changes = 0;
+        if (!isRequirementChargingMet() || !isRequirementBatteryNotLowMet()) {
+            changes |= DeviceStateCache.CHANGE_BATTERY;
+        }
+        if (!isRequirementDeviceIdleMet()) {
+            changes |= DeviceStateCache.CHANGE_IDLE;
+        }
+        if (!isRequirementNetworkTypeMet()) {
+            changes |= DeviceStateCache.CHANGE_NETWORK;
+        }
+        return changes;
+    }
+
+    /*package*/ final void setParked() {
+        mParked = true;
+    }
+
+    /**
+     * @return Whether the request was kept in memory until its requirements are met instead of
+     * being rescheduled.
+     * @see JobConfig#setConstraintWatcherEnabled(boolean)
+     */
+    /*package*/ final boolean isParked() {
+        return mParked;
+    }
+
     /*package*/ final boolean isDeleted() {
         synchronized (mMonitor) {
             return mDeleted;
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import android.annotation.SuppressLint;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.ContentValues;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.evernote.android.job.util.JobCat;
+import com.evernote.android.job.util.JobUtil;
+import com.evernote.android.job.v14.PlatformAlarmReceiver;
+import com.evernote.android.job.v14.PlatformAlarmService;
+import com.evernote.android.job.v14.PlatformAlarmServiceExact;
+
+import java.util.List;
+
+/**
+ * Keeps one-off requests of the {@code AlarmManager} in a queue sorted by their alarm time instead
+ * of planting an alarm for each request. Only one alarm for exact and one alarm for inexact requests
+ * is planted for the earliest request. When it fires, all due requests are started and the alarm is
+ * planted again for the next request.
+ *
+ * <br>
+ * <br>
+ *
+ * Inexact requests keep their execution window. The inexact alarm is planted with the intersection
+ * of all windows overlapping the window, which ends first. All these requests run with a single
+ * wake up, requests whose window started later wait for the next alarm.
+ *
+ * <br>
+ * <br>
+ *
+ * The alarm time is persisted in an indexed column, so finding the next request doesn't load any
+ * request and the queue survives process death. After a reboot the alarms are lost and the requests
+ * are rescheduled like any other request.
+ *
+ * @author rwondratschek
+ * @see JobConfig#setAlarmQueueEnabled(boolean)
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class JobAlarmQueue {
+
+    private static final JobCat CAT = new JobCat("JobAlarmQueue");
+
+    /**
+     * @throws JobManagerCreateException If the {@link JobManager} couldn't be created.
+     */
+    @NonNull
+    public static JobAlarmQueue get(@NonNull Context context) {
+        return JobManager.create(context).getAlarmQueue();
+    }
+
+    /**
+     * @return Whether the request should be added to the queue instead of getting its own alarm.
+     */
+    public static boolean accepts(@NonNull JobRequest request) {
+        return JobConfig.isAlarmQueueEnabled() && !request.isPeriodic() && !request.isTransient();
+    }
+
+    private final JobManager mJobManager;
+
+    // the window planted with the AlarmManager for inexact and exact requests, avoids redundant calls
+    private final long[] mArmedStart;
+    private final long[] mArmedAt;
+
+    /*package*/ JobAlarmQueue(@NonNull JobManager jobManager) {
+        mJobManager = jobManager;
+        mArmedStart = new long[]{-1L, -1L};
+        mArmedAt = new long[]{-1L, -1L};
+    }
+
+    /**
+     * Adds the stored request to the queue and plants the alarm again if the request is the next one.
+     */
+    public void add(@NonNull JobRequest request) {
+        long alarmStart = request.getScheduledAt() + JobProxy.Common.getStartMs(request);
+        long alarmAt = request.isExact() ? alarmStart : request.getScheduledAt() + JobProxy.Common.getEndMs(request);
+        request.setAlarmWindow(alarmStart, alarmAt);
+
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(JobStorage.COLUMN_ALARM_START, alarmStart);
+        contentValues.put(JobStorage.COLUMN_ALARM_AT, alarmAt);
+        mJobManager.getJobStorage().update(request, contentValues);
+
+        synchronized (this) {
+            arm(request.isExact());
+        }
+
+        if (CAT.isLoggable(Log.DEBUG)) {
+            long now = JobConfig.getClock().currentTimeMillis();
+            CAT.d("Added %s to the alarm queue, start %s, end %s", request, JobUtil.timeToString(alarmStart - now),
+                    JobUtil.timeToString(alarmAt - now));
+        }
+    }
+
+    /**
+     * @return Whether the request waits in the queue, in this case it has no alarm of its own.
+     */
+    public boolean isQueued(int jobId) {
+        JobRequest request = mJobManager.getJobStorage().get(jobId);
+        return request != null && request.getAlarmAt() > 0;
+    }
+
+    /**
+     * @return Whether the request waits in the queue and the alarm of the queue is planted.
+     */
+    public boolean isScheduled(@NonNull JobRequest request) {
+        return request.getAlarmAt() > 0 && getPendingIntent(request.isExact(), PendingIntent.FLAG_NO_CREATE) != null;
+    }
+
+    /**
+     * Called when the alarm of the queue fired. Starts all due requests and plants the alarm for the
+     * next request.
+     */
+    public void dispatch(boolean exact) {
+        List<JobRequest> dueRequests;
+        synchronized (this) {
+            mArmedStart[getIndex(exact)] = -1L;
+            mArmedAt[getIndex(exact)] = -1L;
+            dueRequests = mJobManager.getJobStorage().pollDueAlarms(exact, JobConfig.getClock().currentTimeMillis());
+            arm(exact);
+        }
+
+        CAT.d("Alarm queue dispatches %d requests, exact %b", dueRequests.size(), exact);
+
+        Context context = mJobManager.getContext();
+        for (JobRequest request : dueRequests) {
+            if (exact) {
+                JobProxy.Common.startWakefulService(context, PlatformAlarmServiceExact.createIntent(context, request.getJobId(), null));
+            } else {
+                PlatformAlarmService.start(context, request.getJobId(), null);
+            }
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    private void arm(boolean exact) {
+        AlarmManager alarmManager = (AlarmManager) mJobManager.getContext().getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            CAT.e("AlarmManager is null");
+            return;
+        }
+
+        JobStorage storage = mJobManager.getJobStorage();
+        long alarmAt = storage.getNextAlarmAt(exact);
+        long alarmStart = alarmAt;
+        if (!exact && alarmAt > 0) {
+            // all windows starting before the first deadline overlap, run them together
+            alarmStart = Math.min(alarmAt, storage.getLatestAlarmStart(false, alarmAt));
+        }
+
+        int index = getIndex(exact);
+        if (alarmAt == mArmedAt[index] && alarmStart == mArmedStart[index]) {
+            return;
+        }
+
+        try {
+            if (alarmAt <= 0) {
+                PendingIntent pendingIntent = getPendingIntent(exact, PendingIntent.FLAG_NO_CREATE);
+                if (pendingIntent != null) {
+                    alarmManager.cancel(pendingIntent);
+                    pendingIntent.cancel();
+                }
+
+            } else {
+                PendingIntent pendingIntent = getPendingIntent(exact, PendingIntent.FLAG_UPDATE_CURRENT);
+                if (pendingIntent == null) {
+                    return;
+                }
+
+                long triggerAtMillis = getTriggerAtMillis(alarmStart);
+                if (!exact) {
+                    int type = JobConfig.isForceRtc() ? AlarmManager.RTC : AlarmManager.ELAPSED_REALTIME;
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                        alarmManager.setWindow(type, triggerAtMillis, alarmAt - alarmStart, pendingIntent);
+                    } else {
+                        alarmManager.set(type, triggerAtMillis, pendingIntent);
+                    }
+                } else {
+                    int type = JobConfig.isForceRtc() ? AlarmManager.RTC_WAKEUP : AlarmManager.ELAPSED_REALTIME_WAKEUP;
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                        alarmManager.setExactAndAllowWhileIdle(type, triggerAtMillis, pendingIntent);
+                    } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                        alarmManager.setExact(type, triggerAtMillis, pendingIntent);
+                    } else {
+                        alarmManager.set(type, triggerAtMillis, pendingIntent);
+                    }
+                }
+            }
+
+            mArmedStart[index] = alarmStart;
+            mArmedAt[index] = alarmAt;
+        } catch (Exception e) {
+            // https://gist.github.com/vRallev/621b0b76a14ddde8691c
+            CAT.e(e);
+        }
+    }
+
+    @Nullable
+    private PendingIntent getPendingIntent(boolean exact, int flags) {
+        Context context = mJobManager.getContext();
+        int requestCode = exact ? JobIdsInternal.REQUEST_CODE_ALARM_QUEUE_EXACT : JobIdsInternal.REQUEST_CODE_ALARM_QUEUE_INEXACT;
+
+        try {
+            return PendingIntent.getBroadcast(context, requestCode, PlatformAlarmReceiver.createQueueIntent(context, exact), flags);
+        } catch (Exception e) {
+            // java.lang.SecurityException: Permission Denial: getIntentSender() from pid=31482, uid=10057,
+            // (need uid=-1) is not allowed to send as package com.evernote
+            CAT.e(e);
+            return null;
+        }
+    }
+
+    private static long getTriggerAtMillis(long alarmAt) {
+        // the alarm time is persisted as wall clock time, the elapsed time isn't affected by clock changes
+        if (JobConfig.isForceRtc()) {
+            return alarmAt;
+        } else {
+            return JobConfig.getClock().elapsedRealtime() + alarmAt - JobConfig.getClock().currentTimeMillis();
+        }
+    }
+
+    private static int getIndex(boolean exact) {
+        return exact ? 1 : 0;
+    }
+}
@@ -24,6 +24,8 @@ import android.content.Intent;
 import android.content.pm.ResolveInfo;
 import android.os.Build;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.evernote.android.job.gcm.JobProxyGcm;
 import com.evernote.android.job.v14.JobProxy14;
@@ -38,7 +40,13 @@ import com.evernote.android.job.v26.JobProxy26;
 import com.evernote.android.job.work.JobProxyWorkManager;
 import com.google.android.gms.gcm.GcmNetworkManager;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import androidx.work.WorkManager;
 
@@ -79,6 +87,11 @@ public enum JobApi {
 
     private static final String JOB_SCHEDULER_PERMISSION = "android.permission.BIND_JOB_SERVICE";
 
+    /**
+     * The order in which APIs are preferred, V_14 is the fallback and not part of this list.
+     */
+    private static final JobApi[] DEFAULT_ORDER = {WORK_MANAGER, V_26, V_24, V_21, GCM, V_19};
+
     private volatile JobProxy mCachedProxy;
 
     private final boolean mSupportsExecutionWindow;
@@ -162,6 +175,11 @@ public enum JobApi {
         return mCachedProxy;
     }
 
+    @VisibleForTesting
+    /*package*/ synchronized void setCachedProxy(JobProxy proxy) {
+        mCachedProxy = proxy;
+    }
+
     public synchronized void invalidateCachedProxy() {
         mCachedProxy = null;
     }
@@ -208,24 +226,64 @@ public enum JobApi {
         }
     }
 
+    /**
+     * @return The preferred API on this device. The result is cached and invalidated when the config
+     * or relevant packages change.
+     */
     @NonNull
     public static JobApi getDefault(Context context) {
-        if (WORK_MANAGER.isSupported(context) && JobConfig.isApiEnabled(WORK_MANAGER)) {
-            return WORK_MANAGER;
-        } else if (V_26.isSupported(context) && JobConfig.isApiEnabled(V_26)) {
-            return V_26;
-        } else if (V_24.isSupported(context) && JobConfig.isApiEnabled(V_24)) {
-            return V_24;
-        } else if (V_21.isSupported(context) && JobConfig.isApiEnabled(V_21)) {
-            return V_21;
-        } else if (GCM.isSupported(context) && JobConfig.isApiEnabled(GCM)) {
-            return GCM;
-        } else if (V_19.isSupported(context) && JobConfig.isApiEnabled(V_19)) {
-            return V_19;
-        } else if (JobConfig.isApiEnabled(V_14)) {
+        return JobApiSelector.getDefault(context);
+    }
+
+    /**
+     * @param supported The result of {@link #probeSupported(Context, ExecutorService)} or {@code null}
+     *                  if each API should be checked on demand through the cache of {@link JobApiSelector}.
+     */
+    @NonNull
+    /*package*/ static JobApi getDefault(Context context, @Nullable Map<JobApi, Boolean> supported) {
+        for (JobApi api : DEFAULT_ORDER) {
+            if (!JobConfig.isApiEnabled(api)) {
+                continue;
+            }
+            boolean apiSupported = supported == null ? JobApiSelector.isSupported(context, api) : Boolean.TRUE.equals(supported.get(api));
+            if (apiSupported) {
+                return api;
+            }
+        }
+
+        if (JobConfig.isApiEnabled(V_14)) {
             return V_14;
         } else {
             throw new IllegalStateException("All supported APIs are disabled");
         }
     }
+
+    /**
+     * Checks all APIs in parallel. Each check queries the package manager, what is slow during
+     * the app start.
+     */
+    @NonNull
+    /*package*/ static Map<JobApi, Boolean> probeSupported(final Context context, ExecutorService executorService) {
+        EnumMap<JobApi, Future<Boolean>> futures = new EnumMap<>(JobApi.class);
+        for (final JobApi api : values()) {
+            futures.put(api, executorService.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return api.isSupported(context);
+                }
+            }));
+        }
+
+        EnumMap<JobApi, Boolean> result = new EnumMap<>(JobApi.class);
+        for (Map.Entry<JobApi, Future<Boolean>> entry : futures.entrySet()) {
+            boolean apiSupported;
+            try {
+                apiSupported = entry.getValue().get();
+            } catch (InterruptedException | ExecutionException e) {
+                apiSupported = false;
+            }
+            result.put(entry.getKey(), apiSupported);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import android.annotation.SuppressLint;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.evernote.android.job.util.JobCat;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Memoizes which {@link JobApi}s are supported and which one is the default. Each check queries the
+ * package manager, that's too expensive for every scheduled request. The cache is invalidated when
+ * the config changes or when a package relevant for the checks changes.
+ *
+ * <br>
+ * <br>
+ *
+ * {@link JobApi#isSupported(Context)} itself stays uncached.
+ *
+ * @author rwondratschek
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+/*package*/ final class JobApiSelector {
+
+    private static final JobCat CAT = new JobCat("JobApiSelector");
+
+    private static final String GMS_PACKAGE = "com.google.android.gms";
+
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    private static volatile Selection selection;
+
+    @SuppressLint("StaticFieldLeak")
+    private static Context registeredContext;
+    private static BroadcastReceiver packageReceiver;
+
+    @NonNull
+    public static JobApi getDefault(@NonNull Context context) {
+        Selection current = currentSelection(context);
+        JobApi api = current.mDefaultApi;
+        if (api == null) {
+            // walks the APIs through isSupported(), seeded values and earlier checks are reused
+            api = JobApi.getDefault(context, null);
+            current.mDefaultApi = api;
+        }
+        return api;
+    }
+
+    public static boolean isSupported(@NonNull Context context, @NonNull JobApi api) {
+        Selection current = currentSelection(context);
+        Boolean supported = current.mSupported.get(api.ordinal());
+        if (supported == null) {
+            supported = api.isSupported(context);
+            current.mSupported.set(api.ordinal(), supported);
+        }
+        return supported;
+    }
+
+    /**
+     * Seeds the cache with the result of {@link JobApi#probeSupported(Context, java.util.concurrent.ExecutorService)}.
+     * The values are dropped, if the cache was invalidated while probing.
+     */
+    public static void seed(@NonNull Context context, @NonNull Map<JobApi, Boolean> supported, int generation) {
+        Selection current = currentSelection(context);
+        if (current.mGeneration != generation) {
+            return;
+        }
+        for (Map.Entry<JobApi, Boolean> entry : supported.entrySet()) {
+            current.mSupported.compareAndSet(entry.getKey().ordinal(), null, entry.getValue());
+        }
+    }
+
+    public static int getGeneration() {
+        return GENERATION.get();
+    }
+
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+    }
+
+    /*package*/ static synchronized void unregisterReceiver() {
+        if (registeredContext != null) {
+            try {
+                registeredContext.unregisterReceiver(packageReceiver);
+            } catch (Exception ignored) {
+            }
+            registeredContext = null;
+            packageReceiver = null;
+        }
+        invalidate();
+    }
+
+    private static Selection currentSelection(Context context) {
+        int generation = GENERATION.get();
+        Selection current = selection;
+        if (current == null || current.mGeneration != generation) {
+            registerReceiver(context);
+            current = new Selection(generation);
+            selection = current;
+        }
+        return current;
+    }
+
+    private static synchronized void registerReceiver(@NonNull Context context) {
+        Context appContext = context.getApplicationContext();
+        if (appContext == null) {
+            appContext = context;
+        }
+        if (appContext == registeredContext) {
+            return;
+        }
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+
+        BroadcastReceiver receiver = new PackageChangeReceiver();
+        try {
+            appContext.registerReceiver(receiver, filter);
+        } catch (Exception e) {
+            // could fail in unit tests or if the app is in a weird state, the other hooks still invalidate the cache
+            CAT.w("Could not register package receiver, %s", e.getMessage());
+            return;
+        }
+
+        if (registeredContext != null) {
+            try {
+                registeredContext.unregisterReceiver(packageReceiver);
+            } catch (Exception ignored) {
+            }
+        }
+        registeredContext = appContext;
+        packageReceiver = receiver;
+    }
+
+    private static void invalidateGcm() {
+        try {
+            GcmAvailableHelper.invalidate();
+        } catch (Throwable ignored) {
+            // see https://github.com/evernote/android-job/issues/487, the helper can't be loaded without GCM
+        }
+    }
+
+    private static final class Selection {
+        private final int mGeneration;
+        private final AtomicReferenceArray<Boolean> mSupported = new AtomicReferenceArray<>(JobApi.values().length);
+        private volatile JobApi mDefaultApi;
+
+        private Selection(int generation) {
+            mGeneration = generation;
+        }
+    }
+
+    private static final class PackageChangeReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, @Nullable Intent intent) {
+            Uri data = intent == null ? null : intent.getData();
+            String packageName = data == null ? null : data.getSchemeSpecificPart();
+            if (packageName == null || GMS_PACKAGE.equals(packageName) || packageName.equals(context.getPackageName())) {
+                CAT.d("Package %s changed, invalidate supported APIs", packageName);
+                if (packageName == null || GMS_PACKAGE.equals(packageName)) {
+                    invalidateGcm();
+                }
+                invalidate();
+            }
+        }
+    }
+
+    private JobApiSelector() {
+        // no op
+    }
+}
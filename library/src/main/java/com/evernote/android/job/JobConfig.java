@@ -16,10 +16,13 @@
 package com.evernote.android.job;
 
 import android.os.Build;
+import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.evernote.android.job.util.Clock;
+import com.evernote.android.job.util.Device;
 import com.evernote.android.job.util.JobCat;
 import com.evernote.android.job.util.JobLogger;
 import com.evernote.android.job.util.JobPreconditions;
@@ -47,6 +50,8 @@ public final class JobConfig {
     }
 
     private static final long DEFAULT_JOB_RESCHEDULE_PAUSE = 3_000L;
+    private static final long DEFAULT_STORAGE_LOW_CHECK_INTERVAL = 30_000L;
+    private static final int DEFAULT_PLATFORM_JOB_LIMIT = 0;
 
     private static final EnumMap<JobApi, Boolean> ENABLED_APIS;
     private static final JobCat CAT = new JobCat("JobConfig");
@@ -81,6 +86,15 @@ public final class JobConfig {
     private static volatile Clock clock = Clock.DEFAULT;
     private static volatile ExecutorService executorService = DEFAULT_EXECUTOR_SERVICE;
     private static volatile boolean closeDatabase = false;
+    private static volatile boolean startupProfile = false;
+    private static volatile long storageLowThreshold = 0L;
+    private static volatile long storageLowCheckInterval = DEFAULT_STORAGE_LOW_CHECK_INTERVAL;
+    private static volatile boolean constraintWatcher = false;
+    private static volatile int platformJobLimit = DEFAULT_PLATFORM_JOB_LIMIT;
+    private static volatile boolean multiplexing = false;
+    private static volatile boolean alarmQueue = false;
+    private static volatile boolean latencyTracking = false;
+    private static volatile JobJournal journal;
 
     static {
         ENABLED_APIS = new EnumMap<>(JobApi.class);
@@ -109,6 +123,7 @@ public final class JobConfig {
      */
     public static void setApiEnabled(@NonNull JobApi api, boolean enabled) {
         ENABLED_APIS.put(api, enabled);
+        JobApiSelector.invalidate();
         CAT.w("setApiEnabled - %s, %b", api, enabled);
     }
 
@@ -122,6 +137,7 @@ public final class JobConfig {
         for (JobApi jobApi : JobApi.values()) {
             ENABLED_APIS.put(jobApi, jobApi == api);
         }
+        JobApiSelector.invalidate();
         CAT.w("forceApi - %s", api);
     }
 
@@ -166,6 +182,7 @@ public final class JobConfig {
      */
     public static void setForceAllowApi14(boolean forceAllowApi14) {
         JobConfig.forceAllowApi14 = forceAllowApi14;
+        JobApiSelector.invalidate();
     }
 
     /**
@@ -196,6 +213,79 @@ public final class JobConfig {
         JobCat.removeLogger(logger);
     }
 
+    /**
+     * Add a global listener, which will be notified about the lifecycle of all jobs.
+     *
+     * @param listener Your desired listener.
+     * @return {@code true} if the listener was added. Returns {@code false} if the listener was
+     * already added.
+     */
+    public static boolean addMetricsListener(@NonNull JobMetricsListener listener) {
+        return JobMetrics.addListener(listener);
+    }
+
+    /**
+     * Remove a global metrics listener.
+     *
+     * @param listener Your desired listener.
+     * @see #addMetricsListener(JobMetricsListener)
+     */
+    public static void removeMetricsListener(@NonNull JobMetricsListener listener) {
+        JobMetrics.removeListener(listener);
+    }
+
+    /**
+     * @return Whether latencies are aggregated into histograms. The default value is {@code false}.
+     */
+    public static boolean isLatencyTrackingEnabled() {
+        return latencyTracking;
+    }
+
+    /**
+     * Aggregates the schedule delay and execution duration of jobs per tag and the latency of the
+     * internal database into fixed size histograms. Recording doesn't allocate memory, the overhead
+     * is small enough to keep it enabled in production. The values are available through
+     * {@link JobManager#getLatencyStats()}.
+     *
+     * @param enabled Whether latencies should be recorded. The default value is {@code false}.
+     */
+    public static void setLatencyTrackingEnabled(boolean enabled) {
+        latencyTracking = enabled;
+        if (enabled) {
+            JobMetrics.addListener(JobLatencyTracker.INSTANCE);
+        } else {
+            JobMetrics.removeListener(JobLatencyTracker.INSTANCE);
+        }
+    }
+
+    /**
+     * @return The journal recording lifecycle events or {@code null} if none was set.
+     */
+    @Nullable
+    public static JobJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Records the lifecycle events of all jobs into the given journal, e.g. to analyze later why a
+     * job ran late. Recording one event takes a few hundred nanoseconds at most.
+     *
+     * @param journal The journal recording events or {@code null} to stop recording. A previous
+     *                journal is detached, but keeps its events.
+     * @see JobJournal#createInMemory(int)
+     * @see JobJournal#createMapped(java.io.File, int)
+     */
+    public static synchronized void setJournal(@Nullable JobJournal journal) {
+        JobJournal previous = JobConfig.journal;
+        if (previous != null) {
+            JobMetrics.removeListener(previous.getListener());
+        }
+        JobConfig.journal = journal;
+        if (journal != null) {
+            JobMetrics.addListener(journal.getListener());
+        }
+    }
+
     /**
      * Global switch to enable or disable printing log messages to Logcat.
      *
@@ -212,6 +302,24 @@ public final class JobConfig {
         return JobCat.isLogcatEnabled();
     }
 
+    /**
+     * Drops all log messages below this priority, e.g. use {@link Log#INFO} to skip the
+     * debug messages logged for each scheduled and executed job. The threshold applies to Logcat
+     * and custom loggers.
+     *
+     * @param priority The minimum priority. The default value is {@link Log#VERBOSE}.
+     */
+    public static void setMinLogPriority(int priority) {
+        JobCat.setMinPriority(priority);
+    }
+
+    /**
+     * @return The minimum priority of log messages. The default value is {@link Log#VERBOSE}.
+     */
+    public static int getMinLogPriority() {
+        return JobCat.getMinPriority();
+    }
+
     /**
      * @return The pause of job reschedule service in milliseconds.
      */
@@ -323,6 +431,181 @@ public final class JobConfig {
         JobConfig.closeDatabase = closeDatabase;
     }
 
+    /**
+     * @return Whether the expensive work during {@link JobManager#create(android.content.Context)} is
+     * moved to background threads. The default value is {@code false}.
+     */
+    public static boolean isStartupProfileEnabled() {
+        return startupProfile;
+    }
+
+    /**
+     * Moves the expensive work out of {@link JobManager#create(android.content.Context)}. The supported
+     * APIs are probed in parallel on background threads, {@link JobCreator.AddJobCreatorReceiver}s are
+     * looked up in the background before any job runs and the service rescheduling jobs after a reboot
+     * is started once the main thread becomes idle. The timings of each phase are available through
+     * {@link JobManager#getStartupProfile()}.
+     *
+     * <br>
+     * <br>
+     *
+     * Note that in this mode {@link JobManager#create(android.content.Context)} doesn't throw a
+     * {@link JobManagerCreateException} if all APIs are disabled, the error is only logged. This
+     * setting must be changed before the {@link JobManager} is created.
+     *
+     * @param enabled Whether the startup work should be deferred. The default value is {@code false}.
+     */
+    public static void setStartupProfileEnabled(boolean enabled) {
+        startupProfile = enabled;
+    }
+
+    /**
+     * @return The free space in bytes below which the storage is considered low. The default value is
+     * {@code 0}, in this case the threshold of the platform is used, which is 5% of the internal storage
+     * but at most 500MB.
+     */
+    public static long getStorageLowThreshold() {
+        return storageLowThreshold;
+    }
+
+    /**
+     * Overrides when the storage is considered low for jobs requiring that the storage isn't low. This
+     * only affects the check the library does itself, e.g. with the alarm or GCM API. The
+     * {@code JobScheduler} uses the threshold of the platform.
+     *
+     * @param thresholdBytes The free space in bytes below which the storage is considered low. Use
+     *                       {@code 0} to restore the threshold of the platform.
+     */
+    public static void setStorageLowThreshold(long thresholdBytes) {
+        JobPreconditions.checkArgumentNonnegative(thresholdBytes, "threshold can't be negative");
+        if (storageLowThreshold != thresholdBytes) {
+            storageLowThreshold = thresholdBytes;
+            Device.clearStorageStats();
+        }
+    }
+
+    /**
+     * @return How long the result of the low storage check is reused in milliseconds.
+     */
+    public static long getStorageLowCheckInterval() {
+        return storageLowCheckInterval;
+    }
+
+    /**
+     * Controls how often the free space of the internal storage is queried. Within this interval
+     * the last result is reused. The default value is 30 seconds.
+     *
+     * @param interval The new interval, {@code 0} queries the file system for each check.
+     * @param timeUnit The time unit of the interval argument.
+     */
+    public static void setStorageLowCheckInterval(long interval, @NonNull TimeUnit timeUnit) {
+        JobPreconditions.checkArgumentNonnegative(interval, "interval can't be negative");
+        storageLowCheckInterval = timeUnit.toMillis(interval);
+    }
+
+    /**
+     * @return Whether jobs with unmet requirements are kept in memory until the requirements are met.
+     * The default value is {@code false}.
+     */
+    public static boolean isConstraintWatcherEnabled() {
+        return constraintWatcher;
+    }
+
+    /**
+     * By default a job, whose requirements aren't met when it should run, is rescheduled with
+     * its back-off criteria. That creates a new {@link JobRequest} with a new ID each time. If enabled,
+     * the job is kept in memory instead and runs as soon as a broadcast reports that the device state
+     * changed and the requirements are met.
+     *
+     * <br>
+     * <br>
+     *
+     * This only applies to non-periodic jobs, whose charging, idle, battery or network requirements
+     * aren't met. If the process dies in the meantime, then the job is rescheduled the next time the
+     * {@link JobManager} is created.
+     *
+     * @param enabled Whether the constraint watcher should be used. The default value is {@code false}.
+     */
+    public static void setConstraintWatcherEnabled(boolean enabled) {
+        constraintWatcher = enabled;
+    }
+
+    /**
+     * @return How many requests are planted with the {@code JobScheduler} at most.
+     */
+    public static int getPlatformJobLimit() {
+        return platformJobLimit;
+    }
+
+    /**
+     * The {@code JobScheduler} crashes if an app schedules more than 100 jobs. To stay below this
+     * cap only the most urgent requests are planted, all others wait in the database and are planted
+     * as soon as a planted job finishes or is canceled. A value of 90 leaves some room for jobs
+     * scheduled by other libraries.
+     *
+     * <br>
+     * <br>
+     *
+     * While the limit is enabled, scheduling a request counts the planted requests in the database,
+     * enable it only if your app may schedule many jobs at once.
+     *
+     * @param limit The maximum number of planted requests, {@code 0} disables the limit. The default
+     *              value is {@code 0}.
+     */
+    public static void setPlatformJobLimit(int limit) {
+        platformJobLimit = JobPreconditions.checkArgumentNonnegative(limit, "limit can't be negative");
+    }
+
+    /**
+     * @return Whether one-off requests share a single platform job for each set of requirements.
+     */
+    public static boolean isMultiplexingEnabled() {
+        return multiplexing;
+    }
+
+    /**
+     * Many one-off jobs with the same requirements wake up the device once each. If enabled, such requests
+     * aren't planted individually. Instead a single platform job for each set of requirements is
+     * planted for the earliest deadline. When it runs, all requests whose execution window has started
+     * are executed and the platform job is planted again for the next deadline.
+     *
+     * <br>
+     * <br>
+     *
+     * Periodic, exact and transient requests are always planted individually. Requests can run a little
+     * later than with their own platform job, because the shared job waits for the earliest deadline.
+     *
+     * @param enabled Whether one-off requests should share platform jobs. The default value is {@code false}.
+     */
+    public static void setMultiplexingEnabled(boolean enabled) {
+        multiplexing = enabled;
+    }
+
+    /**
+     * @return Whether one-off jobs on the {@code AlarmManager} share a single alarm.
+     */
+    public static boolean isAlarmQueueEnabled() {
+        return alarmQueue;
+    }
+
+    /**
+     * Exact jobs and all jobs on devices without the {@code JobScheduler} use the {@code AlarmManager}.
+     * By default each of these jobs gets its own alarm. If enabled, one-off jobs are kept in a queue
+     * sorted by their alarm time instead and only a single alarm for exact and a single alarm for inexact
+     * jobs is planted for the next job. When the alarm fires, all due jobs run and the alarm is planted
+     * again for the next job.
+     *
+     * <br>
+     * <br>
+     *
+     * Periodic and transient jobs always get their own alarm.
+     *
+     * @param enabled Whether one-off jobs should share an alarm. The default value is {@code false}.
+     */
+    public static void setAlarmQueueEnabled(boolean enabled) {
+        alarmQueue = enabled;
+    }
+
     /**
      * Resets all adjustments in the config.
      */
@@ -339,7 +622,20 @@ public final class JobConfig {
         clock = Clock.DEFAULT;
         executorService = DEFAULT_EXECUTOR_SERVICE;
         closeDatabase = false;
+        startupProfile = false;
+        storageLowThreshold = 0L;
+        storageLowCheckInterval = DEFAULT_STORAGE_LOW_CHECK_INTERVAL;
+        Device.clearStorageStats();
+        constraintWatcher = false;
+        platformJobLimit = DEFAULT_PLATFORM_JOB_LIMIT;
+        multiplexing = false;
+        alarmQueue = false;
+        latencyTracking = false;
+        journal = null;
         JobCat.setLogcatEnabled(true);
+        JobCat.setMinPriority(Log.VERBOSE);
         JobCat.clearLogger();
+        JobMetrics.clearListeners();
+        JobApiSelector.invalidate();
     }
 }
@@ -45,6 +45,10 @@ import java.util.concurrent.CopyOnWriteArrayList;
     }
 
     public Job createJob(String tag) {
+        if (JobMultiplexer.isSlotTag(tag)) {
+            return new JobMultiplexer.SlotJob();
+        }
+
         Job job = null;
         boolean atLeastOneCreatorSeen = false;
 
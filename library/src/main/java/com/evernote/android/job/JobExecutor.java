@@ -15,24 +15,20 @@
  */
 package com.evernote.android.job;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.os.Bundle;
-import android.os.PowerManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
-import android.util.LruCache;
+import android.util.Log;
 import android.util.SparseArray;
 
+import com.evernote.android.job.util.DeviceStateCache;
 import com.evernote.android.job.util.JobCat;
 
-import java.lang.ref.WeakReference;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
@@ -48,16 +44,26 @@ import java.util.concurrent.TimeUnit;
     private static final JobCat CAT = new JobCat("JobExecutor");
     private static final long WAKE_LOCK_TIMEOUT = TimeUnit.MINUTES.toMillis(3);
 
+    private static final int FINISHED_JOBS_CAPACITY = 20;
+    private static final int FINISHED_RESULTS_CAPACITY = 200;
+
     private final SparseArray<Job> mJobs; // only cached in memory, that's fine
-    private final LruCache<Integer, WeakReference<Job>> mFinishedJobsCache;
-    private final SparseArray<Job.Result> mFinishedJobResults;
+    private final FinishedJobs mFinishedJobs;
 
     private final Set<JobRequest> mStartingRequests;
 
+    private final DeviceStateCache mDeviceStateCache;
+    private final ConstraintWatcher mConstraintWatcher;
+
     public JobExecutor() {
+        this(null, null);
+    }
+
+    public JobExecutor(@Nullable DeviceStateCache deviceStateCache, @Nullable ConstraintWatcher constraintWatcher) {
+        mDeviceStateCache = deviceStateCache;
+        mConstraintWatcher = constraintWatcher;
         mJobs = new SparseArray<>();
-        mFinishedJobsCache = new LruCache<>(20);
-        mFinishedJobResults = new SparseArray<>();
+        mFinishedJobs = new FinishedJobs(FINISHED_RESULTS_CAPACITY, FINISHED_JOBS_CAPACITY);
         mStartingRequests = new HashSet<>();
     }
 
@@ -71,9 +77,11 @@ import java.util.concurrent.TimeUnit;
             throw new IllegalStateException(String.format(Locale.ENGLISH, "Job for tag %s was already run, a creator should always create a new Job instance", request.getTag()));
         }
 
-        job.setContext(context).setRequest(request, transientExtras);
+        job.setContext(context).setDeviceStateCache(mDeviceStateCache).setRequest(request, transientExtras);
 
-        CAT.i("Executing %s, context %s", request, context.getClass().getSimpleName());
+        if (CAT.isLoggable(Log.INFO)) {
+            CAT.i("Executing %s, context %s", request, context.getClass().getSimpleName());
+        }
 
         mJobs.put(request.getJobId(), job);
         return JobConfig.getExecutorService().submit(new JobCallable(job));
@@ -84,8 +92,7 @@ import java.util.concurrent.TimeUnit;
         if (job != null) {
             return job;
         }
-        WeakReference<Job> reference = mFinishedJobsCache.get(jobId);
-        return reference != null ? reference.get() : null;
+        return mFinishedJobs.getJob(jobId);
     }
 
     public synchronized Set<Job> getAllJobs() {
@@ -101,23 +108,12 @@ import java.util.concurrent.TimeUnit;
             }
         }
 
-        Map<Integer, WeakReference<Job>> snapshot = mFinishedJobsCache.snapshot();
-        for (WeakReference<Job> reference : snapshot.values()) {
-            Job job = reference.get();
-            if (job == null) {
-                continue;
-            }
-
-            if (tag == null || tag.equals(job.getParams().getTag())) {
-                result.add(job);
-            }
-        }
-
+        mFinishedJobs.collectJobs(tag, result);
         return result;
     }
 
-    public SparseArray<Job.Result> getAllJobResults() {
-        return mFinishedJobResults.clone();
+    public synchronized SparseArray<Job.Result> getAllJobResults() {
+        return mFinishedJobs.getResults();
     }
 
     public synchronized void markJobRequestStarting(@NonNull JobRequest request) {
@@ -131,40 +127,33 @@ import java.util.concurrent.TimeUnit;
     @VisibleForTesting
     /*package*/ synchronized void markJobAsFinished(Job job) {
         int id = job.getParams().getId();
-        mJobs.remove(id);
-        cleanUpRoutine(mFinishedJobsCache);
-        mFinishedJobResults.put(id, job.getResult());
-        mFinishedJobsCache.put(id, new WeakReference<>(job));
-    }
-
-    @VisibleForTesting
-    @SuppressLint("UseSparseArrays")
-    /*package*/ void cleanUpRoutine(LruCache<Integer, WeakReference<Job>> cache) {
-        Map<Integer, WeakReference<Job>> snapshot = new HashMap<>(cache.snapshot());
-        for (Integer key : snapshot.keySet()) {
-            if (snapshot.get(key) == null || snapshot.get(key).get() == null) {
-                cache.remove(key);
-            }
+        if (mJobs.get(id) == job) {
+            // a parked request could run again already
+            mJobs.remove(id);
         }
+        mFinishedJobs.put(id, job, job.getResult());
     }
 
     private final class JobCallable implements Callable<Job.Result> {
 
         private final Job mJob;
-        private final PowerManager.WakeLock mWakeLock;
+        private SharedWakeLock.Token mWakeLock;
 
         private JobCallable(Job job) {
             mJob = job;
-
-            Context context = mJob.getContext();
-            mWakeLock = WakeLockUtil.acquireWakeLock(context, "JobExecutor", WAKE_LOCK_TIMEOUT);
+            mWakeLock = SharedWakeLock.get(SharedWakeLock.GROUP_JOBS).acquire(mJob.getContext(), WAKE_LOCK_TIMEOUT);
         }
 
         @Override
         public Job.Result call() throws Exception {
             try {
                 // just in case something was blocking and the wake lock is no longer acquired
-                WakeLockUtil.acquireWakeLock(mJob.getContext(), mWakeLock, WAKE_LOCK_TIMEOUT);
+                if (mWakeLock == null || !mWakeLock.isHeld()) {
+                    if (mWakeLock != null) {
+                        mWakeLock.release();
+                    }
+                    mWakeLock = SharedWakeLock.get(SharedWakeLock.GROUP_JOBS).acquire(mJob.getContext(), WAKE_LOCK_TIMEOUT);
+                }
                 return runJob();
 
             } finally {
@@ -173,21 +162,41 @@ import java.util.concurrent.TimeUnit;
                 if (mWakeLock == null || !mWakeLock.isHeld()) {
                     CAT.w("Wake lock was not held after job %s was done. The job took too long to complete. This could have unintended side effects on your app.", mJob);
                 }
-                WakeLockUtil.releaseWakeLock(mWakeLock);
+                if (mWakeLock != null) {
+                    mWakeLock.release();
+                }
             }
         }
 
         private Job.Result runJob() {
+            JobRequest request = mJob.getParams().getRequest();
+            JobMetrics.onJobStarted(request);
+            long start = System.nanoTime();
+
             Job.Result result;
+            boolean finishedReported = false;
             try {
                 result = mJob.runJob();
-                CAT.i("Finished %s", mJob);
+                if (CAT.isLoggable(Log.INFO)) {
+                    CAT.i("Finished %s", mJob);
+                }
+
+                JobMetrics.onJobFinished(request, result, System.nanoTime() - start);
+                finishedReported = true;
+                if (mJob.isRequirementsMissed()) {
+                    JobMetrics.onJobRequirementsMissed(request);
+                }
 
                 handleResult(mJob, result);
 
             } catch (Throwable t) {
                 CAT.e(t, "Crashed %s", mJob);
                 result = mJob.getResult(); // probably the default value
+
+                if (!finishedReported) {
+                    // listeners pair each start with a finish, also for crashed jobs
+                    JobMetrics.onJobFinished(request, result, System.nanoTime() - start);
+                }
             }
 
             return result;
@@ -199,7 +208,13 @@ import java.util.concurrent.TimeUnit;
             boolean updateLastRun = false;
 
             if (!request.isPeriodic() && Job.Result.RESCHEDULE.equals(result) && !job.isDeleted()) {
+                if (park(job)) {
+                    // the request stays as it is until the requirements are met
+                    return;
+                }
+
                 request = request.reschedule(true, true);
+                JobMetrics.onJobRescheduled(mJob.getParams().getRequest(), request.getJobId());
                 mJob.onReschedule(request.getJobId());
                 updateLastRun = true;
 
@@ -219,5 +234,19 @@ import java.util.concurrent.TimeUnit;
                 }
             }
         }
+
+        private boolean park(Job job) {
+            if (mConstraintWatcher == null || !JobConfig.isConstraintWatcherEnabled() || !job.isRequirementsMissed()) {
+                return false;
+            }
+
+            Job.Params params = job.getParams();
+            if (mConstraintWatcher.park(params.getRequest(), params.getTransientExtras(), job.getUnmetRequirementChanges())) {
+                job.setParked();
+                return true;
+            } else {
+                return false;
+            }
+        }
     }
 }
@@ -33,6 +33,10 @@ public final class JobIdsInternal {
     public static final int JOB_ID_JOB_RESCHEDULE_SERVICE = 2147480000;
     public static final int JOB_ID_PLATFORM_ALARM_SERVICE = 2147480001;
 
+    // request codes of the alarms of the JobAlarmQueue, they share the request codes of the job alarms
+    public static final int REQUEST_CODE_ALARM_QUEUE_EXACT = 2147480002;
+    public static final int REQUEST_CODE_ALARM_QUEUE_INEXACT = 2147480003;
+
     private JobIdsInternal() {
         // do not instantiate; holder for constants
     }
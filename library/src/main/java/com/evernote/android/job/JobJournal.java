@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.evernote.android.job.util.JobPreconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size ring buffer of compact lifecycle events, e.g. to find out after the fact why a job
+ * ran late on a device. Each event takes {@value #RECORD_SIZE} bytes, once the journal is full the
+ * oldest events are overwritten.
+ *
+ * <br>
+ * <br>
+ *
+ * A journal created with {@link #createMapped(File, int)} is backed by a memory mapped file and
+ * survives process death, the operating system writes the pages back lazily. Recording never
+ * allocates and doesn't lock, events recorded while exporting may be missing from the export.
+ *
+ * @author rwondratschek
+ * @see JobConfig#setJournal(JobJournal)
+ */
+@SuppressWarnings("WeakerAccess")
+public final class JobJournal {
+
+    /*package*/ static final int RECORD_SIZE = 32;
+    /*package*/ static final int HEADER_SIZE = 16;
+    /*package*/ static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private static final int MAGIC = 0x4a4f424a; // JOBJ
+    private static final int VERSION = 1;
+
+    // record layout, the sequence is written last and is 0 for empty slots
+    private static final int OFFSET_SEQUENCE = 0;
+    private static final int OFFSET_TIMESTAMP = 8;
+    private static final int OFFSET_JOB_ID = 16;
+    private static final int OFFSET_TAG_HASH = 20;
+    private static final int OFFSET_TYPE = 24;
+    private static final int OFFSET_API = 25;
+    private static final int OFFSET_RESULT = 26;
+    private static final int OFFSET_VALUE = 28;
+
+    private static final JobApi[] APIS = JobApi.values();
+    private static final Job.Result[] RESULTS = Job.Result.values();
+    private static final EventType[] TYPES = EventType.values();
+
+    /**
+     * Creates a journal which only lives in memory.
+     *
+     * @param capacity The maximum number of events.
+     * @return A new journal.
+     */
+    @NonNull
+    public static JobJournal createInMemory(int capacity) {
+        JobPreconditions.checkArgumentInRange(capacity, 1, MAX_CAPACITY, "capacity");
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + capacity * RECORD_SIZE);
+        return new JobJournal(buffer, capacity);
+    }
+
+    /**
+     * Creates a journal backed by a memory mapped file. If the file already contains a journal with
+     * the same capacity, then its events are kept and new events are appended. Otherwise the file
+     * is cleared.
+     *
+     * @param file The file backing the journal.
+     * @param capacity The maximum number of events.
+     * @return A new journal.
+     * @throws IOException If the file couldn't be mapped.
+     */
+    @NonNull
+    public static JobJournal createMapped(@NonNull File file, int capacity) throws IOException {
+        JobPreconditions.checkNotNull(file);
+        JobPreconditions.checkArgumentInRange(capacity, 1, MAX_CAPACITY, "capacity");
+
+        int size = HEADER_SIZE + capacity * RECORD_SIZE;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            if (randomAccessFile.length() != size) {
+                randomAccessFile.setLength(0);
+                randomAccessFile.setLength(size);
+            }
+            // the mapping stays valid after closing the channel
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new JobJournal(buffer, capacity);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private final ByteBuffer mBuffer;
+    private final int mCapacity;
+    private final AtomicLong mSequence;
+
+    private final JobMetricsListener mListener = new JobMetricsListener.Adapter() {
+        @Override
+        public void onJobScheduled(int jobId, @NonNull String tag, long timestamp) {
+            record(EventType.SCHEDULED, jobId, tag, timestamp, null, null, 0);
+        }
+
+        @Override
+        public void onJobPlanted(int jobId, @NonNull String tag, @NonNull JobApi api, long timestamp) {
+            record(EventType.PLANTED, jobId, tag, timestamp, api, null, 0);
+        }
+
+        @Override
+        public void onJobDispatched(int jobId, @NonNull String tag, long timestamp, long scheduleDelayMs) {
+            record(EventType.DISPATCHED, jobId, tag, timestamp, null, null, scheduleDelayMs);
+        }
+
+        @Override
+        public void onJobStarted(int jobId, @NonNull String tag, long timestamp) {
+            record(EventType.STARTED, jobId, tag, timestamp, null, null, 0);
+        }
+
+        @Override
+        public void onJobFinished(int jobId, @NonNull String tag, @NonNull Job.Result result, long timestamp, long durationNanos) {
+            record(EventType.FINISHED, jobId, tag, timestamp, null, result, durationNanos / 1_000_000L);
+        }
+
+        @Override
+        public void onJobRequirementsMissed(int jobId, @NonNull String tag, long timestamp) {
+            record(EventType.REQUIREMENTS_MISSED, jobId, tag, timestamp, null, null, 0);
+        }
+
+        @Override
+        public void onJobRescheduled(int jobId, int newJobId, @NonNull String tag, long timestamp) {
+            record(EventType.RESCHEDULED, jobId, tag, timestamp, null, null, newJobId);
+        }
+    };
+
+    private JobJournal(ByteBuffer buffer, int capacity) {
+        mBuffer = buffer;
+        mCapacity = capacity;
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != capacity) {
+            for (int i = 0; i < buffer.capacity(); i += 8) {
+                buffer.putLong(i, 0L);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, capacity);
+        }
+
+        long sequence = 0;
+        for (int i = 0; i < capacity; i++) {
+            sequence = Math.max(sequence, buffer.getLong(getOffset(i) + OFFSET_SEQUENCE));
+        }
+        mSequence = new AtomicLong(sequence);
+    }
+
+    /**
+     * @return The maximum number of events this journal keeps.
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /*package*/ JobMetricsListener getListener() {
+        return mListener;
+    }
+
+    /*package*/ void record(EventType type, int jobId, String tag, long timestamp, JobApi api, Job.Result result, long value) {
+        long sequence = mSequence.incrementAndGet();
+        int offset = getOffset((int) ((sequence - 1) % mCapacity));
+
+        ByteBuffer buffer = mBuffer;
+        buffer.putLong(offset + OFFSET_SEQUENCE, 0L); // mark the slot as being written
+        buffer.putLong(offset + OFFSET_TIMESTAMP, timestamp);
+        buffer.putInt(offset + OFFSET_JOB_ID, jobId);
+        buffer.putInt(offset + OFFSET_TAG_HASH, tag.hashCode());
+        buffer.put(offset + OFFSET_TYPE, (byte) type.ordinal());
+        buffer.put(offset + OFFSET_API, api == null ? -1 : (byte) api.ordinal());
+        buffer.put(offset + OFFSET_RESULT, result == null ? -1 : (byte) result.ordinal());
+        buffer.putInt(offset + OFFSET_VALUE, (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value)));
+        buffer.putLong(offset + OFFSET_SEQUENCE, sequence);
+    }
+
+    /**
+     * Writes pending changes of a memory mapped journal to the file. Usually not necessary, the
+     * operating system writes the pages back even if the process dies.
+     */
+    public void flush() {
+        if (mBuffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) mBuffer).force();
+        }
+    }
+
+    /**
+     * Removes all events.
+     */
+    public void clear() {
+        for (int i = 0; i < mCapacity; i++) {
+            mBuffer.putLong(getOffset(i) + OFFSET_SEQUENCE, 0L);
+        }
+    }
+
+    /**
+     * @return A copy of all events in this journal, the oldest event first.
+     */
+    @NonNull
+    public List<Event> getEvents() {
+        long last = mSequence.get();
+        long first = Math.max(1, last - mCapacity + 1);
+
+        List<Event> events = new ArrayList<>((int) (last - first + 1));
+        for (long sequence = first; sequence <= last; sequence++) {
+            int offset = getOffset((int) ((sequence - 1) % mCapacity));
+            if (mBuffer.getLong(offset + OFFSET_SEQUENCE) != sequence) {
+                // cleared, overwritten or not completely written, yet
+                continue;
+            }
+
+            Event event = new Event(
+                    mBuffer.getLong(offset + OFFSET_TIMESTAMP),
+                    mBuffer.getInt(offset + OFFSET_JOB_ID),
+                    mBuffer.getInt(offset + OFFSET_TAG_HASH),
+                    TYPES[mBuffer.get(offset + OFFSET_TYPE)],
+                    byteToEnum(APIS, mBuffer.get(offset + OFFSET_API)),
+                    byteToEnum(RESULTS, mBuffer.get(offset + OFFSET_RESULT)),
+                    mBuffer.getInt(offset + OFFSET_VALUE));
+
+            if (mBuffer.getLong(offset + OFFSET_SEQUENCE) == sequence) {
+                events.add(event);
+            }
+        }
+        return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * Writes all events as text, one event per line, e.g. to attach them to a bug report.
+     *
+     * @param writer The destination, it's neither flushed nor closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(@NonNull Writer writer) throws IOException {
+        for (Event event : getEvents()) {
+            writer.write(event.toString());
+            writer.write('\n');
+        }
+    }
+
+    private static int getOffset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    @Nullable
+    private static <T> T byteToEnum(T[] values, byte ordinal) {
+        return ordinal < 0 || ordinal >= values.length ? null : values[ordinal];
+    }
+
+    /**
+     * The kind of a recorded event, see {@link JobMetricsListener} for their meaning.
+     */
+    public enum EventType {
+        SCHEDULED,
+        PLANTED,
+        DISPATCHED,
+        STARTED,
+        FINISHED,
+        REQUIREMENTS_MISSED,
+        RESCHEDULED
+    }
+
+    /**
+     * A single recorded event.
+     */
+    public static final class Event {
+
+        private final long mTimestamp;
+        private final int mJobId;
+        private final int mTagHash;
+        private final EventType mType;
+        private final JobApi mApi;
+        private final Job.Result mResult;
+        private final int mValue;
+
+        private Event(long timestamp, int jobId, int tagHash, EventType type, JobApi api, Job.Result result, int value) {
+            mTimestamp = timestamp;
+            mJobId = jobId;
+            mTagHash = tagHash;
+            mType = type;
+            mApi = api;
+            mResult = result;
+            mValue = value;
+        }
+
+        /**
+         * @return The time of the event in milliseconds, see {@link JobConfig#getClock()}.
+         */
+        public long getTimestamp() {
+            return mTimestamp;
+        }
+
+        public int getJobId() {
+            return mJobId;
+        }
+
+        /**
+         * @return The {@link String#hashCode()} of the tag. Tags aren't stored to keep events small.
+         * @see #hasTag(String)
+         */
+        public int getTagHash() {
+            return mTagHash;
+        }
+
+        /**
+         * @param tag The tag of a job.
+         * @return {@code true} if the hash of the given tag matches, collisions are possible.
+         */
+        public boolean hasTag(@NonNull String tag) {
+            return tag.hashCode() == mTagHash;
+        }
+
+        @NonNull
+        public EventType getType() {
+            return mType;
+        }
+
+        /**
+         * @return The API used to run the job. Only set for {@link EventType#PLANTED} events.
+         */
+        @Nullable
+        public JobApi getApi() {
+            return mApi;
+        }
+
+        /**
+         * @return The result of the job. Only set for {@link EventType#FINISHED} events.
+         */
+        @Nullable
+        public Job.Result getResult() {
+            return mResult;
+        }
+
+        /**
+         * @return The schedule delay in milliseconds for {@link EventType#DISPATCHED} events, the
+         * duration in milliseconds for {@link EventType#FINISHED} events, the new job ID for
+         * {@link EventType#RESCHEDULED} events and {@code 0} otherwise.
+         */
+        public int getValue() {
+            return mValue;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder()
+                    .append(mTimestamp).append(' ')
+                    .append(mType).append(" id=").append(mJobId)
+                    .append(" tagHash=").append(Integer.toHexString(mTagHash));
+            if (mApi != null) {
+                builder.append(" api=").append(mApi);
+            }
+            if (mResult != null) {
+                builder.append(" result=").append(mResult);
+            }
+            if (mValue != 0) {
+                builder.append(" value=").append(mValue);
+            }
+            return builder.toString();
+        }
+    }
+}
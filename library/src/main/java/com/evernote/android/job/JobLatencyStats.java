@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Latencies recorded since the tracking was enabled or last reset. If too many different tags
+ * were used, then the remaining tags are merged into one entry.
+ *
+ * @author rwondratschek
+ * @see JobManager#getLatencyStats()
+ * @see JobConfig#setLatencyTrackingEnabled(boolean)
+ */
+@SuppressWarnings("WeakerAccess")
+public final class JobLatencyStats {
+
+    private final Map<String, LatencySnapshot> mScheduleDelays;
+    private final Map<String, LatencySnapshot> mExecutionDurations;
+    private final LatencySnapshot[] mStorage;
+
+    /*package*/ JobLatencyStats(Map<String, LatencySnapshot> scheduleDelays, Map<String, LatencySnapshot> executionDurations,
+                                LatencySnapshot[] storage) {
+        mScheduleDelays = scheduleDelays;
+        mExecutionDurations = executionDurations;
+        mStorage = storage;
+    }
+
+    /**
+     * @return All tags with recorded values.
+     */
+    @NonNull
+    public Set<String> getTags() {
+        return Collections.unmodifiableSet(mScheduleDelays.keySet());
+    }
+
+    /**
+     * @param tag The tag of the jobs.
+     * @return The time between scheduling a request and the platform running it, or {@code null}
+     * if no job with this tag ran.
+     */
+    @Nullable
+    public LatencySnapshot getScheduleDelay(@NonNull String tag) {
+        return mScheduleDelays.get(tag);
+    }
+
+    /**
+     * @param tag The tag of the jobs.
+     * @return How long the jobs were running, or {@code null} if no job with this tag ran.
+     */
+    @Nullable
+    public LatencySnapshot getExecutionDuration(@NonNull String tag) {
+        return mExecutionDurations.get(tag);
+    }
+
+    /**
+     * @param operation The kind of operation.
+     * @return The latency of the operation on the internal database.
+     */
+    @NonNull
+    public LatencySnapshot getStorageLatency(@NonNull JobMetricsListener.StorageOperation operation) {
+        return mStorage[operation.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("latency{");
+        for (String tag : mScheduleDelays.keySet()) {
+            builder.append(tag)
+                    .append("={delay: ").append(mScheduleDelays.get(tag))
+                    .append(", duration: ").append(mExecutionDurations.get(tag))
+                    .append("}, ");
+        }
+        for (JobMetricsListener.StorageOperation operation : JobMetricsListener.StorageOperation.values()) {
+            builder.append(operation).append("={").append(mStorage[operation.ordinal()]).append("}, ");
+        }
+        builder.setLength(builder.length() - 2);
+        return builder.append('}').toString();
+    }
+}
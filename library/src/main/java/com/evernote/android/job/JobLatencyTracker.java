@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates the schedule delay and execution duration per tag and the latency of database
+ * operations into {@link LatencyHistogram}s. Histograms are created once per tag, afterwards
+ * recording doesn't allocate. The number of tags is limited, further tags share one histogram.
+ *
+ * @author rwondratschek
+ * @see JobConfig#setLatencyTrackingEnabled(boolean)
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+/*package*/ final class JobLatencyTracker extends JobMetricsListener.Adapter {
+
+    /*package*/ static final JobLatencyTracker INSTANCE = new JobLatencyTracker();
+
+    /*package*/ static final int MAX_TAGS = 64;
+    /*package*/ static final String OTHER_TAGS = "<other>";
+
+    private volatile State mState = new State();
+
+    private JobLatencyTracker() {
+        // singleton
+    }
+
+    @Override
+    public void onJobDispatched(int jobId, @NonNull String tag, long timestamp, long scheduleDelayMs) {
+        mState.getTagHistograms(tag).mScheduleDelay.record(TimeUnit.MILLISECONDS.toMicros(scheduleDelayMs));
+    }
+
+    @Override
+    public void onJobFinished(int jobId, @NonNull String tag, @NonNull Job.Result result, long timestamp, long durationNanos) {
+        mState.getTagHistograms(tag).mExecutionDuration.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    @Override
+    public void onStorageOperation(@NonNull StorageOperation operation, long durationNanos) {
+        mState.mStorage[operation.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    @NonNull
+    public JobLatencyStats snapshot() {
+        State state = mState;
+
+        Map<String, LatencySnapshot> scheduleDelays = new HashMap<>();
+        Map<String, LatencySnapshot> executionDurations = new HashMap<>();
+        for (Map.Entry<String, TagHistograms> entry : state.mTags.entrySet()) {
+            scheduleDelays.put(entry.getKey(), entry.getValue().mScheduleDelay.snapshot());
+            executionDurations.put(entry.getKey(), entry.getValue().mExecutionDuration.snapshot());
+        }
+
+        LatencySnapshot[] storage = new LatencySnapshot[state.mStorage.length];
+        for (int i = 0; i < storage.length; i++) {
+            storage[i] = state.mStorage[i].snapshot();
+        }
+
+        return new JobLatencyStats(scheduleDelays, executionDurations, storage);
+    }
+
+    /**
+     * Drops all recorded values. Values recorded concurrently may get lost.
+     */
+    public void reset() {
+        mState = new State();
+    }
+
+    private static final class State {
+        private final ConcurrentHashMap<String, TagHistograms> mTags = new ConcurrentHashMap<>();
+        private final LatencyHistogram[] mStorage;
+
+        private State() {
+            mStorage = new LatencyHistogram[JobMetricsListener.StorageOperation.values().length];
+            for (int i = 0; i < mStorage.length; i++) {
+                mStorage[i] = new LatencyHistogram();
+            }
+        }
+
+        private TagHistograms getTagHistograms(String tag) {
+            TagHistograms histograms = mTags.get(tag);
+            if (histograms != null) {
+                return histograms;
+            }
+
+            if (mTags.size() >= MAX_TAGS) {
+                tag = OTHER_TAGS;
+                histograms = mTags.get(tag);
+                if (histograms != null) {
+                    return histograms;
+                }
+            }
+
+            histograms = new TagHistograms();
+            TagHistograms existing = mTags.putIfAbsent(tag, histograms);
+            return existing == null ? histograms : existing;
+        }
+    }
+
+    private static final class TagHistograms {
+        private final LatencyHistogram mScheduleDelay = new LatencyHistogram();
+        private final LatencyHistogram mExecutionDuration = new LatencyHistogram();
+    }
+}
@@ -23,20 +23,28 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ResolveInfo;
+import android.os.Looper;
+import android.os.MessageQueue;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 
+import com.evernote.android.job.util.DeviceStateCache;
 import com.evernote.android.job.util.JobCat;
 import com.evernote.android.job.util.JobPreconditions;
 import com.evernote.android.job.util.JobUtil;
 import com.google.android.gms.gcm.GcmNetworkManager;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -83,7 +91,8 @@ public final class JobManager {
      *
      * @param context Any {@link Context} to instantiate the singleton object.
      * @return The new or existing singleton object.
-     * @throws JobManagerCreateException When the singleton couldn't be created.
+     * @throws JobManagerCreateException When the singleton couldn't be created. Not thrown if
+     * {@link JobConfig#isStartupProfileEnabled()} is {@code true}.
      */
     public static JobManager create(@NonNull Context context) throws JobManagerCreateException {
         if (instance == null) {
@@ -96,21 +105,32 @@ public final class JobManager {
                         context = context.getApplicationContext();
                     }
 
-                    JobApi api = JobApi.getDefault(context);
-                    if (api == JobApi.V_14 && !api.isSupported(context)) {
-                        throw new JobManagerCreateException("All APIs are disabled, cannot schedule any job");
-                    }
+                    // the environment could have changed since the last instance was destroyed
+                    JobApiSelector.invalidate();
 
-                    instance = new JobManager(context);
+                    long start = System.nanoTime();
+                    boolean deferred = JobConfig.isStartupProfileEnabled();
+                    JobStartupProfile profile = new JobStartupProfile(deferred);
 
-                    if (!JobUtil.hasWakeLockPermission(context)) {
-                        CAT.w("No wake lock permission");
+                    if (!deferred) {
+                        JobApi api = JobApi.getDefault(context);
+                        if (api == JobApi.V_14 && !JobApiSelector.isSupported(context, api)) {
+                            throw new JobManagerCreateException("All APIs are disabled, cannot schedule any job");
+                        }
+                        profile.setApiProbeNanos(System.nanoTime() - start);
                     }
-                    if (!JobUtil.hasBootPermission(context)) {
-                        CAT.w("No boot permission");
+
+                    instance = new JobManager(context, profile);
+
+                    if (deferred) {
+                        // querying the receivers is a binder call, jobs wait for the creators instead
+                        instance.initDeferred();
+                    } else {
+                        instance.addBroadcastJobCreators();
+                        checkPermissions(context);
                     }
 
-                    sendAddJobCreatorIntent(context);
+                    profile.setCreateNanos(System.nanoTime() - start);
                 }
             }
         }
@@ -139,29 +159,106 @@ public final class JobManager {
     private final Context mContext;
     private final JobCreatorHolder mJobCreatorHolder;
     private final JobExecutor mJobExecutor;
+    private final DeviceStateCache mDeviceStateCache;
+    private final ConstraintWatcher mConstraintWatcher;
+    private final JobOverflowQueue mOverflowQueue;
+    private final JobMultiplexer mMultiplexer;
+    private final JobAlarmQueue mAlarmQueue;
 
     private volatile JobStorage mJobStorage;
     private final CountDownLatch mJobStorageLatch;
+    private final CountDownLatch mJobCreatorLatch;
 
-    private JobManager(final Context context) {
+    private final JobStartupProfile mStartupProfile;
+    private final long mCreatedNanos;
+
+    private JobManager(final Context context, JobStartupProfile startupProfile) {
         mContext = context;
         mJobCreatorHolder = new JobCreatorHolder();
-        mJobExecutor = new JobExecutor();
-
-        if (!JobConfig.isSkipJobReschedule()) {
-            JobRescheduleService.startService(mContext);
+        mDeviceStateCache = new DeviceStateCache(context);
+        mConstraintWatcher = new ConstraintWatcher(context, mDeviceStateCache);
+        mJobExecutor = new JobExecutor(mDeviceStateCache, mConstraintWatcher);
+        mOverflowQueue = new JobOverflowQueue(this);
+        mMultiplexer = new JobMultiplexer(this);
+        mAlarmQueue = new JobAlarmQueue(this);
+        mStartupProfile = startupProfile;
+        mCreatedNanos = System.nanoTime();
+        mJobCreatorLatch = new CountDownLatch(1);
+
+        if (JobConfig.isSkipJobReschedule()) {
+            mStartupProfile.setRescheduleServiceNanos(0);
+        } else if (mStartupProfile.isDeferred()) {
+            startRescheduleServiceWhenIdle();
+        } else {
+            startRescheduleService();
         }
 
         mJobStorageLatch = new CountDownLatch(1);
         new Thread("AndroidJob-storage-init") {
             @Override
             public void run() {
+                long start = System.nanoTime();
                 mJobStorage = new JobStorage(context);
+                mStartupProfile.setStorageInitNanos(System.nanoTime() - start);
                 mJobStorageLatch.countDown();
             }
         }.start();
     }
 
+    private void startRescheduleService() {
+        JobRescheduleService.startService(mContext);
+        mStartupProfile.setRescheduleServiceNanos(System.nanoTime() - mCreatedNanos);
+    }
+
+    private void startRescheduleServiceWhenIdle() {
+        Looper mainLooper = Looper.getMainLooper();
+        if (mainLooper == null || Looper.myLooper() != mainLooper) {
+            // not blocking the UI, no reason to wait
+            startRescheduleService();
+            return;
+        }
+
+        // the main thread is busy with the first frame at this point, start the service afterwards
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                JobConfig.getExecutorService().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        startRescheduleService();
+                    }
+                });
+                return false;
+            }
+        });
+    }
+
+    private void initDeferred() {
+        new Thread("AndroidJob-startup") {
+            @Override
+            public void run() {
+                // creators must be registered before the first job is dispatched, see getJobCreatorHolder()
+                addBroadcastJobCreators();
+
+                long start = System.nanoTime();
+                int generation = JobApiSelector.getGeneration();
+                Map<JobApi, Boolean> supported = JobApi.probeSupported(mContext, JobConfig.getExecutorService());
+                JobApiSelector.seed(mContext, supported, generation);
+                try {
+                    JobApi api = JobApi.getDefault(mContext, supported);
+                    if (api == JobApi.V_14 && !Boolean.TRUE.equals(supported.get(JobApi.V_14))) {
+                        CAT.e("All APIs are disabled, cannot schedule any job");
+                    }
+                } catch (IllegalStateException e) {
+                    CAT.e(e);
+                }
+                mStartupProfile.setApiProbeNanos(System.nanoTime() - start);
+
+                checkPermissions(mContext);
+            }
+        }.start();
+    }
+
     /**
      * Schedule a request which will be executed in the future. If you want to update an existing
      * {@link JobRequest}, call {@link JobRequest#cancelAndEdit()}, update your parameters and call
@@ -172,20 +269,130 @@ public final class JobManager {
      */
     public synchronized void schedule(@NonNull JobRequest request) {
         // call must be synchronized, otherwise with isUpdateCurrent() true it's possible to end up in a race condition with multiple jobs scheduled
+        warnIfNoJobCreator();
+
+        if (prepareSchedule(request, false)) {
+            plant(request);
+        }
+    }
+
+    /**
+     * Schedule multiple requests at once, e.g. after restoring them from a backup. The requests are
+     * planted in one batch for each {@link JobApi}, which is cheaper than calling {@link #schedule(JobRequest)}
+     * for each request. If planting a batch fails, then the requests of this batch are planted
+     * one by one and the first exception is rethrown after all requests were handled.
+     *
+     * @param requests The {@link JobRequest}s which will run in the future.
+     */
+    public synchronized void schedule(@NonNull Collection<JobRequest> requests) {
+        scheduleBatch(requests, false);
+    }
+
+    /**
+     * Plants copies of stored requests again, see {@link JobRequest#createRescheduled()}. The copies
+     * overwrite their rows, the old requests are neither removed nor canceled first, so a process
+     * death in between doesn't lose them.
+     */
+    /*package*/ synchronized void reschedule(@NonNull Collection<JobRequest> requests) {
+        scheduleBatch(requests, true);
+    }
+
+    private void scheduleBatch(@NonNull Collection<JobRequest> requests, boolean replace) {
+        warnIfNoJobCreator();
+
+        Map<JobApi, List<JobRequest>> batches = new EnumMap<>(JobApi.class);
+        for (JobRequest request : requests) {
+            if (!replace && request.isUpdateCurrent()) {
+                // a request planted later in this batch replaces all earlier ones with the same tag
+                for (List<JobRequest> batch : batches.values()) {
+                    Iterator<JobRequest> iterator = batch.iterator();
+                    while (iterator.hasNext()) {
+                        if (iterator.next().getTag().equals(request.getTag())) {
+                            iterator.remove();
+                        }
+                    }
+                }
+            }
+
+            if (!prepareSchedule(request, replace)) {
+                continue;
+            }
+
+            List<JobRequest> batch = batches.get(request.getJobApi());
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batches.put(request.getJobApi(), batch);
+            }
+            batch.add(request);
+        }
 
-        if (mJobCreatorHolder.isEmpty()) {
+        RuntimeException exception = null;
+        for (Map.Entry<JobApi, List<JobRequest>> entry : batches.entrySet()) {
+            JobApi jobApi = entry.getKey();
+            List<JobRequest> batch = entry.getValue();
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            try {
+                getJobProxy(jobApi).plantBatch(batch);
+                for (JobRequest request : batch) {
+                    JobMetrics.onJobPlanted(request, jobApi);
+                }
+                continue;
+            } catch (Exception e) {
+                CAT.w(e, "Couldn't plant %d jobs with %s in a batch, plant them one by one", batch.size(), jobApi);
+            }
+
+            for (JobRequest request : batch) {
+                try {
+                    plant(request);
+                } catch (RuntimeException e) {
+                    if (exception == null) {
+                        exception = e;
+                    }
+                }
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private void addBroadcastJobCreators() {
+        try {
+            sendAddJobCreatorIntent(mContext, this);
+        } finally {
+            mJobCreatorLatch.countDown();
+        }
+    }
+
+    private void warnIfNoJobCreator() {
+        // creators of the broadcast might not be added yet, don't block the caller
+        if (mJobCreatorLatch.getCount() == 0 && mJobCreatorHolder.isEmpty()) {
             CAT.w("you haven't registered a JobCreator with addJobCreator(), it's likely that your job never will be executed");
         }
+    }
 
+    /**
+     * @param replace Whether the request replaces the stored request with the same ID. Then no other
+     * request is canceled and the platform job with this ID is overwritten when it's planted.
+     * @return Whether the request needs to be planted, it doesn't if it's already scheduled, if
+     * it's waiting in the overflow queue or if it shares a multiplexed slot.
+     */
+    private boolean prepareSchedule(JobRequest request, boolean replace) {
         if (request.getScheduledAt() > 0) {
-            return;
+            return false;
         }
 
-        if (request.isUpdateCurrent()) {
-            cancelAllForTag(request.getTag());
-        }
+        if (!replace) {
+            if (request.isUpdateCurrent()) {
+                cancelAllForTag(request.getTag());
+            }
 
-        JobProxy.Common.cleanUpOrphanedJob(mContext, request.getJobId());
+            JobProxy.Common.cleanUpOrphanedJob(mContext, request.getJobId());
+        }
 
         JobApi jobApi = request.getJobApi();
         boolean periodic = request.isPeriodic();
@@ -193,10 +400,53 @@ public final class JobManager {
 
         request.setScheduledAt(JobConfig.getClock().currentTimeMillis());
         request.setFlexSupport(flexSupport);
+        boolean plant = !mMultiplexer.onSchedule(request) && mOverflowQueue.offer(request);
         getJobStorage().put(request);
+        JobMetrics.onJobScheduled(request);
+        return plant;
+    }
+
+    /**
+     * Plants the most urgent requests of the overflow queue as long as there are free slots.
+     */
+    /*package*/ void promoteOverflow() {
+        // called after each job, don't wait for the lock if the queue is known to be empty
+        if (!mOverflowQueue.mayHaveOverflow()) {
+            return;
+        }
+
+        synchronized (this) {
+            try {
+                SparseBooleanArray skipped = new SparseBooleanArray();
+                JobRequest request;
+                while ((request = mOverflowQueue.poll()) != null) {
+                    if (skipped.get(request.getJobId())) {
+                        // the row couldn't be updated, don't try it again and again
+                        break;
+                    }
+
+                    JobRequest promoted = request.createPromoted();
+                    if (!getJobStorage().replaceOverflow(promoted)) {
+                        // started or canceled in the meantime, continue with the next request
+                        skipped.put(request.getJobId(), true);
+                        continue;
+                    }
+
+                    CAT.i("Promote %s from the overflow queue", promoted);
+                    plant(promoted);
+                }
+            } catch (Exception e) {
+                // the remaining requests are promoted after the next job finished
+                CAT.e(e);
+            }
+        }
+    }
+
+    private void plant(JobRequest request) {
+        JobApi jobApi = request.getJobApi();
 
         try {
-            scheduleWithApi(request, jobApi, periodic, flexSupport);
+            scheduleWithApi(request, jobApi);
             return;
         } catch (JobProxyIllegalStateException e) {
             // try again below, the other cases stop
@@ -208,10 +458,11 @@ public final class JobManager {
         }
 
         try {
-            // try to reload the proxy
+            // try to reload the proxy and check the supported APIs again
             jobApi.invalidateCachedProxy();
+            JobApiSelector.invalidate();
 
-            scheduleWithApi(request, jobApi, periodic, flexSupport);
+            scheduleWithApi(request, jobApi);
             return;
         } catch (Exception e) {
             if (jobApi == JobApi.V_14 || jobApi == JobApi.V_19) {
@@ -219,12 +470,12 @@ public final class JobManager {
                 getJobStorage().remove(request);
                 throw e;
             } else {
-                jobApi = JobApi.V_19.isSupported(mContext) ? JobApi.V_19 : JobApi.V_14; // try one last time
+                jobApi = JobApiSelector.isSupported(mContext, JobApi.V_19) ? JobApi.V_19 : JobApi.V_14; // try one last time
             }
         }
 
         try {
-            scheduleWithApi(request, jobApi, periodic, flexSupport);
+            scheduleWithApi(request, jobApi);
         } catch (Exception e) {
             // if something fails, don't keep the job in the database, it would be rescheduled later
             getJobStorage().remove(request);
@@ -232,17 +483,9 @@ public final class JobManager {
         }
     }
 
-    private void scheduleWithApi(JobRequest request, JobApi jobApi, boolean periodic, boolean flexSupport) {
-        JobProxy proxy = getJobProxy(jobApi);
-        if (periodic) {
-            if (flexSupport) {
-                proxy.plantPeriodicFlexSupport(request);
-            } else {
-                proxy.plantPeriodic(request);
-            }
-        } else {
-            proxy.plantOneOff(request);
-        }
+    private void scheduleWithApi(JobRequest request, JobApi jobApi) {
+        JobProxy.Common.plant(getJobProxy(jobApi), request);
+        JobMetrics.onJobPlanted(request, jobApi);
     }
 
     /**
@@ -250,7 +493,8 @@ public final class JobManager {
      * @return The {@link JobRequest} if it's pending or {@code null} otherwise.
      */
     public JobRequest getJobRequest(int jobId) {
-        JobRequest request = getJobRequest(jobId, false);
+        // parked requests are started in the database, but they're still waiting for their requirements
+        JobRequest request = getJobRequest(jobId, mConstraintWatcher.isParked(jobId));
         if (request != null && request.isTransient() && !request.getJobApi().getProxy(mContext).isPlatformJobScheduled(request)) {
             getJobStorage().remove(request);
             return null;
@@ -276,7 +520,17 @@ public final class JobManager {
      */
     @NonNull
     public Set<JobRequest> getAllJobRequests() {
-        return getAllJobRequests(null, false, true);
+        Set<JobRequest> requests = getAllJobRequests(null, false, true);
+        addParkedJobRequests(null, requests);
+
+        // slots are an implementation detail of the multiplexer
+        Iterator<JobRequest> iterator = requests.iterator();
+        while (iterator.hasNext()) {
+            if (JobMultiplexer.isSlot(iterator.next())) {
+                iterator.remove();
+            }
+        }
+        return requests;
     }
 
     /**
@@ -286,7 +540,19 @@ public final class JobManager {
      * direct effects to the actual backing store.
      */
     public Set<JobRequest> getAllJobRequestsForTag(@NonNull String tag) {
-        return getAllJobRequests(tag, false, true);
+        Set<JobRequest> requests = getAllJobRequests(tag, false, true);
+        addParkedJobRequests(tag, requests);
+        return requests;
+    }
+
+    private void addParkedJobRequests(@Nullable String tag, @NonNull Set<JobRequest> requests) {
+        // parked requests are started in the database, but they're still waiting for their requirements
+        for (int jobId : mConstraintWatcher.getParkedJobIds()) {
+            JobRequest request = getJobStorage().get(jobId);
+            if (request != null && (tag == null || tag.equals(request.getTag()))) {
+                requests.add(request);
+            }
+        }
     }
 
     /*package*/ Set<JobRequest> getAllJobRequests(@Nullable String tag, boolean includeStarted, boolean cleanUpTransient) {
@@ -353,10 +619,11 @@ public final class JobManager {
 
     /**
      * Finished jobs are kept in memory until the garbage collector cleans them up. This method returns
-     * the results of all finished jobs even after they have been cleaned up. However, neither finished jobs
-     * nor their results are restored after the app has been relaunched.
+     * the results of finished jobs even after they have been cleaned up. Only the results of the last
+     * 200 finished jobs are kept, older results are dropped. Neither finished jobs nor their results
+     * are restored after the app has been relaunched.
      *
-     * @return The results of all finished jobs. They key is the corresponding job ID.
+     * @return The results of the recently finished jobs. They key is the corresponding job ID.
      */
     @NonNull
     public SparseArray<Job.Result> getAllJobResults() {
@@ -373,6 +640,9 @@ public final class JobManager {
         // call both methods
         boolean result = cancelInner(getJobRequest(jobId, true)) | cancelInner(getJob(jobId));
         JobProxy.Common.cleanUpOrphanedJob(mContext, jobId); // do this as well, just in case
+        if (result) {
+            promoteOverflow();
+        }
         return result;
     }
 
@@ -395,9 +665,20 @@ public final class JobManager {
         return cancelAllInner(tag);
     }
 
+    /**
+     * Removes a slot of the {@link JobMultiplexer} and its platform job. Unlike {@link #cancel(int)}
+     * a running slot job isn't interrupted and no overflow is promoted, the multiplexer plants a
+     * new slot for the remaining members itself.
+     */
+    /*package*/ void cancelSlot(@NonNull JobRequest slot) {
+        cancelInner(slot);
+    }
+
     private boolean cancelInner(@Nullable JobRequest request) {
         if (request != null) {
             CAT.i("Found pending job %s, canceling", request);
+            mConstraintWatcher.unpark(request.getJobId());
+            mMultiplexer.onCanceled(request);
             getJobProxy(request.getJobApi()).cancel(request.getJobId());
             getJobStorage().remove(request);
             request.setScheduledAt(0); // reset value
@@ -420,10 +701,37 @@ public final class JobManager {
         int canceled = 0;
 
         Set<JobRequest> requests = getAllJobRequests(tag, true, false);
-        for (JobRequest request : requests) {
-            if (cancelInner(request)) {
-                canceled++;
+        if (!requests.isEmpty()) {
+            CAT.i("Found %d pending jobs with tag %s, canceling", requests.size(), tag);
+
+            Map<JobApi, List<JobRequest>> batches = new EnumMap<>(JobApi.class);
+            for (JobRequest request : requests) {
+                mConstraintWatcher.unpark(request.getJobId());
+
+                List<JobRequest> batch = batches.get(request.getJobApi());
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                    batches.put(request.getJobApi(), batch);
+                }
+                batch.add(request);
             }
+            mMultiplexer.onCanceled(requests);
+
+            for (Map.Entry<JobApi, List<JobRequest>> entry : batches.entrySet()) {
+                List<JobRequest> batch = entry.getValue();
+                int[] jobIds = new int[batch.size()];
+                for (int i = 0; i < jobIds.length; i++) {
+                    jobIds[i] = batch.get(i).getJobId();
+                }
+                getJobProxy(entry.getKey()).cancelBatch(jobIds);
+            }
+
+            // the same rows, which were loaded above, the lock of this class keeps new requests out
+            getJobStorage().removeAll(tag, requests);
+            for (JobRequest request : requests) {
+                request.setScheduledAt(0); // reset value
+            }
+            canceled += requests.size();
         }
 
         //noinspection ConstantConditions
@@ -433,6 +741,10 @@ public final class JobManager {
                 canceled++;
             }
         }
+
+        if (canceled > 0) {
+            promoteOverflow();
+        }
         return canceled;
     }
 
@@ -475,7 +787,30 @@ public final class JobManager {
         return mJobExecutor;
     }
 
+    /*package*/ DeviceStateCache getDeviceStateCache() {
+        return mDeviceStateCache;
+    }
+
+    /*package*/ ConstraintWatcher getConstraintWatcher() {
+        return mConstraintWatcher;
+    }
+
+    /*package*/ JobMultiplexer getMultiplexer() {
+        return mMultiplexer;
+    }
+
+    /*package*/ JobAlarmQueue getAlarmQueue() {
+        return mAlarmQueue;
+    }
+
     /*package*/ JobCreatorHolder getJobCreatorHolder() {
+        if (mJobCreatorLatch.getCount() > 0) {
+            try {
+                mJobCreatorLatch.await(20, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
         return mJobCreatorHolder;
     }
 
@@ -483,12 +818,42 @@ public final class JobManager {
         return mContext;
     }
 
+    /**
+     * @return The timings of each phase while creating this instance. Phases running in the background
+     * might not have finished, yet.
+     * @see JobConfig#setStartupProfileEnabled(boolean)
+     */
+    @NonNull
+    public JobStartupProfile getStartupProfile() {
+        return mStartupProfile;
+    }
+
+    /**
+     * @return The latencies recorded since tracking was enabled or since the last call of
+     * {@link #resetLatencyStats()}. Empty, if tracking is disabled.
+     * @see JobConfig#setLatencyTrackingEnabled(boolean)
+     */
+    @NonNull
+    public JobLatencyStats getLatencyStats() {
+        return JobLatencyTracker.INSTANCE.snapshot();
+    }
+
+    /**
+     * Drops all recorded latencies.
+     */
+    public void resetLatencyStats() {
+        JobLatencyTracker.INSTANCE.reset();
+    }
+
     /*package*/ void destroy() {
         synchronized (JobManager.class) {
             instance = null;
+            mConstraintWatcher.clear();
+            mDeviceStateCache.unregister();
             for (JobApi api : JobApi.values()) {
                 api.invalidateCachedProxy();
             }
+            JobApiSelector.unregisterReceiver();
         }
     }
 
@@ -496,7 +861,16 @@ public final class JobManager {
         return api.getProxy(mContext);
     }
 
-    private static void sendAddJobCreatorIntent(@NonNull Context context) {
+    private static void checkPermissions(@NonNull Context context) {
+        if (!JobUtil.hasWakeLockPermission(context)) {
+            CAT.w("No wake lock permission");
+        }
+        if (!JobUtil.hasBootPermission(context)) {
+            CAT.w("No boot permission");
+        }
+    }
+
+    private static void sendAddJobCreatorIntent(@NonNull Context context, @NonNull JobManager manager) {
         final String myPackage = context.getPackageName();
 
         Intent intent = new Intent(JobCreator.ACTION_ADD_JOB_CREATOR);
@@ -522,7 +896,7 @@ public final class JobManager {
                 JobCreator.AddJobCreatorReceiver receiver =
                         (JobCreator.AddJobCreatorReceiver) Class.forName(activityInfo.name).newInstance();
 
-                receiver.addJobCreator(context, instance);
+                receiver.addJobCreator(context, manager);
             } catch (Exception ignored) {
             }
         }
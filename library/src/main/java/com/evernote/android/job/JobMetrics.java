@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import com.evernote.android.job.util.JobCat;
+
+import java.util.Arrays;
+
+/**
+ * Dispatches events to all registered {@link JobMetricsListener}s. Without listeners each call
+ * returns immediately, callers don't need to check {@link #isEnabled()} unless they have to measure
+ * something first.
+ *
+ * @author rwondratschek
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+/*package*/ final class JobMetrics {
+
+    private static final JobCat CAT = new JobCat("JobMetrics");
+
+    private static volatile JobMetricsListener[] listeners = new JobMetricsListener[0]; // copy on write, avoids synchronization while dispatching
+
+    public static synchronized boolean addListener(@NonNull JobMetricsListener listener) {
+        for (JobMetricsListener existing : listeners) {
+            if (existing.equals(listener)) {
+                return false;
+            }
+        }
+
+        JobMetricsListener[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+        copy[listeners.length] = listener;
+        listeners = copy;
+        return true;
+    }
+
+    public static synchronized void removeListener(@NonNull JobMetricsListener listener) {
+        JobMetricsListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].equals(listener)) {
+                JobMetricsListener[] copy = new JobMetricsListener[current.length - 1];
+                System.arraycopy(current, 0, copy, 0, i);
+                System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+                listeners = copy;
+                return;
+            }
+        }
+    }
+
+    public static synchronized void clearListeners() {
+        listeners = new JobMetricsListener[0];
+    }
+
+    public static boolean isEnabled() {
+        return listeners.length > 0;
+    }
+
+    public static void onJobScheduled(@NonNull JobRequest request) {
+        JobMetricsListener[] current = listeners;
+        for (JobMetricsListener listener : current) {
+            try {
+                listener.onJobScheduled(request.getJobId(), request.getTag(), request.getScheduledAt());
+            } catch (RuntimeException e) {
+                CAT.e(e);
+            }
+        }
+    }
+
+    public static void onJobPlanted(@NonNull JobRequest request, @NonNull JobApi api) {
+        JobMetricsListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+
+        long timestamp = JobConfig.getClock().currentTimeMillis();
+        for (JobMetricsListener listener : current) {
+            try {
+                listener.onJobPlanted(request.getJobId(), request.getTag(), api, timestamp);
+            } catch (RuntimeException e) {
+                CAT.e(e);
+            }
+        }
+    }
+
+    public static void onJobDispatched(@NonNull JobRequest request) {
+        JobMetricsListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+
+        long timestamp = JobConfig.getClock().currentTimeMillis();
+        for (JobMetricsListener listener : current) {
+            try {
+                listener.onJobDispatched(request.getJobId(), request.getTag(), timestamp, timestamp - request.getScheduledAt());
+            } catch (RuntimeException e) {
+                CAT.e(e);
+            }
+        }
+    }
+
+    public static void onJobStarted(@NonNull JobRequest request) {
+        JobMetricsListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+
+        long timestamp = JobConfig.getClock().currentTimeMillis();
+        for (JobMetricsListener listener : current) {
+            try {
+                listener.onJobStarted(request.getJobId(), request.getTag(), timestamp);
+            } catch (RuntimeException e) {
+                CAT.e(e);
+            }
+        }
+    }
+
+    public static void onJobFinished(@NonNull JobRequest request, @NonNull Job.Result result, long durationNanos) {
+        JobMetricsListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+
+        long timestamp = JobConfig.getClock().currentTimeMillis();
+        for (JobMetricsListener listener : current) {
+            try {
+                listener.onJobFinished(request.getJobId(), request.getTag(), result, timestamp, durationNanos);
+            } catch (RuntimeException e) {
+                CAT.e(e);
+            }
+        }
+    }
+
+    public static void onJobRequirementsMissed(@NonNull JobRequest request) {
+        JobMetricsListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+
+        long timestamp = JobConfig.getClock().currentTimeMillis();
+        for (JobMetricsListener listener : current) {
+            try {
+                listener.onJobRequirementsMissed(request.getJobId(), request.getTag(), timestamp);
+            } catch (RuntimeException e) {
+                CAT.e(e);
+            }
+        }
+    }
+
+    public static void onJobRescheduled(@NonNull JobRequest request, int newJobId) {
+        JobMetricsListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+
+        long timestamp = JobConfig.getClock().currentTimeMillis();
+        for (JobMetricsListener listener : current) {
+            try {
+                listener.onJobRescheduled(request.getJobId(), newJobId, request.getTag(), timestamp);
+            } catch (RuntimeException e) {
+                CAT.e(e);
+            }
+        }
+    }
+
+    public static void onStorageOperation(@NonNull JobMetricsListener.StorageOperation operation, long durationNanos) {
+        JobMetricsListener[] current = listeners;
+        for (JobMetricsListener listener : current) {
+            try {
+                listener.onStorageOperation(operation, durationNanos);
+            } catch (RuntimeException e) {
+                CAT.e(e);
+            }
+        }
+    }
+
+    private JobMetrics() {
+        // no op
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives structured events about the lifecycle of jobs, e.g. to build latency histograms. All
+ * timestamps are in milliseconds and come from {@link JobConfig#getClock()}, durations are
+ * measured with {@link System#nanoTime()}.
+ *
+ * <br>
+ * <br>
+ *
+ * Callbacks are invoked synchronously on the thread doing the work, often a background thread and
+ * sometimes the thread scheduling the job. Implementations must be thread-safe and return quickly.
+ * Use {@link Adapter} to override only some events.
+ *
+ * @author rwondratschek
+ * @see JobConfig#addMetricsListener(JobMetricsListener)
+ */
+public interface JobMetricsListener {
+
+    /**
+     * The request was stored and is about to be passed to the platform.
+     *
+     * @param jobId The ID of the request.
+     * @param tag The tag of the request.
+     * @param timestamp The time the request was scheduled.
+     */
+    void onJobScheduled(int jobId, @NonNull String tag, long timestamp);
+
+    /**
+     * The request was passed to the platform with the given API.
+     *
+     * @param jobId The ID of the request.
+     * @param tag The tag of the request.
+     * @param api The API used to run the job.
+     * @param timestamp The time the request was handed over.
+     */
+    void onJobPlanted(int jobId, @NonNull String tag, @NonNull JobApi api, long timestamp);
+
+    /**
+     * The platform asked to run the request.
+     *
+     * @param jobId The ID of the request.
+     * @param tag The tag of the request.
+     * @param timestamp The time the platform started the job.
+     * @param scheduleDelayMs The time between scheduling the request and this event.
+     */
+    void onJobDispatched(int jobId, @NonNull String tag, long timestamp, long scheduleDelayMs);
+
+    /**
+     * The {@link Job} was created and is about to run on a background thread.
+     *
+     * @param jobId The ID of the request.
+     * @param tag The tag of the request.
+     * @param timestamp The time the job started.
+     */
+    void onJobStarted(int jobId, @NonNull String tag, long timestamp);
+
+    /**
+     * The {@link Job} finished.
+     *
+     * @param jobId The ID of the request.
+     * @param tag The tag of the request.
+     * @param result The result of the job.
+     * @param timestamp The time the job finished.
+     * @param durationNanos How long the job was running.
+     */
+    void onJobFinished(int jobId, @NonNull String tag, @NonNull Job.Result result, long timestamp, long durationNanos);
+
+    /**
+     * The requirements of the request weren't met when the job was about to run, so
+     * {@link Job#onRunJob(Job.Params)} wasn't called.
+     *
+     * @param jobId The ID of the request.
+     * @param tag The tag of the request.
+     * @param timestamp The time the requirements were checked.
+     */
+    void onJobRequirementsMissed(int jobId, @NonNull String tag, long timestamp);
+
+    /**
+     * The request was rescheduled after the job returned {@link Job.Result#RESCHEDULE} or its
+     * requirements weren't met.
+     *
+     * @param jobId The ID of the finished request.
+     * @param newJobId The ID of the new request.
+     * @param tag The tag of the request.
+     * @param timestamp The time the request was rescheduled.
+     */
+    void onJobRescheduled(int jobId, int newJobId, @NonNull String tag, long timestamp);
+
+    /**
+     * An operation on the internal database finished.
+     *
+     * @param operation The kind of the operation.
+     * @param durationNanos How long the operation took.
+     */
+    void onStorageOperation(@NonNull StorageOperation operation, long durationNanos);
+
+    /**
+     * Operations on the internal database.
+     */
+    enum StorageOperation {
+        INSERT,
+        UPDATE,
+        DELETE,
+        QUERY
+    }
+
+    /**
+     * Implements all callbacks without doing anything.
+     */
+    abstract class Adapter implements JobMetricsListener {
+        @Override
+        public void onJobScheduled(int jobId, @NonNull String tag, long timestamp) {
+            // override me
+        }
+
+        @Override
+        public void onJobPlanted(int jobId, @NonNull String tag, @NonNull JobApi api, long timestamp) {
+            // override me
+        }
+
+        @Override
+        public void onJobDispatched(int jobId, @NonNull String tag, long timestamp, long scheduleDelayMs) {
+            // override me
+        }
+
+        @Override
+        public void onJobStarted(int jobId, @NonNull String tag, long timestamp) {
+            // override me
+        }
+
+        @Override
+        public void onJobFinished(int jobId, @NonNull String tag, @NonNull Job.Result result, long timestamp, long durationNanos) {
+            // override me
+        }
+
+        @Override
+        public void onJobRequirementsMissed(int jobId, @NonNull String tag, long timestamp) {
+            // override me
+        }
+
+        @Override
+        public void onJobRescheduled(int jobId, int newJobId, @NonNull String tag, long timestamp) {
+            // override me
+        }
+
+        @Override
+        public void onStorageOperation(@NonNull StorageOperation operation, long durationNanos) {
+            // override me
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import com.evernote.android.job.util.JobCat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Plants a single platform job, a slot, for each set of requirements instead of one platform job for
+ * each one-off request. The slot is planted for the earliest execution window of its members. When
+ * it runs, all members whose window has started are executed and the slot is planted again for the
+ * remaining members.
+ *
+ * <br>
+ * <br>
+ *
+ * Members are stored in the database with the multiplexed flag and are kept in a heap ordered by the
+ * start of their window. The slots are regular requests with a reserved tag, they're rescheduled
+ * like any other request after a reboot.
+ *
+ * @author rwondratschek
+ * @see JobConfig#setMultiplexingEnabled(boolean)
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+/*package*/ final class JobMultiplexer {
+
+    private static final JobCat CAT = new JobCat("JobMultiplexer");
+
+    /*package*/ static final String SLOT_TAG_PREFIX = "android-job-multiplex-";
+
+    // the slot job keeps the platform job alive while its members run, but not longer than its own wake lock lasts
+    private static final long MAX_WAIT = TimeUnit.MINUTES.toMillis(3);
+
+    private static final int FLAG_CHARGING = 1 << 3;
+    private static final int FLAG_DEVICE_IDLE = 1 << 4;
+    private static final int FLAG_BATTERY_NOT_LOW = 1 << 5;
+    private static final int FLAG_STORAGE_NOT_LOW = 1 << 6;
+    private static final int FLAG_REQUIREMENTS_ENFORCED = 1 << 7;
+
+    private static final Comparator<JobRequest> START_COMPARATOR = new Comparator<JobRequest>() {
+        @Override
+        public int compare(JobRequest lhs, JobRequest rhs) {
+            return Long.compare(getStartAt(lhs), getStartAt(rhs));
+        }
+    };
+
+    private final JobManager mJobManager;
+
+    // requirements -> members ordered by the start of their window
+    private final SparseArray<PriorityQueue<JobRequest>> mMembers;
+    // requirements -> planted slot
+    private final SparseArray<JobRequest> mSlots;
+
+    private boolean mLoaded;
+
+    public JobMultiplexer(@NonNull JobManager jobManager) {
+        mJobManager = jobManager;
+        mMembers = new SparseArray<>();
+        mSlots = new SparseArray<>();
+    }
+
+    /**
+     * Must be called after the request was prepared, but before it's stored. All methods lock the
+     * {@link JobManager}, which calls into this class while holding its own lock.
+     *
+     * @return Whether the request joined a slot. If so, it must not be planted.
+     */
+    public boolean onSchedule(@NonNull JobRequest request) {
+        synchronized (mJobManager) {
+            ensureLoaded();
+
+            request.setMultiplexed(false);
+
+            if (isSlot(request)) {
+                mSlots.put(getKey(request), request);
+                return false;
+            }
+
+            if (!JobConfig.isMultiplexingEnabled() || request.isPeriodic() || request.isExact() || request.isTransient()) {
+                return false;
+            }
+
+            request.setMultiplexed(true);
+
+            int key = getKey(request);
+            getMembers(key).add(request);
+            CAT.d("Multiplex %s with %d other requests", request, getMembers(key).size() - 1);
+
+            arm(key);
+            return true;
+        }
+    }
+
+    public void onCanceled(@NonNull JobRequest request) {
+        synchronized (mJobManager) {
+            if (!mLoaded) {
+                return;
+            }
+
+            int key = getKey(request);
+            if (isSlot(request)) {
+                JobRequest slot = mSlots.get(key);
+                if (slot != null && slot.getJobId() == request.getJobId()) {
+                    mSlots.remove(key);
+                }
+
+            } else if (request.isMultiplexed()) {
+                // the slot stays planted, if it runs early, then it's planted again for the remaining members
+                PriorityQueue<JobRequest> members = mMembers.get(key);
+                if (members != null) {
+                    members.remove(request);
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #onCanceled(JobRequest)}, but removes the members of each heap in a single pass.
+     */
+    public void onCanceled(@NonNull Collection<JobRequest> requests) {
+        synchronized (mJobManager) {
+            if (!mLoaded) {
+                return;
+            }
+
+            SparseBooleanArray canceledMembers = new SparseBooleanArray();
+            for (JobRequest request : requests) {
+                if (isSlot(request)) {
+                    onCanceled(request);
+                } else if (request.isMultiplexed()) {
+                    canceledMembers.put(request.getJobId(), true);
+                }
+            }
+
+            if (canceledMembers.size() == 0) {
+                return;
+            }
+
+            for (int i = 0; i < mMembers.size(); i++) {
+                Iterator<JobRequest> iterator = mMembers.valueAt(i).iterator();
+                while (iterator.hasNext()) {
+                    if (canceledMembers.get(iterator.next().getJobId())) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the members of the slot, whose window has started, and plants the slot again for the
+     * remaining members.
+     *
+     * @return The members, which need to run now.
+     */
+    @NonNull
+    /*package*/ List<JobRequest> pollDue(@NonNull JobRequest slotRequest) {
+        synchronized (mJobManager) {
+            ensureLoaded();
+
+            int key = getKey(slotRequest);
+            JobRequest slot = mSlots.get(key);
+            if (slot != null && slot.getJobId() == slotRequest.getJobId()) {
+                mSlots.remove(key);
+            }
+
+            List<JobRequest> due = new ArrayList<>();
+            PriorityQueue<JobRequest> members = mMembers.get(key);
+            if (members != null) {
+                long now = JobConfig.getClock().currentTimeMillis();
+                while (!members.isEmpty() && getStartAt(members.peek()) <= now) {
+                    due.add(members.poll());
+                }
+            }
+
+            arm(key);
+            return due;
+        }
+    }
+
+    /**
+     * Plants the slots again, e.g. after a reboot. Members, whose window passed while the process
+     * was dead, are executed by the next slot.
+     */
+    public void rearm() {
+        synchronized (mJobManager) {
+            ensureLoaded();
+
+            int[] keys = new int[mMembers.size() + mSlots.size()];
+            for (int i = 0; i < mMembers.size(); i++) {
+                keys[i] = mMembers.keyAt(i);
+            }
+            for (int i = 0; i < mSlots.size(); i++) {
+                keys[mMembers.size() + i] = mSlots.keyAt(i);
+            }
+
+            for (int key : keys) {
+                arm(key);
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+
+        for (JobRequest request : mJobManager.getAllJobRequests(null, false, false)) {
+            if (isSlot(request)) {
+                mSlots.put(getKey(request), request);
+            } else if (request.isMultiplexed()) {
+                getMembers(getKey(request)).add(request);
+            }
+        }
+        mLoaded = true;
+    }
+
+    private void arm(int key) {
+        JobRequest slot = mSlots.get(key);
+        PriorityQueue<JobRequest> members = mMembers.get(key);
+
+        if (members == null || members.isEmpty()) {
+            mMembers.remove(key);
+            if (slot != null) {
+                mSlots.remove(key);
+                mJobManager.cancelSlot(slot);
+            }
+            return;
+        }
+
+        long startAt = getStartAt(members.peek());
+        long endAt = Long.MAX_VALUE;
+        JobRequest template = null;
+        for (JobRequest member : members) {
+            if (getEndAt(member) < endAt) {
+                endAt = getEndAt(member);
+                template = member;
+            }
+        }
+
+        if (slot != null && getEndAt(slot) <= endAt) {
+            // runs early enough for all members
+            return;
+        }
+
+        if (slot != null) {
+            mSlots.remove(key);
+            mJobManager.cancelSlot(slot);
+        }
+
+        long now = JobConfig.getClock().currentTimeMillis();
+        long startMs = Math.max(1L, startAt - now);
+        long endMs = Math.max(startMs, endAt - now);
+
+        //noinspection ConstantConditions
+        JobRequest newSlot = new JobRequest.Builder(SLOT_TAG_PREFIX + key)
+                .setExecutionWindow(startMs, endMs)
+                .setRequiredNetworkType(template.requiredNetworkType())
+                .setRequiresCharging(template.requiresCharging())
+                .setRequiresDeviceIdle(template.requiresDeviceIdle())
+                .setRequiresBatteryNotLow(template.requiresBatteryNotLow())
+                .setRequiresStorageNotLow(template.requiresStorageNotLow())
+                .setRequirementsEnforced(template.requirementsEnforced())
+                .build();
+
+        // registers the slot through onSchedule()
+        mJobManager.schedule(newSlot);
+        CAT.d("Planted slot %s for %d requests", newSlot, members.size());
+    }
+
+    private PriorityQueue<JobRequest> getMembers(int key) {
+        PriorityQueue<JobRequest> members = mMembers.get(key);
+        if (members == null) {
+            members = new PriorityQueue<>(11, START_COMPARATOR);
+            mMembers.put(key, members);
+        }
+        return members;
+    }
+
+    /*package*/ static boolean isSlot(@NonNull JobRequest request) {
+        return isSlotTag(request.getTag());
+    }
+
+    /*package*/ static boolean isSlotTag(@Nullable String tag) {
+        return tag != null && tag.startsWith(SLOT_TAG_PREFIX);
+    }
+
+    private static int getKey(@NonNull JobRequest request) {
+        int key = request.requiredNetworkType().ordinal();
+        if (request.requiresCharging()) {
+            key |= FLAG_CHARGING;
+        }
+        if (request.requiresDeviceIdle()) {
+            key |= FLAG_DEVICE_IDLE;
+        }
+        if (request.requiresBatteryNotLow()) {
+            key |= FLAG_BATTERY_NOT_LOW;
+        }
+        if (request.requiresStorageNotLow()) {
+            key |= FLAG_STORAGE_NOT_LOW;
+        }
+        if (request.requirementsEnforced()) {
+            key |= FLAG_REQUIREMENTS_ENFORCED;
+        }
+        return key;
+    }
+
+    private static long getStartAt(@NonNull JobRequest request) {
+        return request.getScheduledAt() + JobProxy.Common.getStartMs(request);
+    }
+
+    private static long getEndAt(@NonNull JobRequest request) {
+        return request.getScheduledAt() + JobProxy.Common.getEndMs(request);
+    }
+
+    /**
+     * The job of a slot. It hands all due members to the executor, members run in parallel like jobs
+     * with their own platform job. The slot job waits until all members finished, otherwise nothing
+     * would keep the process alive on Android O and above.
+     */
+    /*package*/ static final class SlotJob extends Job {
+
+        @NonNull
+        @Override
+        protected Result onRunJob(@NonNull Params params) {
+            JobManager manager = JobManager.instance();
+            List<JobRequest> due = manager.getMultiplexer().pollDue(params.getRequest());
+            CAT.d("Slot %s runs %d requests", params.getTag(), due.size());
+
+            List<Future<?>> futures = new ArrayList<>(due.size());
+            for (JobRequest request : due) {
+                futures.add(run(getContext(), request.getJobId()));
+            }
+
+            long deadline = System.currentTimeMillis() + MAX_WAIT;
+            for (Future<?> future : futures) {
+                try {
+                    future.get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                } catch (ExecutionException e) {
+                    CAT.e(e);
+                } catch (TimeoutException e) {
+                    CAT.w("Slot %s stopped waiting for its requests after %d ms", params.getTag(), MAX_WAIT);
+                    break;
+                } catch (InterruptedException e) {
+                    CAT.w("Slot %s was interrupted while waiting for its requests", params.getTag());
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return Result.SUCCESS;
+        }
+
+        private static Future<?> run(@NonNull final Context context, final int jobId) {
+            return JobConfig.getExecutorService().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        JobProxy.Common common = new JobProxy.Common(context, CAT, jobId);
+                        JobRequest request = common.getPendingRequest(false, true);
+                        if (request != null) {
+                            common.executeJobRequest(request, null);
+                        }
+                    } catch (Exception e) {
+                        CAT.e(e, "Could not run multiplexed request %d", jobId);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import android.content.ContentValues;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.evernote.android.job.util.JobCat;
+
+/**
+ * The {@code JobScheduler} throws an exception if an app schedules more than 100 jobs. This queue
+ * keeps only the most urgent requests planted with the platform. All other requests are stored
+ * in the database with the overflow flag and are planted once a slot becomes free, e.g. after a
+ * job finished or was canceled. The urgency of a request is its deadline, the end of the execution
+ * window or the end of the first interval for periodic requests.
+ *
+ * <br>
+ * <br>
+ *
+ * Transient requests are never put into the queue, because their extras only live in memory.
+ * Exact requests use the {@code AlarmManager} and aren't limited.
+ *
+ * @author rwondratschek
+ * @see JobConfig#setPlatformJobLimit(int)
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+/*package*/ final class JobOverflowQueue {
+
+    private static final JobCat CAT = new JobCat("JobOverflowQueue");
+
+    private final JobManager mJobManager;
+
+    // false if the queue was found empty, avoids database queries each time a job finished
+    private volatile boolean mMayHaveOverflow;
+
+    public JobOverflowQueue(@NonNull JobManager jobManager) {
+        mJobManager = jobManager;
+        mMayHaveOverflow = true;
+    }
+
+    /**
+     * Decides whether the request can be planted. If the limit is reached and the request is more urgent
+     * than a planted one, then the planted one is moved to the queue. Otherwise the request itself is
+     * marked as overflow. The caller must store the request afterwards.
+     *
+     * @return Whether the request should be planted with the platform.
+     */
+    public boolean offer(@NonNull JobRequest request) {
+        request.setOverflow(false);
+
+        if (!isLimited(request)) {
+            return true;
+        }
+
+        JobStorage storage = mJobManager.getJobStorage();
+        if (storage.countPlanted() < JobConfig.getPlatformJobLimit()) {
+            return true;
+        }
+
+        mMayHaveOverflow = true;
+
+        JobRequest leastUrgent = storage.getLeastUrgentPlanted();
+        if (leastUrgent != null && leastUrgent.getJobId() != request.getJobId() && getDeadline(leastUrgent) > getDeadline(request)) {
+            demote(leastUrgent);
+            return true;
+        }
+
+        request.setOverflow(true);
+        CAT.i("Platform job limit reached, %s waits in the overflow queue", request);
+        return false;
+    }
+
+    /**
+     * @return Whether the queue may contain requests. If not, then {@link #poll()} would return
+     * {@code null} without a query.
+     */
+    public boolean mayHaveOverflow() {
+        return mMayHaveOverflow;
+    }
+
+    /**
+     * @return The most urgent request of the queue if a slot is free, otherwise {@code null}.
+     * The caller must plant it.
+     */
+    @Nullable
+    public JobRequest poll() {
+        if (!mMayHaveOverflow) {
+            return null;
+        }
+
+        JobStorage storage = mJobManager.getJobStorage();
+        if (isLimited(JobApi.getDefault(mJobManager.getContext())) && storage.countPlanted() >= JobConfig.getPlatformJobLimit()) {
+            return null;
+        }
+
+        JobRequest request = storage.getMostUrgentOverflow();
+        if (request == null) {
+            mMayHaveOverflow = false;
+        }
+        return request;
+    }
+
+    private void demote(JobRequest request) {
+        CAT.i("Platform job limit reached, move %s to the overflow queue", request);
+
+        mJobManager.getJobProxy(request.getJobApi()).cancel(request.getJobId());
+
+        request.setOverflow(true);
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(JobStorage.COLUMN_OVERFLOW, true);
+        mJobManager.getJobStorage().update(request, contentValues);
+    }
+
+    private static boolean isLimited(@NonNull JobRequest request) {
+        return !request.isTransient() && isLimited(request.getJobApi());
+    }
+
+    private static boolean isLimited(@NonNull JobApi api) {
+        if (JobConfig.getPlatformJobLimit() <= 0) {
+            return false;
+        }
+        switch (api) {
+            case V_26:
+            case V_24:
+            case V_21:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /*package*/ static long getDeadline(@NonNull JobRequest request) {
+        return request.getScheduledAt() + (request.isPeriodic() ? request.getIntervalMs() : request.getEndMs());
+    }
+}
@@ -20,6 +20,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Looper;
+import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
@@ -27,6 +28,7 @@ import androidx.annotation.RestrictTo;
 import com.evernote.android.job.util.JobCat;
 import com.evernote.android.job.util.JobUtil;
 
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -45,8 +47,20 @@ public interface JobProxy {
 
     void plantPeriodicFlexSupport(JobRequest request);
 
+    /**
+     * Plants all requests at once. Proxies can share work between the requests, e.g. permission
+     * checks, the others plant them one by one with {@link Common#plant(JobProxy, JobRequest)}.
+     */
+    void plantBatch(@NonNull List<JobRequest> requests);
+
     void cancel(int jobId);
 
+    /**
+     * Cancels all jobs at once. Like {@link #plantBatch(List)}, proxies can share work between the
+     * jobs, the others cancel them one by one.
+     */
+    void cancelBatch(@NonNull int[] jobIds);
+
     boolean isPlatformJobScheduled(JobRequest request);
 
     @SuppressWarnings("UnusedReturnValue")
@@ -77,6 +91,21 @@ public interface JobProxy {
             return condition ? result : Long.MAX_VALUE;
         }
 
+        /**
+         * Plants the request with the method matching its type.
+         */
+        public static void plant(@NonNull JobProxy proxy, @NonNull JobRequest request) {
+            if (request.isPeriodic()) {
+                if (request.isFlexSupport()) {
+                    proxy.plantPeriodicFlexSupport(request);
+                } else {
+                    proxy.plantPeriodic(request);
+                }
+            } else {
+                proxy.plantOneOff(request);
+            }
+        }
+
         public static long getStartMs(JobRequest request) {
             if (request.getFailureCount() > 0) {
                 return request.getBackoffOffset(false);
@@ -195,12 +224,7 @@ public interface JobProxy {
             }
         }
 
-        public void markStarting(@NonNull JobRequest request) {
-            mJobManager.getJobExecutor().markJobRequestStarting(request);
-        }
-
-        @NonNull
-        public Job.Result executeJobRequest(@NonNull JobRequest request, @Nullable Bundle transientExtras) {
+        private void logRunJob(@NonNull JobRequest request) {
             long waited = System.currentTimeMillis() - request.getScheduledAt();
             String timeWindow;
             if (request.isPeriodic()) {
@@ -213,11 +237,23 @@ public interface JobProxy {
                 timeWindow = "delay " + JobUtil.timeToString(getAverageDelayMs(request));
             }
 
+            mCat.d("Run job, %s, waited %s, %s", request, JobUtil.timeToString(waited), timeWindow);
+        }
+
+        public void markStarting(@NonNull JobRequest request) {
+            mJobManager.getJobExecutor().markJobRequestStarting(request);
+        }
+
+        @NonNull
+        public Job.Result executeJobRequest(@NonNull JobRequest request, @Nullable Bundle transientExtras) {
             if (Looper.myLooper() == Looper.getMainLooper()) {
                 mCat.w("Running JobRequest on a main thread, this could cause stutter or ANR in your app.");
             }
 
-            mCat.d("Run job, %s, waited %s, %s", request, JobUtil.timeToString(waited), timeWindow);
+            if (mCat.isLoggable(Log.DEBUG)) {
+                logRunJob(request);
+            }
+            JobMetrics.onJobDispatched(request);
             JobExecutor jobExecutor = mJobManager.getJobExecutor();
             Job job = null;
 
@@ -225,7 +261,8 @@ public interface JobProxy {
                 // create job first before setting it started, avoids a race condition while rescheduling jobs
                 job = mJobManager.getJobCreatorHolder().createJob(request.getTag());
 
-                if (!request.isPeriodic()) {
+                if (!request.isPeriodic() && !request.isStarted()) {
+                    // parked requests are already started
                     request.setStarted(true);
                 }
 
@@ -258,12 +295,17 @@ public interface JobProxy {
                     mJobManager.getJobStorage().remove(request);
 
                 } else if (!request.isPeriodic()) {
-                    mJobManager.getJobStorage().remove(request);
+                    if (!job.isParked()) {
+                        mJobManager.getJobStorage().remove(request);
+                    }
 
                 } else if (request.isFlexSupport() && !job.isDeleted()) {
                     mJobManager.getJobStorage().remove(request); // remove, we store the new job in JobManager.schedule()
                     request.reschedule(false, false);
                 }
+
+                // the platform released the slot of this job
+                mJobManager.promoteOverflow();
             }
         }
 
@@ -280,7 +322,7 @@ public interface JobProxy {
              * we make sure, that no job is left in the system.
              */
             for (JobApi jobApi : JobApi.values()) {
-                if (jobApi.isSupported(context)) {
+                if (JobApiSelector.isSupported(context, jobApi)) {
                     try {
                         jobApi.getProxy(context).cancel(jobId);
                     } catch (Exception ignored) {
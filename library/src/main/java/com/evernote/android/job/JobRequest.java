@@ -129,6 +129,10 @@ public final class JobRequest {
     private boolean mStarted;
     private boolean mFlexSupport;
     private long mLastRun;
+    private boolean mOverflow;
+    private boolean mMultiplexed;
+    private long mAlarmAt;
+    private long mAlarmStart;
 
     private JobRequest(Builder builder) {
         mBuilder = builder;
@@ -264,13 +268,12 @@ public final class JobRequest {
     }
 
     /**
-     * @return The extras for this job.
+     * @return The extras for this job. They're decoded with the first call of this method.
      */
     public PersistableBundleCompat getExtras() {
-        if (mBuilder.mExtras == null && !TextUtils.isEmpty(mBuilder.mExtrasXml)) {
-            mBuilder.mExtras = PersistableBundleCompat.fromXml(mBuilder.mExtrasXml);
+        synchronized (mBuilder) {
+            return mBuilder.decodeExtras();
         }
-        return mBuilder.mExtras;
     }
 
     /**
@@ -372,6 +375,53 @@ public final class JobRequest {
         mFlexSupport = flexSupport;
     }
 
+    /**
+     * @return Whether the request waits in the overflow queue and isn't planted with the platform.
+     * @see JobOverflowQueue
+     */
+    /*package*/ boolean isOverflow() {
+        return mOverflow;
+    }
+
+    /*package*/ void setOverflow(boolean overflow) {
+        mOverflow = overflow;
+    }
+
+    /**
+     * @return Whether the request isn't planted itself, but runs when the shared slot of its
+     * constraint class fires.
+     * @see JobMultiplexer
+     */
+    /*package*/ boolean isMultiplexed() {
+        return mMultiplexed;
+    }
+
+    /*package*/ void setMultiplexed(boolean multiplexed) {
+        mMultiplexed = multiplexed;
+    }
+
+    /**
+     * @return The time in milliseconds since epoch at which the alarm queue runs this request at the
+     * latest or {@code 0} if the request isn't in the queue.
+     * @see JobAlarmQueue
+     */
+    /*package*/ long getAlarmAt() {
+        return mAlarmAt;
+    }
+
+    /**
+     * @return The time in milliseconds since epoch from which on the alarm queue may run this request.
+     * @see JobAlarmQueue
+     */
+    /*package*/ long getAlarmStart() {
+        return mAlarmStart;
+    }
+
+    /*package*/ void setAlarmWindow(long alarmStart, long alarmAt) {
+        mAlarmStart = alarmStart;
+        mAlarmAt = alarmAt;
+    }
+
     /**
      * Returns the time the job did run the last time. This is only useful for periodic jobs, daily jobs
      * or jobs which were rescheduled. If the job didn't run, yet, then it returns 0.
@@ -478,9 +528,40 @@ public final class JobRequest {
         long scheduledAt = mScheduledAt;
 
         JobManager.instance().cancel(getJobId());
-        Builder builder = new Builder(this.mBuilder);
+        Builder builder = createBuilderWithRemainingWindow(scheduledAt);
         mStarted = false;
 
+        return builder;
+    }
+
+    /**
+     * Creates a copy for planting a request from the overflow queue. The copy keeps the ID, the
+     * statistics and the original deadline of this request.
+     */
+    /*package*/ JobRequest createPromoted() {
+        JobRequest request = createBuilderWithRemainingWindow(mScheduledAt).build();
+        request.mFailureCount = mFailureCount;
+        request.mLastRun = mLastRun;
+        request.mFlexSupport = mFlexSupport;
+        request.mScheduledAt = JobConfig.getClock().currentTimeMillis();
+        return request;
+    }
+
+    /**
+     * Creates a copy for planting this request again, e.g. after a reboot. Unlike {@link #cancelAndEdit()}
+     * the stored request isn't removed, the copy keeps the ID and the statistics and replaces the row
+     * once it's scheduled.
+     */
+    /*package*/ JobRequest createRescheduled() {
+        JobRequest request = createBuilderWithRemainingWindow(mScheduledAt).build();
+        request.mFailureCount = mFailureCount;
+        request.mLastRun = mLastRun;
+        return request;
+    }
+
+    private Builder createBuilderWithRemainingWindow(long scheduledAt) {
+        Builder builder = new Builder(this.mBuilder);
+
         if (!isPeriodic()) {
             long offset = JobConfig.getClock().currentTimeMillis() - scheduledAt;
             long minValue = 1L; // 1ms
@@ -536,6 +617,10 @@ public final class JobRequest {
         contentValues.put(JobStorage.COLUMN_STARTED, mStarted);
         contentValues.put(JobStorage.COLUMN_FLEX_SUPPORT, mFlexSupport);
         contentValues.put(JobStorage.COLUMN_LAST_RUN, mLastRun);
+        contentValues.put(JobStorage.COLUMN_OVERFLOW, mOverflow);
+        contentValues.put(JobStorage.COLUMN_MULTIPLEXED, mMultiplexed);
+        contentValues.put(JobStorage.COLUMN_ALARM_AT, mAlarmAt);
+        contentValues.put(JobStorage.COLUMN_ALARM_START, mAlarmStart);
         return contentValues;
     }
 
@@ -546,6 +631,10 @@ public final class JobRequest {
         request.mStarted = cursor.getInt(cursor.getColumnIndex(JobStorage.COLUMN_STARTED)) > 0;
         request.mFlexSupport = cursor.getInt(cursor.getColumnIndex(JobStorage.COLUMN_FLEX_SUPPORT)) > 0;
         request.mLastRun = cursor.getLong(cursor.getColumnIndex(JobStorage.COLUMN_LAST_RUN));
+        request.mOverflow = cursor.getInt(cursor.getColumnIndex(JobStorage.COLUMN_OVERFLOW)) > 0;
+        request.mMultiplexed = cursor.getInt(cursor.getColumnIndex(JobStorage.COLUMN_MULTIPLEXED)) > 0;
+        request.mAlarmAt = cursor.getLong(cursor.getColumnIndex(JobStorage.COLUMN_ALARM_AT));
+        request.mAlarmStart = cursor.getLong(cursor.getColumnIndex(JobStorage.COLUMN_ALARM_START));
 
         JobPreconditions.checkArgumentNonnegative(request.mFailureCount, "failure count can't be negative");
         JobPreconditions.checkArgumentNonnegative(request.mScheduledAt, "scheduled at can't be negative");
@@ -603,6 +692,7 @@ public final class JobRequest {
 
         private PersistableBundleCompat mExtras;
         private String mExtrasXml;
+        private byte[] mExtrasBinary;
 
         private boolean mUpdateCurrent;
 
@@ -667,7 +757,12 @@ public final class JobRequest {
                 mNetworkType = DEFAULT_NETWORK_TYPE;
             }
 
-            mExtrasXml = cursor.getString(cursor.getColumnIndex(JobStorage.COLUMN_EXTRAS));
+            // keep the raw form, extras are decoded lazily in getExtras()
+            mExtrasBinary = cursor.getBlob(cursor.getColumnIndex(JobStorage.COLUMN_EXTRAS_BINARY));
+            if (mExtrasBinary == null) {
+                // written by an older version, migrated when the extras are decoded and written again
+                mExtrasXml = cursor.getString(cursor.getColumnIndex(JobStorage.COLUMN_EXTRAS));
+            }
             mTransient = cursor.getInt(cursor.getColumnIndex(JobStorage.COLUMN_TRANSIENT)) > 0;
         }
 
@@ -699,6 +794,7 @@ public final class JobRequest {
 
             mExtras = builder.mExtras;
             mExtrasXml = builder.mExtrasXml;
+            mExtrasBinary = builder.mExtrasBinary;
 
             mUpdateCurrent = builder.mUpdateCurrent;
             mTransient = builder.mTransient;
@@ -726,15 +822,39 @@ public final class JobRequest {
             contentValues.put(JobStorage.COLUMN_EXACT, mExact);
             contentValues.put(JobStorage.COLUMN_NETWORK_TYPE, mNetworkType.toString());
 
-            if (mExtras != null) {
-                contentValues.put(JobStorage.COLUMN_EXTRAS, mExtras.saveToXml());
-            } else if (!TextUtils.isEmpty(mExtrasXml)) {
-                contentValues.put(JobStorage.COLUMN_EXTRAS, mExtrasXml);
+            if (mExtras == null) {
+                // never decoded, the raw form is still up to date
+                if (mExtrasBinary != null) {
+                    contentValues.put(JobStorage.COLUMN_EXTRAS_BINARY, mExtrasBinary);
+                } else if (!TextUtils.isEmpty(mExtrasXml)) {
+                    contentValues.put(JobStorage.COLUMN_EXTRAS, mExtrasXml);
+                }
+            } else {
+                // the decoded bundle is mutable, encode it again
+                byte[] extrasBinary = mExtras.saveToBinary();
+                if (extrasBinary != null) {
+                    contentValues.put(JobStorage.COLUMN_EXTRAS_BINARY, extrasBinary);
+                    contentValues.putNull(JobStorage.COLUMN_EXTRAS);
+                } else {
+                    // a value isn't supported by the binary format, keep XML as fallback
+                    contentValues.put(JobStorage.COLUMN_EXTRAS, mExtras.saveToXml());
+                }
             }
 
             contentValues.put(JobStorage.COLUMN_TRANSIENT, mTransient);
         }
 
+        private PersistableBundleCompat decodeExtras() {
+            if (mExtras == null) {
+                if (mExtrasBinary != null) {
+                    mExtras = PersistableBundleCompat.fromBinary(mExtrasBinary);
+                } else if (!TextUtils.isEmpty(mExtrasXml)) {
+                    mExtras = PersistableBundleCompat.fromXml(mExtrasXml);
+                }
+            }
+            return mExtras;
+        }
+
         /**
          * Set the time window when the job will be run. Note that it's mandatory to set a time for
          * one-off tasks, but it's not allowed to call this method together with
@@ -791,8 +911,11 @@ public final class JobRequest {
             if (extras == null) {
                 mExtras = null;
                 mExtrasXml = null;
+                mExtrasBinary = null;
             } else {
                 mExtras = new PersistableBundleCompat(extras);
+                mExtrasXml = null;
+                mExtrasBinary = null;
             }
             return this;
         }
@@ -804,12 +927,15 @@ public final class JobRequest {
          * @param extras Bundle containing extras which you can retrieve with {@link Job.Params#getExtras()}.
          */
         public Builder addExtras(@NonNull PersistableBundleCompat extras) {
+            // merge with the extras of a loaded request
+            decodeExtras();
             if (mExtras == null) {
                 mExtras = extras;
             } else {
                 mExtras.putAll(extras);
             }
             mExtrasXml = null;
+            mExtrasBinary = null;
             return this;
         }
 
@@ -25,7 +25,9 @@ import androidx.core.app.SafeJobIntentService;
 
 import com.evernote.android.job.util.JobCat;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
@@ -103,11 +105,18 @@ public final class JobRescheduleService extends SafeJobIntentService {
     /*package*/ int rescheduleJobs(JobManager manager, Collection<JobRequest> requests) {
         int rescheduledCount = 0;
         boolean exceptionThrown = false;
+        List<JobRequest> rescheduledRequests = new ArrayList<>();
         for (JobRequest request : requests) {
             boolean reschedule;
-            if (request.isStarted()) {
+            if (request.isOverflow()) {
+                // not planted on purpose, the request is promoted once a slot is free
+                reschedule = false;
+            } else if (request.isStarted()) {
                 Job job = manager.getJob(request.getJobId());
                 reschedule = job == null;
+            } else if (request.isMultiplexed()) {
+                // runs with the slot of its requirements, the slot itself is rescheduled
+                reschedule = false;
             } else {
                 reschedule = !manager.getJobProxy(request.getJobApi()).isPlatformJobScheduled(request);
             }
@@ -115,12 +124,9 @@ public final class JobRescheduleService extends SafeJobIntentService {
             if (reschedule) {
                 // update execution window
                 try {
-                    request.cancelAndEdit()
-                            .build()
-                            .schedule();
+                    // replace the row in place, canceling first would lose the request if the process dies
+                    rescheduledRequests.add(request.createRescheduled());
                 } catch (Exception e) {
-                    // this may crash (e.g. more than 100 jobs with JobScheduler), but it's not catchable for the user
-                    // better catch here, otherwise app will end in a crash loop
                     if (!exceptionThrown) {
                         CAT.e(e);
                         exceptionThrown = true;
@@ -130,6 +136,23 @@ public final class JobRescheduleService extends SafeJobIntentService {
                 rescheduledCount++;
             }
         }
+
+        // after a reboot all requests need to be planted again, do this in one batch
+        try {
+            manager.reschedule(rescheduledRequests);
+        } catch (Exception e) {
+            // this may crash (e.g. more than 100 jobs with JobScheduler), but it's not catchable for the user
+            // better catch here, otherwise app will end in a crash loop
+            if (!exceptionThrown) {
+                CAT.e(e);
+            }
+        }
+
+        // planted jobs may have been lost, e.g. transient jobs after a reboot
+        manager.promoteOverflow();
+        // members whose window passed while the process was dead need an earlier slot
+        manager.getMultiplexer().rearm();
+
         return rescheduledCount;
     }
 }
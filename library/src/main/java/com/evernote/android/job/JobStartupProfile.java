@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import com.evernote.android.job.util.JobCat;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings of the individual phases while creating the {@link JobManager}. Each phase reports
+ * {@link #NOT_FINISHED} until it completed. Phases which run in the background (e.g. with
+ * {@link JobConfig#setStartupProfileEnabled(boolean)}) may finish long after
+ * {@link JobManager#create(android.content.Context)} returned.
+ *
+ * @author rwondratschek
+ * @see JobManager#getStartupProfile()
+ */
+@SuppressWarnings("WeakerAccess")
+public final class JobStartupProfile {
+
+    /**
+     * Returned for phases which didn't finish, yet.
+     */
+    public static final long NOT_FINISHED = -1L;
+
+    private static final JobCat CAT = new JobCat("JobStartupProfile");
+
+    private final boolean mDeferred;
+
+    private volatile long mCreateNanos = NOT_FINISHED;
+    private volatile long mStorageInitNanos = NOT_FINISHED;
+    private volatile long mApiProbeNanos = NOT_FINISHED;
+    private volatile long mRescheduleServiceNanos = NOT_FINISHED;
+
+    private boolean mLogged;
+
+    /*package*/ JobStartupProfile(boolean deferred) {
+        mDeferred = deferred;
+    }
+
+    /**
+     * @return Whether expensive startup work was deferred to background threads.
+     * @see JobConfig#setStartupProfileEnabled(boolean)
+     */
+    public boolean isDeferred() {
+        return mDeferred;
+    }
+
+    /**
+     * @param timeUnit The desired time unit.
+     * @return The time the calling thread was blocked in {@link JobManager#create(android.content.Context)}.
+     */
+    public long getCreateTime(TimeUnit timeUnit) {
+        return convert(mCreateNanos, timeUnit);
+    }
+
+    /**
+     * @param timeUnit The desired time unit.
+     * @return The time needed to open the internal database.
+     */
+    public long getStorageInitTime(TimeUnit timeUnit) {
+        return convert(mStorageInitNanos, timeUnit);
+    }
+
+    /**
+     * @param timeUnit The desired time unit.
+     * @return The time needed to find out which {@link JobApi}s are supported on this device.
+     */
+    public long getApiProbeTime(TimeUnit timeUnit) {
+        return convert(mApiProbeNanos, timeUnit);
+    }
+
+    /**
+     * @param timeUnit The desired time unit.
+     * @return The time between creating the {@link JobManager} and enqueuing the service, which
+     * reschedules all jobs after a reboot. The value is {@code 0} if the service was skipped.
+     */
+    public long getRescheduleServiceTime(TimeUnit timeUnit) {
+        return convert(mRescheduleServiceNanos, timeUnit);
+    }
+
+    /**
+     * @return Whether all phases have finished.
+     */
+    public boolean isFinished() {
+        return mCreateNanos != NOT_FINISHED && mStorageInitNanos != NOT_FINISHED
+                && mApiProbeNanos != NOT_FINISHED && mRescheduleServiceNanos != NOT_FINISHED;
+    }
+
+    /*package*/ void setCreateNanos(long nanos) {
+        mCreateNanos = nanos;
+        logIfFinished();
+    }
+
+    /*package*/ void setStorageInitNanos(long nanos) {
+        mStorageInitNanos = nanos;
+        logIfFinished();
+    }
+
+    /*package*/ void setApiProbeNanos(long nanos) {
+        mApiProbeNanos = nanos;
+        logIfFinished();
+    }
+
+    /*package*/ void setRescheduleServiceNanos(long nanos) {
+        mRescheduleServiceNanos = nanos;
+        logIfFinished();
+    }
+
+    private void logIfFinished() {
+        synchronized (this) {
+            if (mLogged || !isFinished()) {
+                return;
+            }
+            mLogged = true;
+        }
+        CAT.d("Startup finished, %s", this);
+    }
+
+    private static long convert(long nanos, TimeUnit timeUnit) {
+        return nanos == NOT_FINISHED ? NOT_FINISHED : timeUnit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String format(long nanos) {
+        return nanos == NOT_FINISHED ? "n/a" : String.format(Locale.US, "%.2fms", nanos / 1_000_000d);
+    }
+
+    @Override
+    public String toString() {
+        return "startup{deferred=" + mDeferred
+                + ", create=" + format(mCreateNanos)
+                + ", storageInit=" + format(mStorageInitNanos)
+                + ", apiProbe=" + format(mApiProbeNanos)
+                + ", rescheduleService=" + format(mRescheduleServiceNanos) + '}';
+    }
+}
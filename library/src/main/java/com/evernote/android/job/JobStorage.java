@@ -20,6 +20,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteCantOpenDatabaseException;
 import android.database.sqlite.SQLiteDatabase;
@@ -33,9 +34,12 @@ import android.util.LruCache;
 
 import com.evernote.android.job.util.JobCat;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -55,7 +59,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
     public static final String PREF_FILE_NAME = "evernote_jobs";
     public static final String DATABASE_NAME = PREF_FILE_NAME + ".db";
-    public static final int DATABASE_VERSION = 6;
+    public static final int DATABASE_VERSION = 11;
 
     public static final String JOB_TABLE_NAME = "jobs";
 
@@ -91,11 +95,29 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
     public static final String COLUMN_TRANSIENT = "transient";
     public static final String COLUMN_REQUIRES_BATTERY_NOT_LOW = "requiresBatteryNotLow";
     public static final String COLUMN_REQUIRES_STORAGE_NOT_LOW = "requiresStorageNotLow";
+    public static final String COLUMN_EXTRAS_BINARY = "extrasBinary";
+    public static final String COLUMN_OVERFLOW = "overflow";
+    public static final String COLUMN_MULTIPLEXED = "multiplexed";
+    public static final String COLUMN_ALARM_AT = "alarmAt";
+    public static final String COLUMN_ALARM_START = "alarmStart";
+
+    private static final String INDEX_ALARM_AT = "idx_" + COLUMN_ALARM_AT;
 
     private static final int CACHE_SIZE = 30;
 
     private static final String WHERE_NOT_STARTED = "ifnull(" + COLUMN_STARTED + ", 0)<=0";
 
+    // exact requests always use the AlarmManager, all others are planted with the default API, multiplexed requests share a slot
+    private static final String WHERE_PLANTED = "ifnull(" + COLUMN_OVERFLOW + ", 0)<=0 AND ifnull(" + COLUMN_EXACT + ", 0)<=0 AND ifnull("
+            + COLUMN_MULTIPLEXED + ", 0)<=0";
+    private static final String WHERE_DEMOTABLE = WHERE_PLANTED + " AND " + WHERE_NOT_STARTED + " AND ifnull(" + COLUMN_TRANSIENT + ", 0)<=0";
+    private static final String WHERE_OVERFLOW = COLUMN_OVERFLOW + ">0 AND " + WHERE_NOT_STARTED;
+    private static final String WHERE_ALARM = COLUMN_ALARM_AT + ">0 AND " + WHERE_NOT_STARTED;
+
+    // same as JobOverflowQueue.getDeadline()
+    private static final String ORDER_BY_DEADLINE = COLUMN_SCHEDULED_AT + " + (CASE WHEN " + COLUMN_INTERVAL_MS + ">0 THEN "
+            + COLUMN_INTERVAL_MS + " ELSE " + COLUMN_END_MS + " END)";
+
     private final SharedPreferences mPreferences;
     private final JobCacheId mCacheId;
 
@@ -140,6 +162,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
     public void update(JobRequest request, ContentValues contentValues) {
         SQLiteDatabase database = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
         mLock.writeLock().lock();
 
         try {
@@ -152,6 +175,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
         } finally {
             closeDatabase(database);
             mLock.writeLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.UPDATE, start);
         }
     }
 
@@ -174,6 +198,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
         SQLiteDatabase database = null;
         Cursor cursor = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
 
         mLock.readLock().lock();
 
@@ -213,6 +238,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
             closeCursor(cursor);
             closeDatabase(database);
             mLock.readLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.QUERY, start);
         }
 
         return result;
@@ -224,6 +250,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
     private boolean remove(@Nullable JobRequest request, int jobId) {
         SQLiteDatabase database = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
         mLock.writeLock().lock();
 
         try {
@@ -239,9 +266,249 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
         } finally {
             closeDatabase(database);
             mLock.writeLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.DELETE, start);
+        }
+    }
+
+    /**
+     * Removes all requests with the given tag, or all requests if the tag is empty, with a single
+     * statement instead of one delete for each request.
+     *
+     * @param requests The requests matching the tag, they're removed from the cache.
+     */
+    public void removeAll(@Nullable String tag, @NonNull Collection<JobRequest> requests) {
+        SQLiteDatabase database = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
+        mLock.writeLock().lock();
+
+        try {
+            for (JobRequest request : requests) {
+                mCacheId.remove(request.getJobId());
+            }
+
+            database = getDatabase();
+            if (TextUtils.isEmpty(tag)) {
+                database.delete(JOB_TABLE_NAME, null, null);
+            } else {
+                database.delete(JOB_TABLE_NAME, COLUMN_TAG + "=?", new String[]{tag});
+            }
+        } catch (Exception e) {
+            CAT.e(e, "could not delete %d jobs with tag %s", requests.size(), tag);
+            addFailedDeleteIds(requests);
+        } finally {
+            closeDatabase(database);
+            mLock.writeLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.DELETE, start);
+        }
+    }
+
+    /**
+     * @return The number of requests, which hold a slot of the platform with the default API.
+     */
+    public int countPlanted() {
+        SQLiteDatabase database = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
+        mLock.readLock().lock();
+
+        try {
+            database = getDatabase();
+            return (int) DatabaseUtils.queryNumEntries(database, JOB_TABLE_NAME, WHERE_PLANTED);
+        } catch (Exception e) {
+            CAT.e(e, "could not count planted jobs");
+            return 0;
+        } finally {
+            closeDatabase(database);
+            mLock.readLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.QUERY, start);
+        }
+    }
+
+    /**
+     * @return The planted request with the latest deadline, which can give its slot to a more urgent
+     * request. Started and transient requests are never returned.
+     */
+    @Nullable
+    public JobRequest getLeastUrgentPlanted() {
+        return queryFirst(WHERE_DEMOTABLE, ORDER_BY_DEADLINE + " DESC");
+    }
+
+    /**
+     * @return The request in the overflow queue with the earliest deadline.
+     */
+    @Nullable
+    public JobRequest getMostUrgentOverflow() {
+        return queryFirst(WHERE_OVERFLOW, ORDER_BY_DEADLINE + " ASC");
+    }
+
+    /**
+     * Replaces a request of the overflow queue with its promoted copy.
+     *
+     * @return Whether the request was replaced. It's not if the request was started or removed in
+     * the meantime, then the copy must not be planted.
+     */
+    public boolean replaceOverflow(@NonNull JobRequest promoted) {
+        SQLiteDatabase database = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
+        mLock.writeLock().lock();
+
+        try {
+            database = getDatabase();
+            int rows = database.update(JOB_TABLE_NAME, promoted.toContentValues(), COLUMN_ID + "=? AND " + WHERE_OVERFLOW,
+                    new String[]{String.valueOf(promoted.getJobId())});
+            if (rows > 0) {
+                updateRequestInCache(promoted);
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            CAT.e(e, "could not promote %s", promoted);
+            return false;
+        } finally {
+            closeDatabase(database);
+            mLock.writeLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.UPDATE, start);
         }
     }
 
+    @Nullable
+    private JobRequest queryFirst(String where, String orderBy) {
+        SQLiteDatabase database = null;
+        Cursor cursor = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
+        mLock.readLock().lock();
+
+        try {
+            database = getDatabase();
+            cursor = database.query(JOB_TABLE_NAME, null, where, null, null, null, orderBy);
+            while (cursor != null && cursor.moveToNext()) {
+                if (!didFailToDelete(cursor.getInt(cursor.getColumnIndex(COLUMN_ID)))) {
+                    return JobRequest.fromCursor(cursor);
+                }
+            }
+            return null;
+        } catch (Exception e) {
+            CAT.e(e, "could not query %s", where);
+            return null;
+        } finally {
+            closeCursor(cursor);
+            closeDatabase(database);
+            mLock.readLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.QUERY, start);
+        }
+    }
+
+    /**
+     * @param exact Whether to look at exact or inexact requests.
+     * @return The earliest alarm time of all requests in the alarm queue or {@code 0} if the queue
+     * is empty. The query only reads the alarm index.
+     */
+    public long getNextAlarmAt(boolean exact) {
+        SQLiteDatabase database = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
+        mLock.readLock().lock();
+
+        try {
+            database = getDatabase();
+            return DatabaseUtils.longForQuery(database, "SELECT min(" + COLUMN_ALARM_AT + ") FROM " + JOB_TABLE_NAME
+                    + " WHERE " + getWhereAlarm(exact), null);
+        } catch (Exception e) {
+            CAT.e(e, "could not query next alarm");
+            return 0L;
+        } finally {
+            closeDatabase(database);
+            mLock.readLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.QUERY, start);
+        }
+    }
+
+    /**
+     * @param exact Whether to look at exact or inexact requests.
+     * @param alarmAt The earliest alarm time of the queue.
+     * @return The latest window start of all requests in the alarm queue, whose window starts before
+     * the given alarm time. The windows of these requests overlap between this start and the alarm time.
+     */
+    public long getLatestAlarmStart(boolean exact, long alarmAt) {
+        SQLiteDatabase database = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
+        mLock.readLock().lock();
+
+        try {
+            database = getDatabase();
+            return DatabaseUtils.longForQuery(database, "SELECT max(" + COLUMN_ALARM_START + ") FROM " + JOB_TABLE_NAME
+                    + " WHERE " + getWhereAlarm(exact) + " AND " + COLUMN_ALARM_START + "<=?", new String[]{String.valueOf(alarmAt)});
+        } catch (Exception e) {
+            CAT.e(e, "could not query latest alarm start");
+            return 0L;
+        } finally {
+            closeDatabase(database);
+            mLock.readLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.QUERY, start);
+        }
+    }
+
+    /**
+     * Removes all requests from the alarm queue, whose window has started, in one transaction.
+     *
+     * @return The removed requests, they need to run now.
+     */
+    @NonNull
+    public List<JobRequest> pollDueAlarms(boolean exact, long now) {
+        List<JobRequest> result = new ArrayList<>();
+
+        SQLiteDatabase database = null;
+        Cursor cursor = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
+        mLock.writeLock().lock();
+
+        try {
+            String where = getWhereAlarm(exact) + " AND " + COLUMN_ALARM_START + "<=?";
+            String[] args = {String.valueOf(now)};
+
+            database = getDatabase();
+            database.beginTransaction();
+            try {
+                cursor = database.query(JOB_TABLE_NAME, null, where, args, null, null, null);
+
+                @SuppressLint("UseSparseArrays")
+                HashMap<Integer, JobRequest> cachedRequests = new HashMap<>(mCacheId.snapshot());
+
+                while (cursor != null && cursor.moveToNext()) {
+                    int id = cursor.getInt(cursor.getColumnIndex(COLUMN_ID));
+                    if (!didFailToDelete(id)) {
+                        JobRequest request = cachedRequests.get(id);
+                        result.add(request != null ? request : JobRequest.fromCursor(cursor));
+                    }
+                }
+
+                ContentValues contentValues = new ContentValues();
+                contentValues.put(COLUMN_ALARM_AT, 0L);
+                contentValues.put(COLUMN_ALARM_START, 0L);
+                database.update(JOB_TABLE_NAME, contentValues, where, args);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+
+            for (JobRequest request : result) {
+                request.setAlarmWindow(0L, 0L);
+            }
+            return result;
+
+        } catch (Exception e) {
+            CAT.e(e, "could not poll due alarms");
+            return new ArrayList<>();
+        } finally {
+            closeCursor(cursor);
+            closeDatabase(database);
+            mLock.writeLock().unlock();
+            onStorageOperation(JobMetricsListener.StorageOperation.UPDATE, start);
+        }
+    }
+
+    private static String getWhereAlarm(boolean exact) {
+        return WHERE_ALARM + " AND ifnull(" + COLUMN_EXACT + ", 0)" + (exact ? ">0" : "<=0");
+    }
+
     public synchronized int nextJobId() {
         if (mJobCounter == null) {
             mJobCounter = new AtomicInteger(getMaxJobId());
@@ -265,6 +532,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
     }
 
     private void store(JobRequest request) {
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
         ContentValues contentValues = request.toContentValues();
         SQLiteDatabase database = null;
         try {
@@ -279,6 +547,14 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
             }
         } finally {
             closeDatabase(database);
+            onStorageOperation(JobMetricsListener.StorageOperation.INSERT, start);
+        }
+    }
+
+    private static void onStorageOperation(JobMetricsListener.StorageOperation operation, long start) {
+        // start is 0 if there was no listener when the operation began
+        if (start != 0L) {
+            JobMetrics.onStorageOperation(operation, System.nanoTime() - start);
         }
     }
 
@@ -290,6 +566,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
         SQLiteDatabase database = null;
         Cursor cursor = null;
+        long start = JobMetrics.isEnabled() ? System.nanoTime() : 0L;
         try {
             String where = COLUMN_ID + "=?";
             if (!includeStarted) {
@@ -308,6 +585,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
         } finally {
             closeCursor(cursor);
             closeDatabase(database);
+            onStorageOperation(JobMetricsListener.StorageOperation.QUERY, start);
         }
 
         return null;
@@ -373,6 +651,15 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
         }
     }
 
+    private void addFailedDeleteIds(Collection<JobRequest> requests) {
+        synchronized (mFailedDeleteIds) {
+            for (JobRequest request : requests) {
+                mFailedDeleteIds.add(String.valueOf(request.getJobId()));
+            }
+            mPreferences.edit().putStringSet(FAILED_DELETE_IDS, mFailedDeleteIds).apply();
+        }
+    }
+
     private boolean didFailToDelete(int id) {
         synchronized (mFailedDeleteIds) {
             return !mFailedDeleteIds.isEmpty() && mFailedDeleteIds.contains(String.valueOf(id));
@@ -446,6 +733,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
         @Override
         public void onCreate(SQLiteDatabase db) {
             createJobTable(db);
+            createAlarmIndex(db);
         }
 
         @Override
@@ -472,6 +760,26 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
                         upgradeFrom5To6(db);
                         oldVersion++;
                         break;
+                    case 6:
+                        upgradeFrom6To7(db);
+                        oldVersion++;
+                        break;
+                    case 7:
+                        upgradeFrom7To8(db);
+                        oldVersion++;
+                        break;
+                    case 8:
+                        upgradeFrom8To9(db);
+                        oldVersion++;
+                        break;
+                    case 9:
+                        upgradeFrom9To10(db);
+                        oldVersion++;
+                        break;
+                    case 10:
+                        upgradeFrom10To11(db);
+                        oldVersion++;
+                        break;
                     default:
                         throw new IllegalStateException("not implemented");
                 }
@@ -501,7 +809,16 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
                     + COLUMN_LAST_RUN + " integer, "
                     + COLUMN_TRANSIENT + " integer, "
                     + COLUMN_REQUIRES_BATTERY_NOT_LOW + " integer, "
-                    + COLUMN_REQUIRES_STORAGE_NOT_LOW +" integer);");
+                    + COLUMN_REQUIRES_STORAGE_NOT_LOW + " integer, "
+                    + COLUMN_EXTRAS_BINARY + " blob, "
+                    + COLUMN_OVERFLOW + " integer, "
+                    + COLUMN_MULTIPLEXED + " integer, "
+                    + COLUMN_ALARM_AT + " integer, "
+                    + COLUMN_ALARM_START + " integer);");
+        }
+
+        private void createAlarmIndex(SQLiteDatabase db) {
+            db.execSQL("create index " + INDEX_ALARM_AT + " on " + JOB_TABLE_NAME + " (" + COLUMN_ALARM_AT + ");");
         }
 
         @SuppressWarnings("deprecation")
@@ -591,6 +908,31 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
             db.execSQL("alter table " + JOB_TABLE_NAME + " add column " + COLUMN_REQUIRES_BATTERY_NOT_LOW + " integer;");
             db.execSQL("alter table " + JOB_TABLE_NAME + " add column " + COLUMN_REQUIRES_STORAGE_NOT_LOW + " integer;");
         }
+
+        private void upgradeFrom6To7(SQLiteDatabase db) {
+            // existing XML extras are migrated lazily, once they were decoded and the request is stored again
+            db.execSQL("alter table " + JOB_TABLE_NAME + " add column " + COLUMN_EXTRAS_BINARY + " blob;");
+        }
+
+        private void upgradeFrom7To8(SQLiteDatabase db) {
+            // all existing requests were planted
+            db.execSQL("alter table " + JOB_TABLE_NAME + " add column " + COLUMN_OVERFLOW + " integer;");
+        }
+
+        private void upgradeFrom8To9(SQLiteDatabase db) {
+            db.execSQL("alter table " + JOB_TABLE_NAME + " add column " + COLUMN_MULTIPLEXED + " integer;");
+        }
+
+        private void upgradeFrom9To10(SQLiteDatabase db) {
+            db.execSQL("alter table " + JOB_TABLE_NAME + " add column " + COLUMN_ALARM_AT + " integer;");
+            createAlarmIndex(db);
+        }
+
+        private void upgradeFrom10To11(SQLiteDatabase db) {
+            db.execSQL("alter table " + JOB_TABLE_NAME + " add column " + COLUMN_ALARM_START + " integer;");
+            // queued requests run at their alarm time like before
+            db.execSQL("update " + JOB_TABLE_NAME + " set " + COLUMN_ALARM_START + " = " + COLUMN_ALARM_AT + ";");
+        }
     }
 
     private static void closeCursor(@Nullable Cursor cursor) {
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size histogram for latencies in microseconds. Values below {@link #SUB_BUCKET_COUNT} are
+ * counted exactly, larger values fall into log-linear buckets: each power of two is split into
+ * {@link #SUB_BUCKET_COUNT} buckets, which keeps the relative error below 1/16. Values above
+ * {@link #MAX_VALUE} are counted in the last bucket.
+ *
+ * <br>
+ * <br>
+ *
+ * Recording doesn't allocate and doesn't lock, it only increments atomic counters.
+ *
+ * @author rwondratschek
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+/*package*/ final class LatencyHistogram {
+
+    /*package*/ static final int SUB_BUCKET_BITS = 4;
+    /*package*/ static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    // 2^42 microseconds are roughly 50 days
+    private static final int MAX_EXPONENT = 42;
+    /*package*/ static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    /*package*/ static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+
+        mCounts.incrementAndGet(getBucketIndex(micros));
+        mSum.addAndGet(micros);
+
+        long max = mMax.get();
+        while (micros > max && !mMax.compareAndSet(max, micros)) {
+            max = mMax.get();
+        }
+    }
+
+    @NonNull
+    public LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mCounts.get(i);
+        }
+        return new LatencySnapshot(counts, mSum.get(), mMax.get());
+    }
+
+    /*package*/ static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        if (value > MAX_VALUE) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /*package*/ static long getBucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+    }
+
+    /*package*/ static long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return getBucketLowerBound(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+
+import com.evernote.android.job.util.JobPreconditions;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable copy of a latency histogram. Percentiles are accurate to about 6%, they report the
+ * upper bound of the bucket containing the value.
+ *
+ * @author rwondratschek
+ * @see JobManager#getLatencyStats()
+ */
+@SuppressWarnings("WeakerAccess")
+public final class LatencySnapshot {
+
+    private final long[] mCounts;
+    private final long mCount;
+    private final long mSum;
+    private final long mMax;
+
+    /*package*/ LatencySnapshot(long[] counts, long sum, long max) {
+        mCounts = counts;
+        mSum = sum;
+        mMax = max;
+
+        long count = 0;
+        for (long value : counts) {
+            count += value;
+        }
+        mCount = count;
+    }
+
+    /**
+     * @return How many values were recorded.
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @param timeUnit The desired time unit.
+     * @return The average of all values or {@code 0} if nothing was recorded.
+     */
+    public long getMean(@NonNull TimeUnit timeUnit) {
+        return mCount == 0 ? 0 : timeUnit.convert(mSum / mCount, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @param timeUnit The desired time unit.
+     * @return The largest recorded value.
+     */
+    public long getMax(@NonNull TimeUnit timeUnit) {
+        return timeUnit.convert(mMax, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @param percentile The percentile between 0 and 100, e.g. 99.9.
+     * @param timeUnit The desired time unit.
+     * @return The value below or equal to which the given percentage of values fall, or {@code 0}
+     * if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile, @NonNull TimeUnit timeUnit) {
+        JobPreconditions.checkArgumentInRange((float) percentile, 0f, 100f, "percentile");
+        if (mCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100d * mCount));
+        long seen = 0;
+        for (int i = 0; i < mCounts.length; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                long value = Math.min(LatencyHistogram.getBucketUpperBound(i), mMax);
+                return timeUnit.convert(value, TimeUnit.MICROSECONDS);
+            }
+        }
+        return getMax(timeUnit);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + mCount
+                + ", mean=" + format(getMean(TimeUnit.MICROSECONDS))
+                + ", p50=" + format(getValueAtPercentile(50, TimeUnit.MICROSECONDS))
+                + ", p90=" + format(getValueAtPercentile(90, TimeUnit.MICROSECONDS))
+                + ", p99=" + format(getValueAtPercentile(99, TimeUnit.MICROSECONDS))
+                + ", max=" + format(getMax(TimeUnit.MICROSECONDS));
+    }
+
+    private static String format(long micros) {
+        return String.format(Locale.US, "%.2fms", micros / 1_000d);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job;
+
+import android.content.Context;
+import android.os.PowerManager;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+
+import com.evernote.android.job.util.JobCat;
+import com.evernote.android.job.util.JobUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One wake lock shared by all holders of a group, e.g. all running jobs. Each holder gets a
+ * {@link Token}, the platform lock is acquired for the first holder and released after the last
+ * one. Holders don't cause a binder call unless they extend the hard timeout noticeably.
+ *
+ * <br>
+ * <br>
+ *
+ * The platform lock always has a timeout, which is the latest deadline of all holders. If holders
+ * leak, then the lock is released by the platform nonetheless and the next acquire starts a new
+ * generation, tokens of the old generation are ignored.
+ *
+ * @author rwondratschek
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+/*package*/ final class SharedWakeLock {
+
+    private static final JobCat CAT = new JobCat("SharedWakeLock");
+
+    /*package*/ static final String GROUP_JOBS = "JobExecutor";
+    /*package*/ static final String GROUP_WAKEFUL_SERVICE = "WakefulService";
+
+    private static final Map<String, SharedWakeLock> GROUPS = new HashMap<>();
+
+    public static SharedWakeLock get(@NonNull String group) {
+        synchronized (GROUPS) {
+            SharedWakeLock wakeLock = GROUPS.get(group);
+            if (wakeLock == null) {
+                wakeLock = new SharedWakeLock(group);
+                GROUPS.put(group, wakeLock);
+            }
+            return wakeLock;
+        }
+    }
+
+    private final String mTag;
+
+    private PowerManager.WakeLock mWakeLock;
+    private int mHolders;
+    private int mGeneration;
+    private long mDeadline;
+
+    @VisibleForTesting
+    /*package*/ SharedWakeLock(@NonNull String group) {
+        mTag = "job:" + group;
+    }
+
+    /**
+     * @param context Any context.
+     * @param timeoutMillis The hard timeout for this holder.
+     * @return The token to release the lock or {@code null} if no wake lock could be acquired.
+     */
+    @Nullable
+    public synchronized Token acquire(@NonNull Context context, long timeoutMillis) {
+        if (mWakeLock == null) {
+            if (!JobUtil.hasWakeLockPermission(context)) {
+                return null;
+            }
+            PowerManager powerManager = (PowerManager) context.getApplicationContext().getSystemService(Context.POWER_SERVICE);
+            if (powerManager == null) {
+                return null;
+            }
+            mWakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, mTag);
+            mWakeLock.setReferenceCounted(false);
+        }
+
+        long now = JobConfig.getClock().elapsedRealtime();
+        if (mHolders > 0 && (!mWakeLock.isHeld() || mDeadline <= now)) {
+            CAT.w("Wake lock %s timed out with %d holders", mTag, mHolders);
+            resetHolders();
+        }
+
+        long deadline = now + timeoutMillis;
+        // extending the timeout needs a binder call, skip it if the lock is held long enough anyways
+        if (mHolders == 0 || deadline - mDeadline > timeoutMillis / 10) {
+            try {
+                mWakeLock.acquire(timeoutMillis);
+            } catch (Exception e) {
+                // saw an NPE on rooted Galaxy Nexus Android 4.1.1
+                // android.os.IPowerManager$Stub$Proxy.acquireWakeLock(IPowerManager.java:288)
+                CAT.e(e);
+                if (mHolders == 0) {
+                    return null;
+                }
+            }
+            mDeadline = Math.max(mDeadline, deadline);
+        }
+
+        mHolders++;
+        return new Token(this, mGeneration, deadline);
+    }
+
+    /*package*/ synchronized void release(@NonNull Token token) {
+        if (token.mReleased || token.mGeneration != mGeneration) {
+            return;
+        }
+        token.mReleased = true;
+
+        mHolders--;
+        if (mHolders <= 0) {
+            resetHolders();
+            try {
+                if (mWakeLock.isHeld()) {
+                    mWakeLock.release();
+                }
+            } catch (Exception e) {
+                // just to make sure if the PowerManager crashes while releasing a wake lock
+                CAT.e(e);
+            }
+        }
+    }
+
+    /*package*/ synchronized boolean isHeld(@NonNull Token token) {
+        return !token.mReleased
+                && token.mGeneration == mGeneration
+                && token.mDeadline > JobConfig.getClock().elapsedRealtime()
+                && mWakeLock != null
+                && mWakeLock.isHeld();
+    }
+
+    @VisibleForTesting
+    /*package*/ synchronized int getHolders() {
+        return mHolders;
+    }
+
+    @VisibleForTesting
+    /*package*/ synchronized boolean isPlatformLockHeld() {
+        return mWakeLock != null && mWakeLock.isHeld();
+    }
+
+    /**
+     * @return The number of platform wake locks held by all groups together.
+     */
+    @VisibleForTesting
+    /*package*/ static int getHeldPlatformLocks() {
+        int held = 0;
+        synchronized (GROUPS) {
+            for (SharedWakeLock wakeLock : GROUPS.values()) {
+                if (wakeLock.isPlatformLockHeld()) {
+                    held++;
+                }
+            }
+        }
+        return held;
+    }
+
+    private void resetHolders() {
+        mHolders = 0;
+        mDeadline = 0;
+        mGeneration++;
+    }
+
+    /**
+     * A single holder of the shared lock. Releasing a token more than once has no effect.
+     */
+    /*package*/ static final class Token {
+
+        private final SharedWakeLock mWakeLock;
+        private final int mGeneration;
+        private final long mDeadline;
+        private boolean mReleased;
+
+        private Token(SharedWakeLock wakeLock, int generation, long deadline) {
+            mWakeLock = wakeLock;
+            mGeneration = generation;
+            mDeadline = deadline;
+        }
+
+        public boolean isHeld() {
+            return mWakeLock.isHeld(this);
+        }
+
+        public void release() {
+            mWakeLock.release(this);
+        }
+    }
+}
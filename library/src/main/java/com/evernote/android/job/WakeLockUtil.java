@@ -18,15 +18,9 @@ package com.evernote.android.job;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.os.PowerManager;
-import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import android.util.SparseArray;
 
-import com.evernote.android.job.util.JobCat;
-import com.evernote.android.job.util.JobUtil;
-
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -35,54 +29,13 @@ import java.util.concurrent.TimeUnit;
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 /*package*/ final class WakeLockUtil {
 
-    private static final JobCat CAT = new JobCat("WakeLockUtil");
-
     private static final String EXTRA_WAKE_LOCK_ID = "com.evernote.android.job.wakelockid";
 
     private WakeLockUtil() {
         // no op
     }
 
-    @SuppressWarnings("SameParameterValue")
-    @Nullable
-    static PowerManager.WakeLock acquireWakeLock(@NonNull Context context, @NonNull String tag, long timeoutMillis) {
-        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-
-        PowerManager.WakeLock wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, tag);
-        wakeLock.setReferenceCounted(false);
-
-        return acquireWakeLock(context, wakeLock, timeoutMillis) ? wakeLock : null;
-    }
-
-    static boolean acquireWakeLock(@NonNull Context context, @Nullable PowerManager.WakeLock wakeLock, long timeoutMillis) {
-        if (wakeLock != null && !wakeLock.isHeld() && JobUtil.hasWakeLockPermission(context)) {
-            // Even if we have the permission, some devices throw an exception in the try block nonetheless,
-            // I'm looking at you, Samsung SM-T805
-
-            try {
-                wakeLock.acquire(timeoutMillis);
-                return true;
-            } catch (Exception e) {
-                // saw an NPE on rooted Galaxy Nexus Android 4.1.1
-                // android.os.IPowerManager$Stub$Proxy.acquireWakeLock(IPowerManager.java:288)
-                CAT.e(e);
-            }
-        }
-        return false;
-    }
-
-    static void releaseWakeLock(@Nullable PowerManager.WakeLock wakeLock) {
-        try {
-            if (wakeLock != null && wakeLock.isHeld()) {
-                wakeLock.release();
-            }
-        } catch (Exception e) {
-            // just to make sure if the PowerManager crashes while acquiring a wake lock
-            CAT.e(e);
-        }
-    }
-
-    private static final SparseArray<PowerManager.WakeLock> ACTIVE_WAKE_LOCKS = new SparseArray<>();
+    private static final SparseArray<SharedWakeLock.Token> ACTIVE_WAKE_LOCKS = new SparseArray<>();
     private static int nextId = 1;
 
     /**
@@ -113,8 +66,9 @@ import java.util.concurrent.TimeUnit;
                 return null;
             }
 
-            String tag = "wake:" + comp.flattenToShortString();
-            PowerManager.WakeLock wakeLock = acquireWakeLock(context, tag, TimeUnit.MINUTES.toMillis(3));
+            // all services share one wake lock, they're usually started in bursts
+            SharedWakeLock.Token wakeLock = SharedWakeLock.get(SharedWakeLock.GROUP_WAKEFUL_SERVICE)
+                    .acquire(context, TimeUnit.MINUTES.toMillis(3));
             if (wakeLock != null) {
                 ACTIVE_WAKE_LOCKS.put(id, wakeLock);
             }
@@ -141,7 +95,10 @@ import java.util.concurrent.TimeUnit;
             return false;
         }
         synchronized (ACTIVE_WAKE_LOCKS) {
-            releaseWakeLock(ACTIVE_WAKE_LOCKS.get(id));
+            SharedWakeLock.Token wakeLock = ACTIVE_WAKE_LOCKS.get(id);
+            if (wakeLock != null) {
+                wakeLock.release();
+            }
             ACTIVE_WAKE_LOCKS.remove(id);
             return true;
         }
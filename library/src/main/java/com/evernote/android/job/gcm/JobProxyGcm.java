@@ -16,6 +16,7 @@
 package com.evernote.android.job.gcm;
 
 import android.content.Context;
+import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
 
@@ -29,6 +30,9 @@ import com.google.android.gms.gcm.OneoffTask;
 import com.google.android.gms.gcm.PeriodicTask;
 import com.google.android.gms.gcm.Task;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author rwondratschek
  */
@@ -53,50 +57,56 @@ public class JobProxyGcm implements JobProxy {
 
     @Override
     public void plantOneOff(JobRequest request) {
-        long startMs = Common.getStartMs(request);
-        long startSeconds = startMs / 1_000;
-
-        long endMs = Common.getEndMs(request);
-        long endSeconds = Math.max(endMs / 1_000, startSeconds + 1); // endSeconds must be greater than startSeconds
+        scheduleTask(createOneOffTask(request));
 
-        OneoffTask task = prepareBuilder(new OneoffTask.Builder(), request)
-                .setExecutionWindow(startSeconds, endSeconds)
-                .build();
-
-        scheduleTask(task);
-
-        CAT.d("Scheduled OneoffTask, %s, start %s, end %s (from now), reschedule count %d", request, JobUtil.timeToString(startMs),
-                JobUtil.timeToString(endMs), Common.getRescheduleCount(request));
+        if (CAT.isLoggable(Log.DEBUG)) {
+            CAT.d("Scheduled OneoffTask, %s, start %s, end %s (from now), reschedule count %d", request,
+                    JobUtil.timeToString(Common.getStartMs(request)), JobUtil.timeToString(Common.getEndMs(request)),
+                    Common.getRescheduleCount(request));
+        }
     }
 
     @Override
     public void plantPeriodic(JobRequest request) {
-        PeriodicTask task = prepareBuilder(new PeriodicTask.Builder(), request)
-                .setPeriod(request.getIntervalMs() / 1_000)
-                .setFlex(request.getFlexMs() / 1_000)
-                .build();
+        scheduleTask(createPeriodicTask(request));
 
-        scheduleTask(task);
-
-        CAT.d("Scheduled PeriodicTask, %s, interval %s, flex %s", request, JobUtil.timeToString(request.getIntervalMs()),
-                JobUtil.timeToString(request.getFlexMs()));
+        if (CAT.isLoggable(Log.DEBUG)) {
+            CAT.d("Scheduled PeriodicTask, %s, interval %s, flex %s", request, JobUtil.timeToString(request.getIntervalMs()),
+                    JobUtil.timeToString(request.getFlexMs()));
+        }
     }
 
     @Override
     public void plantPeriodicFlexSupport(JobRequest request) {
         CAT.w("plantPeriodicFlexSupport called although flex is supported");
 
-        long startMs = Common.getStartMsSupportFlex(request);
-        long endMs = Common.getEndMsSupportFlex(request);
+        scheduleTask(createPeriodicFlexSupportTask(request));
 
-        OneoffTask task = prepareBuilder(new OneoffTask.Builder(), request)
-                .setExecutionWindow(startMs / 1_000, endMs / 1_000)
-                .build();
+        if (CAT.isLoggable(Log.DEBUG)) {
+            CAT.d("Scheduled periodic (flex support), %s, start %s, end %s, flex %s", request,
+                    JobUtil.timeToString(Common.getStartMsSupportFlex(request)), JobUtil.timeToString(Common.getEndMsSupportFlex(request)),
+                    JobUtil.timeToString(request.getFlexMs()));
+        }
+    }
+
+    @Override
+    public void plantBatch(@NonNull List<JobRequest> requests) {
+        // GcmNetworkManager has no call to schedule multiple tasks at once, build all tasks first
+        // with the memoized permission, then submit them without any other work in between
+        List<Task> tasks = new ArrayList<>(requests.size());
+        for (JobRequest request : requests) {
+            tasks.add(buildTask(request));
+        }
 
-        scheduleTask(task);
+        try {
+            for (Task task : tasks) {
+                mGcmNetworkManager.schedule(task);
+            }
+        } catch (IllegalArgumentException e) {
+            throw translateException(e);
+        }
 
-        CAT.d("Scheduled periodic (flex support), %s, start %s, end %s, flex %s", request, JobUtil.timeToString(startMs),
-                JobUtil.timeToString(endMs), JobUtil.timeToString(request.getFlexMs()));
+        CAT.d("Scheduled %d tasks in a batch", tasks.size());
     }
 
     @Override
@@ -104,12 +114,21 @@ public class JobProxyGcm implements JobProxy {
         try {
             mGcmNetworkManager.cancelTask(createTag(jobId), PlatformGcmService.class);
         } catch (IllegalArgumentException e) {
-            if (e.getMessage() != null && e.getMessage().startsWith("The GcmTaskService class you provided")) {
-                throw new JobProxyIllegalStateException(e);
-            } else {
-                throw e;
+            throw translateException(e);
+        }
+    }
+
+    @Override
+    public void cancelBatch(@NonNull int[] jobIds) {
+        try {
+            for (int jobId : jobIds) {
+                mGcmNetworkManager.cancelTask(createTag(jobId), PlatformGcmService.class);
             }
+        } catch (IllegalArgumentException e) {
+            throw translateException(e);
         }
+
+        CAT.d("Canceled %d tasks in a batch", jobIds.length);
     }
 
     @Override
@@ -122,14 +141,50 @@ public class JobProxyGcm implements JobProxy {
         try {
             mGcmNetworkManager.schedule(task);
         } catch (IllegalArgumentException e) {
-            if (e.getMessage() != null && e.getMessage().startsWith("The GcmTaskService class you provided")) {
-                throw new JobProxyIllegalStateException(e);
-            } else {
-                throw e;
-            }
+            throw translateException(e);
+        }
+    }
+
+    private static RuntimeException translateException(IllegalArgumentException e) {
+        if (e.getMessage() != null && e.getMessage().startsWith("The GcmTaskService class you provided")) {
+            return new JobProxyIllegalStateException(e);
+        } else {
+            return e;
+        }
+    }
+
+    private Task buildTask(JobRequest request) {
+        if (!request.isPeriodic()) {
+            return createOneOffTask(request);
+        } else if (request.isFlexSupport()) {
+            return createPeriodicFlexSupportTask(request);
+        } else {
+            return createPeriodicTask(request);
         }
     }
 
+    private OneoffTask createOneOffTask(JobRequest request) {
+        long startSeconds = Common.getStartMs(request) / 1_000;
+        long endSeconds = Math.max(Common.getEndMs(request) / 1_000, startSeconds + 1); // endSeconds must be greater than startSeconds
+
+        return prepareBuilder(new OneoffTask.Builder(), request)
+                .setExecutionWindow(startSeconds, endSeconds)
+                .build();
+    }
+
+    private PeriodicTask createPeriodicTask(JobRequest request) {
+        return prepareBuilder(new PeriodicTask.Builder(), request)
+                .setPeriod(request.getIntervalMs() / 1_000)
+                .setFlex(request.getFlexMs() / 1_000)
+                .build();
+    }
+
+    private OneoffTask createPeriodicFlexSupportTask(JobRequest request) {
+        return prepareBuilder(new OneoffTask.Builder(), request)
+                .setExecutionWindow(Common.getStartMsSupportFlex(request) / 1_000, Common.getEndMsSupportFlex(request) / 1_000)
+                .build();
+    }
+
     protected <T extends Task.Builder> T prepareBuilder(T builder, JobRequest request) {
         builder.setTag(createTag(request))
                 .setService(PlatformGcmService.class)
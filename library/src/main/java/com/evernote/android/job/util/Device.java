@@ -24,11 +24,15 @@ import android.net.NetworkCapabilities;
 import android.net.NetworkInfo;
 import android.os.BatteryManager;
 import android.os.Build;
+import android.os.Environment;
 import android.os.PowerManager;
+import android.os.StatFs;
 import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.net.ConnectivityManagerCompat;
 
+import com.evernote.android.job.JobConfig;
 import com.evernote.android.job.JobRequest;
 
 /**
@@ -39,11 +43,16 @@ import com.evernote.android.job.JobRequest;
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public final class Device {
 
+    // same values as the platform uses, see DeviceStorageMonitorService
+    private static final long STORAGE_LOW_PERCENTAGE = 5;
+    private static final long STORAGE_LOW_MAX_BYTES = 500L * 1024 * 1024;
+
+    private static volatile StorageStats storageStats;
+
     private Device() {
         // no op
     }
 
-    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
     public static BatteryStatus getBatteryStatus(Context context) {
         Intent intent = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
         if (intent == null) {
@@ -51,6 +60,11 @@ public final class Device {
             return BatteryStatus.DEFAULT;
         }
 
+        return getBatteryStatus(intent);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    /*package*/ static BatteryStatus getBatteryStatus(@NonNull Intent intent) {
         int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
         int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
         float batteryPct = level / (float) scale;
@@ -130,8 +144,77 @@ public final class Device {
         }
     }
 
+    /**
+     * Checks whether the free space of the internal storage is below the threshold. The file system
+     * is queried at most once per {@link JobConfig#getStorageLowCheckInterval()}.
+     *
+     * @return Whether the storage is low.
+     * @see JobConfig#setStorageLowThreshold(long)
+     */
     public static boolean isStorageLow() {
-        // figure this out
-        return false;
+        long now = JobConfig.getClock().elapsedRealtime();
+
+        StorageStats stats = storageStats;
+        if (stats == null || isStorageStatsExpired(stats.mTimestamp, now, JobConfig.getStorageLowCheckInterval())) {
+            stats = queryStorageStats(now);
+            storageStats = stats;
+        }
+
+        return isStorageLow(stats.mAvailableBytes, stats.mTotalBytes, JobConfig.getStorageLowThreshold());
+    }
+
+    /**
+     * Drops the cached free space, the next check queries the file system again.
+     */
+    public static void clearStorageStats() {
+        storageStats = null;
+    }
+
+    @VisibleForTesting
+    /*package*/ static boolean hasStorageStats() {
+        return storageStats != null;
+    }
+
+    /*package*/ static boolean isStorageLow(long availableBytes, long totalBytes, long thresholdBytes) {
+        if (totalBytes <= 0) {
+            // the file system couldn't be queried, don't block jobs forever
+            return false;
+        }
+        if (thresholdBytes <= 0) {
+            thresholdBytes = Math.min(totalBytes * STORAGE_LOW_PERCENTAGE / 100, STORAGE_LOW_MAX_BYTES);
+        }
+        return availableBytes < thresholdBytes;
+    }
+
+    /*package*/ static boolean isStorageStatsExpired(long timestamp, long now, long interval) {
+        // a clock going backwards invalidates the result, too
+        return now < timestamp || now - timestamp >= interval;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static StorageStats queryStorageStats(long now) {
+        try {
+            StatFs statFs = new StatFs(Environment.getDataDirectory().getPath());
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                return new StorageStats(now, statFs.getAvailableBytes(), statFs.getTotalBytes());
+            } else {
+                long blockSize = statFs.getBlockSize();
+                return new StorageStats(now, statFs.getAvailableBlocks() * blockSize, statFs.getBlockCount() * blockSize);
+            }
+        } catch (Exception e) {
+            return new StorageStats(now, 0, 0);
+        }
+    }
+
+    private static final class StorageStats {
+        private final long mTimestamp;
+        private final long mAvailableBytes;
+        private final long mTotalBytes;
+
+        private StorageStats(long timestamp, long availableBytes, long totalBytes) {
+            mTimestamp = timestamp;
+            mAvailableBytes = availableBytes;
+            mTotalBytes = totalBytes;
+        }
     }
 }
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job.util;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.Build;
+import android.os.PowerManager;
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import com.evernote.android.job.JobRequest;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps a snapshot of the device state, which is needed to check the requirements of a job. Each
+ * value is queried once and then kept until a broadcast tells that it changed. Checking the
+ * requirements of many jobs in a row therefore doesn't query the system services again.
+ *
+ * <br>
+ * <br>
+ *
+ * If the receiver can't be registered, then all calls are forwarded to {@link Device}.
+ *
+ * @author rwondratschek
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class DeviceStateCache {
+
+    public static final int CHANGE_BATTERY = 1;
+    public static final int CHANGE_NETWORK = 1 << 1;
+    public static final int CHANGE_IDLE = 1 << 2;
+
+    private static final JobCat CAT = new JobCat("DeviceStateCache");
+
+    private final Context mContext;
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    private final Slot<BatteryStatus> mBatteryStatus;
+    private final Slot<JobRequest.NetworkType> mNetworkType;
+    private final Slot<Boolean> mIdle;
+
+    private BroadcastReceiver mReceiver;
+    private volatile boolean mRegistered;
+    private boolean mRegistrationFailed;
+
+    public DeviceStateCache(@NonNull Context context) {
+        Context appContext = context.getApplicationContext();
+        mContext = appContext == null ? context : appContext;
+
+        mBatteryStatus = new Slot<BatteryStatus>() {
+            @Override
+            protected BatteryStatus load() {
+                return Device.getBatteryStatus(mContext);
+            }
+        };
+        mNetworkType = new Slot<JobRequest.NetworkType>() {
+            @Override
+            protected JobRequest.NetworkType load() {
+                return Device.getNetworkType(mContext);
+            }
+        };
+        mIdle = new Slot<Boolean>() {
+            @Override
+            protected Boolean load() {
+                return Device.isIdle(mContext);
+            }
+        };
+    }
+
+    @NonNull
+    public BatteryStatus getBatteryStatus() {
+        return ensureRegistered() ? mBatteryStatus.get() : Device.getBatteryStatus(mContext);
+    }
+
+    @NonNull
+    public JobRequest.NetworkType getNetworkType() {
+        return ensureRegistered() ? mNetworkType.get() : Device.getNetworkType(mContext);
+    }
+
+    public boolean isIdle() {
+        return ensureRegistered() ? mIdle.get() : Device.isIdle(mContext);
+    }
+
+    /**
+     * Registers a listener, which is notified after a broadcast changed the snapshot. The listener is
+     * called on the main thread.
+     *
+     * @return Whether the listener is going to be notified. If the broadcast receiver couldn't be
+     * registered, then there won't be any callbacks.
+     */
+    public boolean addListener(@NonNull Listener listener) {
+        if (!ensureRegistered()) {
+            return false;
+        }
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+        return true;
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Drops all cached values, the next call queries the system services again.
+     */
+    public void invalidate() {
+        mBatteryStatus.invalidate();
+        mNetworkType.invalidate();
+        mIdle.invalidate();
+    }
+
+    public synchronized void unregister() {
+        if (mReceiver != null) {
+            try {
+                mContext.unregisterReceiver(mReceiver);
+            } catch (Exception ignored) {
+            }
+            mReceiver = null;
+        }
+        mListeners.clear();
+        mRegistered = false;
+        invalidate();
+    }
+
+    private boolean ensureRegistered() {
+        if (mRegistered) {
+            return true;
+        }
+
+        synchronized (this) {
+            if (mRegistered || mRegistrationFailed) {
+                return mRegistered;
+            }
+
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_BATTERY_CHANGED);
+            filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
+            filter.addAction(Intent.ACTION_SCREEN_ON);
+            filter.addAction(Intent.ACTION_SCREEN_OFF);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                filter.addAction(PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED);
+            }
+
+            BroadcastReceiver receiver = new StateReceiver();
+            try {
+                mContext.registerReceiver(receiver, filter);
+            } catch (Exception e) {
+                // without broadcasts the values could become stale, always ask the system services instead
+                CAT.w("Could not register device state receiver, %s", e.getMessage());
+                mRegistrationFailed = true;
+                return false;
+            }
+
+            // values loaded before the receiver was registered could have missed a change
+            invalidate();
+            mReceiver = receiver;
+            mRegistered = true;
+            return true;
+        }
+    }
+
+    private final class StateReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent == null ? null : intent.getAction();
+            if (action == null) {
+                return;
+            }
+
+            int change;
+            switch (action) {
+                case Intent.ACTION_BATTERY_CHANGED:
+                    mBatteryStatus.set(Device.getBatteryStatus(intent));
+                    change = CHANGE_BATTERY;
+                    break;
+                case ConnectivityManager.CONNECTIVITY_ACTION:
+                    mNetworkType.invalidate();
+                    change = CHANGE_NETWORK;
+                    break;
+                default:
+                    mIdle.invalidate();
+                    change = CHANGE_IDLE;
+                    break;
+            }
+
+            for (Listener listener : mListeners) {
+                listener.onDeviceStateChanged(change);
+            }
+        }
+    }
+
+    /**
+     * Notified about changes of the device state.
+     */
+    public interface Listener {
+        /**
+         * @param change Which part of the snapshot changed, one of {@link #CHANGE_BATTERY},
+         *               {@link #CHANGE_NETWORK} or {@link #CHANGE_IDLE}.
+         */
+        void onDeviceStateChanged(int change);
+    }
+
+    /**
+     * Holds one value. A value loaded concurrently with a change is dropped, otherwise an outdated
+     * value could outlive the broadcast, which reported the change.
+     */
+    private abstract static class Slot<T> {
+        private int mGeneration;
+        private volatile Entry<T> mEntry;
+
+        protected abstract T load();
+
+        public T get() {
+            Entry<T> entry = mEntry;
+            if (entry != null) {
+                return entry.mValue;
+            }
+
+            int generation;
+            synchronized (this) {
+                generation = mGeneration;
+            }
+
+            T value = load();
+
+            synchronized (this) {
+                if (generation == mGeneration) {
+                    mEntry = new Entry<>(value);
+                }
+            }
+            return value;
+        }
+
+        public synchronized void set(T value) {
+            mGeneration++;
+            mEntry = new Entry<>(value);
+        }
+
+        public synchronized void invalidate() {
+            mGeneration++;
+            mEntry = null;
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T mValue;
+
+        private Entry(T value) {
+            mValue = value;
+        }
+    }
+}
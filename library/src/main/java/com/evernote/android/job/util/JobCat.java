@@ -32,6 +32,8 @@ public class JobCat implements JobLogger {
 
     private static volatile JobLogger[] loggers = new JobLogger[0]; // use array to avoid synchronization while printing log statements
     private static volatile boolean logcatEnabled = true;
+    private static volatile int minPriority = Log.VERBOSE;
+    private static volatile boolean hasLoggers; // avoids iterating the array for each isLoggable() call
 
     /**
      * Add a global logger for the job library, which will be notified about each log statement.
@@ -50,6 +52,7 @@ public class JobCat implements JobLogger {
         for (int i = 0; i < loggers.length; i++) {
             if (loggers[i] == null) {
                 loggers[i] = logger;
+                hasLoggers = true;
                 return true;
             }
         }
@@ -57,6 +60,7 @@ public class JobCat implements JobLogger {
         int index = loggers.length;
         loggers = Arrays.copyOf(loggers, loggers.length + 2);
         loggers[index] = logger;
+        hasLoggers = true;
         return true;
     }
 
@@ -73,10 +77,22 @@ public class JobCat implements JobLogger {
                 // continue, maybe for some reason the logger is twice in the array
             }
         }
+        updateHasLoggers();
     }
 
     public static synchronized void clearLogger() {
         Arrays.fill(loggers, null);
+        hasLoggers = false;
+    }
+
+    private static void updateHasLoggers() {
+        for (JobLogger logger : loggers) {
+            if (logger != null) {
+                hasLoggers = true;
+                return;
+            }
+        }
+        hasLoggers = false;
     }
 
     /**
@@ -95,6 +111,23 @@ public class JobCat implements JobLogger {
         return logcatEnabled;
     }
 
+    /**
+     * Global threshold for all log messages. Messages with a lower priority are neither printed to
+     * Logcat nor passed to custom loggers.
+     *
+     * @param priority The minimum priority, e.g. {@link Log#INFO}. The default value is {@link Log#VERBOSE}.
+     */
+    public static void setMinPriority(int priority) {
+        JobCat.minPriority = priority;
+    }
+
+    /**
+     * @return The minimum priority of printed log messages. The default value is {@link Log#VERBOSE}.
+     */
+    public static int getMinPriority() {
+        return minPriority;
+    }
+
     protected final String mTag;
     protected final boolean mEnabled;
 
@@ -111,12 +144,26 @@ public class JobCat implements JobLogger {
         mEnabled = enabled;
     }
 
+    /**
+     * A message is dropped if this instance is disabled, if its priority is below the
+     * {@link #setMinPriority(int) minimum priority} or if neither Logcat nor a custom logger would
+     * print it. Callers should check this method before building expensive log arguments.
+     *
+     * @param priority The priority of the message, e.g. {@link Log#DEBUG}.
+     * @return Whether a message with this priority would be printed anywhere.
+     */
+    public boolean isLoggable(int priority) {
+        return mEnabled && priority >= minPriority && (logcatEnabled || hasLoggers);
+    }
+
     public void i(@NonNull String message) {
         log(Log.INFO, mTag, message, null);
     }
 
     public void i(@NonNull String message, Object... args) {
-        log(Log.INFO, mTag, String.format(message, args), null);
+        if (isLoggable(Log.INFO)) {
+            log(Log.INFO, mTag, String.format(message, args), null);
+        }
     }
 
     public void d(@NonNull String message) {
@@ -124,11 +171,15 @@ public class JobCat implements JobLogger {
     }
 
     public void d(@NonNull String message, Object... args) {
-        log(Log.DEBUG, mTag, String.format(message, args), null);
+        if (isLoggable(Log.DEBUG)) {
+            log(Log.DEBUG, mTag, String.format(message, args), null);
+        }
     }
 
     public void d(@NonNull Throwable t, String message, Object... args) {
-        log(Log.DEBUG, mTag, String.format(message, args), t);
+        if (isLoggable(Log.DEBUG)) {
+            log(Log.DEBUG, mTag, String.format(message, args), t);
+        }
     }
 
     public void w(@NonNull String message) {
@@ -136,11 +187,15 @@ public class JobCat implements JobLogger {
     }
 
     public void w(@NonNull String message, Object... args) {
-        log(Log.WARN, mTag, String.format(message, args), null);
+        if (isLoggable(Log.WARN)) {
+            log(Log.WARN, mTag, String.format(message, args), null);
+        }
     }
 
     public void w(@NonNull Throwable t, @NonNull String message, Object... args) {
-        log(Log.WARN, mTag, String.format(message, args), t);
+        if (isLoggable(Log.WARN)) {
+            log(Log.WARN, mTag, String.format(message, args), t);
+        }
     }
 
     public void e(@NonNull Throwable t) {
@@ -153,16 +208,20 @@ public class JobCat implements JobLogger {
     }
 
     public void e(@NonNull String message, Object... args) {
-        log(Log.ERROR, mTag, String.format(message, args), null);
+        if (isLoggable(Log.ERROR)) {
+            log(Log.ERROR, mTag, String.format(message, args), null);
+        }
     }
 
     public void e(@NonNull Throwable t, @NonNull String message, Object... args) {
-        log(Log.ERROR, mTag, String.format(message, args), t);
+        if (isLoggable(Log.ERROR)) {
+            log(Log.ERROR, mTag, String.format(message, args), t);
+        }
     }
 
     @Override
     public void log(int priority, @NonNull String tag, @NonNull String message, @Nullable Throwable t) {
-        if (!mEnabled) {
+        if (!isLoggable(priority)) {
             return;
         }
 
@@ -172,7 +231,7 @@ public class JobCat implements JobLogger {
         }
 
         JobLogger[] printers = JobCat.loggers;
-        if (printers.length > 0) {
+        if (hasLoggers) {
             for (JobLogger logger : printers) {
                 if (logger != null) {
                     logger.log(priority, tag, message, t);
@@ -19,6 +19,7 @@ import android.Manifest;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -40,6 +41,9 @@ public final class JobUtil {
 
     private static final JobCat CAT = new JobCat("JobUtil");
 
+    // the permission is granted at install time and can't change while the process is alive, null if not checked yet
+    private static volatile Boolean bootPermission;
+
     private JobUtil() {
         // no op
     }
@@ -69,11 +73,34 @@ public final class JobUtil {
     }
 
     /**
+     * The result is memoized, only the first call asks the package manager.
+     *
      * @param context Any context.
      * @return Whether the package has the RECEIVE_BOOT_COMPLETED permission.
      */
     public static boolean hasBootPermission(Context context) {
-        return hasPermission(context, Manifest.permission.RECEIVE_BOOT_COMPLETED, 0);
+        Boolean permission = bootPermission;
+        if (permission == null) {
+            permission = hasPermission(context, Manifest.permission.RECEIVE_BOOT_COMPLETED, 0);
+            bootPermission = permission;
+        }
+        return permission;
+    }
+
+    /**
+     * Remembers that the platform refused to persist a job, although the package manager reported
+     * the RECEIVE_BOOT_COMPLETED permission.
+     */
+    public static void onBootPermissionDenied() {
+        bootPermission = false;
+    }
+
+    /**
+     * Forgets the memoized boot permission, only necessary for tests.
+     */
+    @VisibleForTesting
+    public static void invalidateBootPermission() {
+        bootPermission = null;
     }
 
     /**
@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2018 Evernote Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evernote.android.job.util.support;
+
+import androidx.annotation.NonNull;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding for the values of a {@link PersistableBundleCompat}. The layout is
+ *
+ * <pre>
+ * data   = magic(2) version(1) map
+ * map    = count(varint) (key(string) value)*
+ * value  = type(1) payload
+ * string = (length + 1)(varint) utf8, a length of 0 encodes null
+ * </pre>
+ *
+ * Integers and longs are zigzag encoded varints, doubles use their raw 8 byte representation.
+ *
+ * @author rwondratschek
+ */
+/*package*/ final class BinaryMapCodec {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte MAGIC_0 = 0x4A; // 'J'
+    private static final byte MAGIC_1 = 0x42; // 'B'
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_INT_ARRAY = 6;
+    private static final byte TYPE_LONG_ARRAY = 7;
+    private static final byte TYPE_DOUBLE_ARRAY = 8;
+    private static final byte TYPE_STRING_ARRAY = 9;
+    private static final byte TYPE_MAP = 10;
+
+    private static final int MAX_DEPTH = 64;
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private static final ThreadLocal<Output> OUTPUT = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output();
+        }
+    };
+
+    private BinaryMapCodec() {
+        // no op
+    }
+
+    /**
+     * @return Whether the data starts with the header of this encoding.
+     */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= 3 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the map contains a value, which can't be encoded.
+     */
+    @NonNull
+    public static byte[] encode(@NonNull Map<String, ?> map) {
+        Output output = OUTPUT.get();
+        output.reset();
+
+        output.writeByte(MAGIC_0);
+        output.writeByte(MAGIC_1);
+        output.writeByte(VERSION);
+        writeMap(output, map, 0);
+
+        byte[] result = output.toByteArray();
+        output.trim();
+        return result;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the data is corrupted or uses an unknown version.
+     */
+    @NonNull
+    public static HashMap<String, Object> decode(@NonNull byte[] data) {
+        if (!isBinary(data)) {
+            throw new IllegalArgumentException("Missing header");
+        }
+        if (data[2] != VERSION) {
+            throw new IllegalArgumentException("Unknown version " + data[2]);
+        }
+
+        Input input = new Input(data, 3);
+        HashMap<String, Object> map = readMap(input, 0);
+        if (input.mPosition != data.length) {
+            throw new IllegalArgumentException("Trailing bytes");
+        }
+        return map;
+    }
+
+    private static void writeMap(Output output, Map<?, ?> map, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Nesting too deep");
+        }
+
+        output.writeVarint(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object key = entry.getKey();
+            if (key != null && !(key instanceof String)) {
+                throw new IllegalArgumentException("Key must be a String " + key);
+            }
+            output.writeString((String) key);
+            writeValue(output, entry.getValue(), depth);
+        }
+    }
+
+    private static void writeValue(Output output, Object value, int depth) {
+        if (value == null) {
+            output.writeByte(TYPE_NULL);
+
+        } else if (value instanceof String) {
+            output.writeByte(TYPE_STRING);
+            output.writeString((String) value);
+
+        } else if (value instanceof Integer) {
+            output.writeByte(TYPE_INT);
+            output.writeVarLong(zigZag((Integer) value));
+
+        } else if (value instanceof Long) {
+            output.writeByte(TYPE_LONG);
+            output.writeVarLong(zigZag((Long) value));
+
+        } else if (value instanceof Boolean) {
+            output.writeByte(TYPE_BOOLEAN);
+            output.writeByte((Boolean) value ? (byte) 1 : (byte) 0);
+
+        } else if (value instanceof Double) {
+            output.writeByte(TYPE_DOUBLE);
+            output.writeFixed64(Double.doubleToRawLongBits((Double) value));
+
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            output.writeByte(TYPE_INT_ARRAY);
+            output.writeVarint(array.length);
+            for (int item : array) {
+                output.writeVarLong(zigZag(item));
+            }
+
+        } else if (value instanceof long[]) {
+            long[] array = (long[]) value;
+            output.writeByte(TYPE_LONG_ARRAY);
+            output.writeVarint(array.length);
+            for (long item : array) {
+                output.writeVarLong(zigZag(item));
+            }
+
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            output.writeByte(TYPE_DOUBLE_ARRAY);
+            output.writeVarint(array.length);
+            for (double item : array) {
+                output.writeFixed64(Double.doubleToRawLongBits(item));
+            }
+
+        } else if (value instanceof String[]) {
+            String[] array = (String[]) value;
+            output.writeByte(TYPE_STRING_ARRAY);
+            output.writeVarint(array.length);
+            for (String item : array) {
+                output.writeString(item);
+            }
+
+        } else if (value instanceof Map) {
+            output.writeByte(TYPE_MAP);
+            writeMap(output, (Map<?, ?>) value, depth + 1);
+
+        } else {
+            throw new IllegalArgumentException("Unsupported type " + value.getClass().getName());
+        }
+    }
+
+    private static HashMap<String, Object> readMap(Input input, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Nesting too deep");
+        }
+
+        int size = input.readLength();
+        HashMap<String, Object> map = new HashMap<>(Math.max(4, size * 4 / 3 + 1));
+        for (int i = 0; i < size; i++) {
+            String key = input.readString();
+            map.put(key, readValue(input, depth));
+        }
+        return map;
+    }
+
+    private static Object readValue(Input input, int depth) {
+        byte type = input.readByte();
+        int length;
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_BOOLEAN:
+                return input.readByte() != 0;
+            case TYPE_INT:
+                return (int) unZigZag(input.readVarLong());
+            case TYPE_LONG:
+                return unZigZag(input.readVarLong());
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(input.readFixed64());
+            case TYPE_STRING:
+                return input.readString();
+            case TYPE_INT_ARRAY:
+                length = input.readLength();
+                int[] ints = new int[length];
+                for (int i = 0; i < length; i++) {
+                    ints[i] = (int) unZigZag(input.readVarLong());
+                }
+                return ints;
+            case TYPE_LONG_ARRAY:
+                length = input.readLength();
+                long[] longs = new long[length];
+                for (int i = 0; i < length; i++) {
+                    longs[i] = unZigZag(input.readVarLong());
+                }
+                return longs;
+            case TYPE_DOUBLE_ARRAY:
+                length = input.readLength();
+                double[] doubles = new double[length];
+                for (int i = 0; i < length; i++) {
+                    doubles[i] = Double.longBitsToDouble(input.readFixed64());
+                }
+                return doubles;
+            case TYPE_STRING_ARRAY:
+                length = input.readLength();
+                String[] strings = new String[length];
+                for (int i = 0; i < length; i++) {
+                    strings[i] = input.readString();
+                }
+                return strings;
+            case TYPE_MAP:
+                return readMap(input, depth + 1);
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Output {
+        private byte[] mBuffer = new byte[256];
+        private int mPosition;
+
+        private void reset() {
+            mPosition = 0;
+        }
+
+        private void trim() {
+            // don't keep huge buffers around forever
+            if (mBuffer.length > MAX_RETAINED_BUFFER) {
+                mBuffer = new byte[256];
+            }
+        }
+
+        private void ensureCapacity(int additional) {
+            int required = mPosition + additional;
+            if (required > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(required, mBuffer.length * 2));
+            }
+        }
+
+        private void writeByte(byte value) {
+            ensureCapacity(1);
+            mBuffer[mPosition++] = value;
+        }
+
+        private void writeVarint(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                mBuffer[mPosition++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mPosition++] = (byte) value;
+        }
+
+        private void writeFixed64(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                mBuffer[mPosition++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+
+            int length = value.length();
+            int utfLength = 0;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    utfLength++;
+                } else if (c < 0x800) {
+                    utfLength += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    utfLength += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    utfLength++; // replaced with '?' like String.getBytes()
+                } else {
+                    utfLength += 3;
+                }
+            }
+
+            writeVarint(utfLength + 1);
+            ensureCapacity(utfLength);
+
+            byte[] buffer = mBuffer;
+            int position = mPosition;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xC0 | (c >> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buffer[position++] = '?';
+                } else {
+                    buffer[position++] = (byte) (0xE0 | (c >> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            mPosition = position;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(mBuffer, mPosition);
+        }
+    }
+
+    private static final class Input {
+        private final byte[] mData;
+        private int mPosition;
+
+        private Input(byte[] data, int position) {
+            mData = data;
+            mPosition = position;
+        }
+
+        private void require(int count) {
+            if (count < 0 || mPosition + count > mData.length) {
+                throw new IllegalArgumentException("Unexpected end of data");
+            }
+        }
+
+        private byte readByte() {
+            require(1);
+            return mData[mPosition++];
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private int readLength() {
+            long length = readVarLong();
+            // each element needs at least one byte, this protects against huge allocations
+            if (length < 0 || length > mData.length - mPosition) {
+                throw new IllegalArgumentException("Invalid length " + length);
+            }
+            return (int) length;
+        }
+
+        private long readFixed64() {
+            require(8);
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result = (result << 8) | (mData[mPosition++] & 0xFF);
+            }
+            return result;
+        }
+
+        private String readString() {
+            long length = readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            if (length - 1 > mData.length - mPosition) {
+                throw new IllegalArgumentException("Invalid string length " + length);
+            }
+
+            int utfLength = (int) (length - 1);
+            String result = new String(mData, mPosition, utfLength, UTF_8);
+            mPosition += utfLength;
+            return result;
+        }
+    }
+}
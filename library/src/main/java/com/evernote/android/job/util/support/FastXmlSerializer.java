@@ -72,6 +72,21 @@ class FastXmlSerializer implements XmlSerializer {
     private int mNesting = 0;
     private boolean mLineStart = true;
 
+    /**
+     * Resets the state, so that this instance and its buffers can be reused for the next document.
+     */
+    /*package*/ void reset() {
+        mPos = 0;
+        mWriter = null;
+        mOutputStream = null;
+        mCharset = null;
+        mBytes.clear();
+        mIndent = false;
+        mInTag = false;
+        mNesting = 0;
+        mLineStart = true;
+    }
+
     private void append(char c) throws IOException {
         int pos = mPos;
         if (pos >= (BUFFER_LEN-1)) {
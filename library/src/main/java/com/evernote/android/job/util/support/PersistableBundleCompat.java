@@ -17,14 +17,15 @@ package com.evernote.android.job.util.support;
 
 import android.os.PersistableBundle;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.evernote.android.job.util.JobCat;
 
 import org.xmlpull.v1.XmlPullParserException;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -39,7 +40,14 @@ import java.util.Set;
 public final class PersistableBundleCompat {
 
     private static final JobCat CAT = new JobCat("PersistableBundleCompat");
-    private static final String UTF_8 = "UTF-8";
+    private static final int MAX_RETAINED_XML_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<StringWriter> XML_WRITER = new ThreadLocal<StringWriter>() {
+        @Override
+        protected StringWriter initialValue() {
+            return new StringWriter(1024);
+        }
+    };
 
     private final Map<String, Object> mValues;
 
@@ -220,10 +228,10 @@ public final class PersistableBundleCompat {
 
     @NonNull
     public String saveToXml() {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        StringWriter writer = XML_WRITER.get();
         try {
-            XmlUtils.writeMapXml(mValues, outputStream);
-            return outputStream.toString(UTF_8);
+            XmlUtils.writeMapXml(mValues, writer);
+            return writer.toString();
 
         } catch (XmlPullParserException | IOException e) {
             CAT.e(e);
@@ -236,20 +244,61 @@ public final class PersistableBundleCompat {
             return "";
 
         } finally {
-            try {
-                outputStream.close();
-            } catch (IOException ignored) {
+            StringBuffer buffer = writer.getBuffer();
+            if (buffer.capacity() > MAX_RETAINED_XML_BUFFER) {
+                // don't keep huge buffers around forever
+                XML_WRITER.remove();
+            } else {
+                buffer.setLength(0);
             }
         }
     }
 
+    /**
+     * Encodes this bundle in a compact binary format, which is faster to write and read than XML.
+     *
+     * @return The encoded bundle or {@code null}, if the bundle contains a value, which only can be
+     * stored with {@link #saveToXml()}.
+     * @see #fromBinary(byte[])
+     */
+    @Nullable
+    public byte[] saveToBinary() {
+        try {
+            return BinaryMapCodec.encode(mValues);
+        } catch (IllegalArgumentException e) {
+            CAT.w(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param data The result of {@link #saveToBinary()}.
+     * @return The decoded bundle. The bundle is empty, if the data is corrupted.
+     */
+    @NonNull
+    public static PersistableBundleCompat fromBinary(@NonNull byte[] data) {
+        try {
+            return new PersistableBundleCompat(BinaryMapCodec.decode(data));
+        } catch (IllegalArgumentException e) {
+            CAT.e(e);
+            return new PersistableBundleCompat();
+        }
+    }
+
+    /**
+     * @return Whether the data was created with {@link #saveToBinary()}.
+     */
+    public static boolean isBinary(@Nullable byte[] data) {
+        return BinaryMapCodec.isBinary(data);
+    }
+
     @SuppressWarnings("unchecked")
     @NonNull
     public static PersistableBundleCompat fromXml(@NonNull String xml) {
-        ByteArrayInputStream inputStream = null;
+        StringReader reader = null;
         try {
-            inputStream = new ByteArrayInputStream(xml.getBytes(UTF_8));
-            HashMap<String, ?> map = XmlUtils.readMapXml(inputStream);
+            reader = new StringReader(xml);
+            HashMap<String, ?> map = XmlUtils.readMapXml(reader);
             return new PersistableBundleCompat((Map<String, Object>) map);
 
         } catch (XmlPullParserException | IOException e) {
@@ -262,11 +311,8 @@ public final class PersistableBundleCompat {
             return new PersistableBundleCompat();
 
         } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException ignored) {
-                }
+            if (reader != null) {
+                reader.close();
             }
         }
     }
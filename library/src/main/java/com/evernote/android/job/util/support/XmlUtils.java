@@ -30,6 +30,8 @@ import org.xmlpull.v1.XmlSerializer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.ProtocolException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -44,6 +46,13 @@ import java.util.Set;
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 final class XmlUtils {
 
+    private static final ThreadLocal<FastXmlSerializer> SERIALIZER = new ThreadLocal<FastXmlSerializer>() {
+        @Override
+        protected FastXmlSerializer initialValue() {
+            return new FastXmlSerializer();
+        }
+    };
+
     private XmlUtils() {
         // no op
     }
@@ -177,8 +186,38 @@ final class XmlUtils {
      */
     public static final void writeMapXml(Map val, OutputStream out)
             throws XmlPullParserException, java.io.IOException {
-        XmlSerializer serializer = new FastXmlSerializer();
-        serializer.setOutput(out, "utf-8");
+        FastXmlSerializer serializer = SERIALIZER.get();
+        try {
+            serializer.setOutput(out, "utf-8");
+            writeMapDocument(val, serializer);
+        } finally {
+            serializer.reset();
+        }
+    }
+
+    /**
+     * Flatten a Map into a writer as XML without encoding the characters into bytes first. The
+     * serializer and its char buffer are reused for each thread.
+     *
+     * @param val The map to be flattened.
+     * @param out Where to write the XML data.
+     *
+     * @see #writeMapXml(Map, OutputStream)
+     * @see #readMapXml(Reader)
+     */
+    public static final void writeMapXml(Map val, Writer out)
+            throws XmlPullParserException, java.io.IOException {
+        FastXmlSerializer serializer = SERIALIZER.get();
+        try {
+            serializer.setOutput(out);
+            writeMapDocument(val, serializer);
+        } finally {
+            serializer.reset();
+        }
+    }
+
+    private static void writeMapDocument(Map val, XmlSerializer serializer)
+            throws XmlPullParserException, java.io.IOException {
         serializer.startDocument(null, true);
         serializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true);
         writeMapXml(val, null, serializer);
@@ -688,6 +727,25 @@ final class XmlUtils {
         return (HashMap<String, ?>) readValueXml(parser, new String[1]);
     }
 
+    /**
+     * Read a HashMap from a reader containing XML, e.g. directly from a string without decoding
+     * it into bytes first. The reader can previously have been filled by writeMapXml().
+     *
+     * @param in The reader from which to read.
+     *
+     * @return HashMap The resulting map.
+     *
+     * @see #readMapXml(InputStream)
+     * @see #writeMapXml(Map, Writer)
+     */
+    @SuppressWarnings("unchecked")
+    public static final HashMap<String, ?> readMapXml(Reader in)
+            throws XmlPullParserException, java.io.IOException {
+        XmlPullParser   parser = Xml.newPullParser();
+        parser.setInput(in);
+        return (HashMap<String, ?>) readValueXml(parser, new String[1]);
+    }
+
     /**
      * Read an ArrayList from an InputStream containing XML.  The stream can
      * previously have been written by writeListXml().
@@ -22,15 +22,20 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
+import android.util.Log;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
+import com.evernote.android.job.JobAlarmQueue;
 import com.evernote.android.job.JobConfig;
 import com.evernote.android.job.JobProxy;
 import com.evernote.android.job.JobRequest;
 import com.evernote.android.job.util.JobCat;
 import com.evernote.android.job.util.JobUtil;
 
+import java.util.List;
+
 /**
  * @author rwondratschek
  */
@@ -56,7 +61,8 @@ public class JobProxy14 implements JobProxy {
 
     @Override
     public void plantOneOff(JobRequest request) {
-        PendingIntent pendingIntent = getPendingIntent(request, false);
+        boolean queued = JobAlarmQueue.accepts(request);
+        PendingIntent pendingIntent = queued ? null : getPendingIntent(request, false);
 
         AlarmManager alarmManager = getAlarmManager();
         if (alarmManager == null) {
@@ -64,13 +70,14 @@ public class JobProxy14 implements JobProxy {
         }
 
         try {
-            if (request.isExact()) {
-                if (request.getStartMs() == 1 && request.getFailureCount() <= 0) {
-                    // this job should start immediately
-                    PlatformAlarmService.start(mContext, request.getJobId(), request.getTransientExtras());
-                } else {
-                    plantOneOffExact(request, alarmManager, pendingIntent);
-                }
+            if (request.isExact() && request.getStartMs() == 1 && request.getFailureCount() <= 0) {
+                // this job should start immediately
+                PlatformAlarmService.start(mContext, request.getJobId(), request.getTransientExtras());
+            } else if (queued) {
+                // shares the alarm with all other queued jobs
+                JobAlarmQueue.get(mContext).add(request);
+            } else if (request.isExact()) {
+                plantOneOffExact(request, alarmManager, pendingIntent);
             } else {
                 plantOneOffInexact(request, alarmManager, pendingIntent);
             }
@@ -102,8 +109,10 @@ public class JobProxy14 implements JobProxy {
         long triggerAtMs = JobConfig.getClock().currentTimeMillis() + Common.getAverageDelayMsSupportFlex(request);
         alarmManager.set(AlarmManager.RTC, triggerAtMs, pendingIntent);
 
-        mCat.d("Scheduled repeating alarm (flex support), %s, interval %s, flex %s", request,
-                JobUtil.timeToString(request.getIntervalMs()), JobUtil.timeToString(request.getFlexMs()));
+        if (mCat.isLoggable(Log.DEBUG)) {
+            mCat.d("Scheduled repeating alarm (flex support), %s, interval %s, flex %s", request,
+                    JobUtil.timeToString(request.getIntervalMs()), JobUtil.timeToString(request.getFlexMs()));
+        }
     }
 
     protected long getTriggerAtMillis(JobRequest request) {
@@ -123,8 +132,10 @@ public class JobProxy14 implements JobProxy {
     }
 
     private void logScheduled(JobRequest request) {
-        mCat.d("Scheduled alarm, %s, delay %s (from now), exact %b, reschedule count %d", request,
-                JobUtil.timeToString(Common.getAverageDelayMs(request)), request.isExact(), Common.getRescheduleCount(request));
+        if (mCat.isLoggable(Log.DEBUG)) {
+            mCat.d("Scheduled alarm, %s, delay %s (from now), exact %b, reschedule count %d", request,
+                    JobUtil.timeToString(Common.getAverageDelayMs(request)), request.isExact(), Common.getRescheduleCount(request));
+        }
     }
 
     @Override
@@ -135,7 +146,9 @@ public class JobProxy14 implements JobProxy {
             alarmManager.setRepeating(getType(true), getTriggerAtMillis(request), request.getIntervalMs(), pendingIntent);
         }
 
-        mCat.d("Scheduled repeating alarm, %s, interval %s", request, JobUtil.timeToString(request.getIntervalMs()));
+        if (mCat.isLoggable(Log.DEBUG)) {
+            mCat.d("Scheduled repeating alarm, %s, interval %s", request, JobUtil.timeToString(request.getIntervalMs()));
+        }
     }
 
     @Override
@@ -155,8 +168,20 @@ public class JobProxy14 implements JobProxy {
         }
     }
 
+    @Override
+    public void plantBatch(@NonNull List<JobRequest> requests) {
+        for (JobRequest request : requests) {
+            Common.plant(this, request);
+        }
+    }
+
     @Override
     public void cancel(int jobId) {
+        if (JobConfig.isAlarmQueueEnabled() && JobAlarmQueue.get(mContext).isQueued(jobId)) {
+            // there is no alarm for this job, the queue skips it once the request is removed
+            return;
+        }
+
         AlarmManager alarmManager = getAlarmManager();
         if (alarmManager != null) {
             try {
@@ -171,8 +196,19 @@ public class JobProxy14 implements JobProxy {
         }
     }
 
+    @Override
+    public void cancelBatch(@NonNull int[] jobIds) {
+        for (int jobId : jobIds) {
+            cancel(jobId);
+        }
+    }
+
     @Override
     public boolean isPlatformJobScheduled(JobRequest request) {
+        if (JobAlarmQueue.accepts(request)) {
+            return JobAlarmQueue.get(mContext).isScheduled(request);
+        }
+
         PendingIntent pendingIntent = getPendingIntent(request, PendingIntent.FLAG_NO_CREATE);
         return pendingIntent != null;
     }
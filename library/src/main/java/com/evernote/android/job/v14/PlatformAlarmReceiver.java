@@ -19,10 +19,14 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
+import com.evernote.android.job.JobAlarmQueue;
+import com.evernote.android.job.JobConfig;
 import com.evernote.android.job.JobProxy;
+import com.evernote.android.job.util.JobCat;
 
 /**
  * @author rwondratschek
@@ -30,9 +34,12 @@ import com.evernote.android.job.JobProxy;
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class PlatformAlarmReceiver extends BroadcastReceiver {
 
+    private static final JobCat CAT = new JobCat("PlatformAlarmReceiver");
+
     /*package*/ static final String EXTRA_JOB_ID = "EXTRA_JOB_ID";
     /*package*/ static final String EXTRA_JOB_EXACT = "EXTRA_JOB_EXACT";
     /*package*/ static final String EXTRA_TRANSIENT_EXTRAS = "EXTRA_TRANSIENT_EXTRAS";
+    /*package*/ static final String EXTRA_QUEUE_EXACT = "EXTRA_QUEUE_EXACT";
 
     /*package*/ static Intent createIntent(Context context, int jobId, boolean exact, @Nullable Bundle transientExtras) {
         Intent intent = new Intent(context, PlatformAlarmReceiver.class).putExtra(EXTRA_JOB_ID, jobId).putExtra(EXTRA_JOB_EXACT, exact);
@@ -42,9 +49,16 @@ public class PlatformAlarmReceiver extends BroadcastReceiver {
         return intent;
     }
 
+    public static Intent createQueueIntent(Context context, boolean exact) {
+        return new Intent(context, PlatformAlarmReceiver.class).putExtra(EXTRA_QUEUE_EXACT, exact);
+    }
+
     @Override
     public void onReceive(Context context, Intent intent) {
-        if (intent != null && intent.hasExtra(EXTRA_JOB_ID) && intent.hasExtra(EXTRA_JOB_EXACT)) {
+        if (intent != null && intent.hasExtra(EXTRA_QUEUE_EXACT)) {
+            dispatchQueue(context, intent.getBooleanExtra(EXTRA_QUEUE_EXACT, false));
+
+        } else if (intent != null && intent.hasExtra(EXTRA_JOB_ID) && intent.hasExtra(EXTRA_JOB_EXACT)) {
             int jobId = intent.getIntExtra(EXTRA_JOB_ID, -1);
             Bundle transientExtras = intent.getBundleExtra(EXTRA_TRANSIENT_EXTRAS);
 
@@ -56,4 +70,23 @@ public class PlatformAlarmReceiver extends BroadcastReceiver {
             }
         }
     }
+
+    private void dispatchQueue(@NonNull final Context context, final boolean exact) {
+        // the queue reads the database, keep the broadcast and its wake lock alive until all due jobs were started
+        final PendingResult pendingResult = goAsync();
+        JobConfig.getExecutorService().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    JobAlarmQueue.get(context).dispatch(exact);
+                } catch (Exception e) {
+                    CAT.e(e);
+                } finally {
+                    if (pendingResult != null) {
+                        pendingResult.finish();
+                    }
+                }
+            }
+        });
+    }
 }
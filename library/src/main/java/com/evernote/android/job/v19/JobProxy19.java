@@ -20,6 +20,7 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.os.Build;
+import android.util.Log;
 import androidx.annotation.RestrictTo;
 
 import com.evernote.android.job.JobRequest;
@@ -47,8 +48,10 @@ public class JobProxy19 extends JobProxy14 {
 
         alarmManager.setWindow(AlarmManager.RTC, startMs, lengthMs, pendingIntent);
 
-        mCat.d("Schedule alarm, %s, start %s, end %s", request,
-                JobUtil.timeToString(Common.getStartMs(request)), JobUtil.timeToString(Common.getEndMs(request)));
+        if (mCat.isLoggable(Log.DEBUG)) {
+            mCat.d("Schedule alarm, %s, start %s, end %s", request,
+                    JobUtil.timeToString(Common.getStartMs(request)), JobUtil.timeToString(Common.getEndMs(request)));
+        }
     }
 
     @Override
@@ -59,8 +62,10 @@ public class JobProxy19 extends JobProxy14 {
 
         alarmManager.setWindow(AlarmManager.RTC, startMs, lengthMs, pendingIntent);
 
-        mCat.d("Scheduled repeating alarm (flex support), %s, start %s, end %s, flex %s", request,
-                JobUtil.timeToString(Common.getStartMsSupportFlex(request)), JobUtil.timeToString(Common.getEndMsSupportFlex(request)),
-                JobUtil.timeToString(request.getFlexMs()));
+        if (mCat.isLoggable(Log.DEBUG)) {
+            mCat.d("Scheduled repeating alarm (flex support), %s, start %s, end %s, flex %s", request,
+                    JobUtil.timeToString(Common.getStartMsSupportFlex(request)), JobUtil.timeToString(Common.getEndMsSupportFlex(request)),
+                    JobUtil.timeToString(request.getFlexMs()));
+        }
     }
 }
@@ -21,6 +21,8 @@ import android.app.job.JobScheduler;
 import android.content.ComponentName;
 import android.content.Context;
 import android.os.Build;
+import android.util.Log;
+import android.util.SparseBooleanArray;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
@@ -31,6 +33,7 @@ import com.evernote.android.job.JobRequest;
 import com.evernote.android.job.util.JobCat;
 import com.evernote.android.job.util.JobUtil;
 
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -48,6 +51,8 @@ public class JobProxy21 implements JobProxy {
     protected final Context mContext;
     protected final JobCat mCat;
 
+    private final ComponentName mComponentName;
+
     public JobProxy21(Context context) {
         this(context, TAG);
     }
@@ -55,6 +60,7 @@ public class JobProxy21 implements JobProxy {
     protected JobProxy21(Context context, String logTag) {
         mContext = context;
         mCat = new JobCat(logTag);
+        mComponentName = new ComponentName(context, PlatformJobService.class);
     }
 
     @Override
@@ -70,8 +76,10 @@ public class JobProxy21 implements JobProxy {
             scheduleResult = schedule(jobInfo);
         }
 
-        mCat.d("Schedule one-off jobInfo %s, %s, start %s, end %s (from now), reschedule count %d", scheduleResultToString(scheduleResult),
-                request, JobUtil.timeToString(startMs), JobUtil.timeToString(Common.getEndMs(request, false)), Common.getRescheduleCount(request));
+        if (mCat.isLoggable(Log.DEBUG)) {
+            mCat.d("Schedule one-off jobInfo %s, %s, start %s, end %s (from now), reschedule count %d", scheduleResultToString(scheduleResult),
+                    request, JobUtil.timeToString(startMs), JobUtil.timeToString(Common.getEndMs(request, false)), Common.getRescheduleCount(request));
+        }
     }
 
     @Override
@@ -87,8 +95,10 @@ public class JobProxy21 implements JobProxy {
             scheduleResult = schedule(jobInfo);
         }
 
-        mCat.d("Schedule periodic jobInfo %s, %s, interval %s, flex %s", scheduleResultToString(scheduleResult),
-                request, JobUtil.timeToString(intervalMs), JobUtil.timeToString(flexMs));
+        if (mCat.isLoggable(Log.DEBUG)) {
+            mCat.d("Schedule periodic jobInfo %s, %s, interval %s, flex %s", scheduleResultToString(scheduleResult),
+                    request, JobUtil.timeToString(intervalMs), JobUtil.timeToString(flexMs));
+        }
     }
 
     @Override
@@ -104,8 +114,26 @@ public class JobProxy21 implements JobProxy {
             scheduleResult = schedule(jobInfo);
         }
 
-        mCat.d("Schedule periodic (flex support) jobInfo %s, %s, start %s, end %s, flex %s", scheduleResultToString(scheduleResult),
-                request, JobUtil.timeToString(startMs), JobUtil.timeToString(endMs), JobUtil.timeToString(request.getFlexMs()));
+        if (mCat.isLoggable(Log.DEBUG)) {
+            mCat.d("Schedule periodic (flex support) jobInfo %s, %s, start %s, end %s, flex %s", scheduleResultToString(scheduleResult),
+                    request, JobUtil.timeToString(startMs), JobUtil.timeToString(endMs), JobUtil.timeToString(request.getFlexMs()));
+        }
+    }
+
+    @Override
+    public void plantBatch(@NonNull List<JobRequest> requests) {
+        // JobScheduler has no call to schedule multiple jobs at once, but check the service and
+        // permission only once, all JobInfos share the component and the memoized permission
+        if (getJobScheduler() == null) {
+            throw new JobProxyIllegalStateException("JobScheduler is null");
+        }
+        JobUtil.hasBootPermission(mContext);
+
+        for (JobRequest request : requests) {
+            Common.plant(this, request);
+        }
+
+        mCat.d("Planted %d jobs in a batch", requests.size());
     }
 
     @Override
@@ -117,7 +145,52 @@ public class JobProxy21 implements JobProxy {
             mCat.e(e);
         }
 
-        TransientBundleCompat.cancel(mContext, jobId, null);
+        TransientBundleCompat.cancel(jobId);
+    }
+
+    @Override
+    public void cancelBatch(@NonNull int[] jobIds) {
+        JobScheduler jobScheduler = getJobScheduler();
+
+        SparseBooleanArray batch = new SparseBooleanArray(jobIds.length);
+        for (int jobId : jobIds) {
+            batch.put(jobId, true);
+            TransientBundleCompat.cancel(jobId);
+        }
+
+        List<JobInfo> pendingJobs;
+        try {
+            pendingJobs = jobScheduler.getAllPendingJobs();
+        } catch (Exception e) {
+            // https://gist.github.com/vRallev/a59947dd3932d2642641
+            mCat.e(e);
+            pendingJobs = null;
+        }
+
+        int[] plantedIds = jobIds;
+        if (pendingJobs != null) {
+            // requests without a job in the JobScheduler, e.g. multiplexed ones, don't need a call
+            plantedIds = new int[pendingJobs.size()];
+            int count = 0;
+            for (JobInfo info : pendingJobs) {
+                if (batch.get(info.getId())) {
+                    plantedIds[count++] = info.getId();
+                }
+            }
+            // never use cancelAll(), other libraries could schedule jobs after the snapshot
+            plantedIds = Arrays.copyOf(plantedIds, count);
+        }
+
+        for (int jobId : plantedIds) {
+            try {
+                jobScheduler.cancel(jobId);
+            } catch (Exception e) {
+                // https://gist.github.com/vRallev/5d48a4a8e8d05067834e
+                mCat.e(e);
+            }
+        }
+
+        mCat.d("Canceled %d jobs in a batch", plantedIds.length);
     }
 
     @Override
@@ -151,11 +224,11 @@ public class JobProxy21 implements JobProxy {
         if (!correctInfo) {
             return false;
         }
-        return !request.isTransient() || TransientBundleCompat.isScheduled(mContext, request.getJobId());
+        return !request.isTransient() || TransientBundleCompat.isScheduled(info.getExtras(), request.getJobId());
     }
 
     protected JobInfo.Builder createBaseBuilder(JobRequest request, boolean allowPersisting) {
-        JobInfo.Builder builder = new JobInfo.Builder(request.getJobId(), new ComponentName(mContext, PlatformJobService.class))
+        JobInfo.Builder builder = new JobInfo.Builder(request.getJobId(), mComponentName)
                 .setRequiresCharging(request.requiresCharging())
                 .setRequiresDeviceIdle(request.requiresDeviceIdle())
                 .setRequiredNetworkType(convertNetworkType(request.requiredNetworkType()))
@@ -174,7 +247,7 @@ public class JobProxy21 implements JobProxy {
 
     protected JobInfo.Builder setTransientBundle(JobRequest request, JobInfo.Builder builder) {
         if (request.isTransient()) {
-            TransientBundleCompat.persistBundle(mContext, request);
+            TransientBundleCompat.persistBundle(builder, request);
         }
 
         return builder;
@@ -214,6 +287,8 @@ public class JobProxy21 implements JobProxy {
 
             String message = e.getMessage();
             if (message != null && message.contains("RECEIVE_BOOT_COMPLETED")) {
+                // the platform disagrees with our check, don't try to persist other jobs again
+                JobUtil.onBootPermissionDenied();
                 return ERROR_BOOT_PERMISSION;
 
             } else if (message != null && message.contains("No such service ComponentInfo")) {
@@ -57,23 +57,24 @@ public class PlatformJobService extends JobService {
                         return;
                     }
 
+                    Bundle transientBundle = null;
                     if (request.isTransient()) {
-                        if (TransientBundleCompat.startWithTransientBundle(PlatformJobService.this, request)) {
+                        transientBundle = TransientBundleCompat.startWithTransientBundle(params.getExtras(), request);
+                        if (transientBundle != null) {
                             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                                 // should only happen during testing if an API is disabled
-                                CAT.d("PendingIntent for transient bundle is not null although running on O, using compat mode, request %s", request);
+                                CAT.d("Transient bundle is not null although running on O, using compat mode, request %s", request);
                             }
-                            return;
 
                         } else if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
-                            CAT.d("PendingIntent for transient job %s expired", request);
+                            CAT.d("Transient bundle for job %s expired", request);
                             return;
                         }
                     }
 
                     common.markStarting(request);
 
-                    common.executeJobRequest(request, getTransientBundle(params));
+                    common.executeJobRequest(request, transientBundle != null ? transientBundle : getTransientBundle(params));
 
                 } finally {
                     // do not reschedule
@@ -15,31 +15,26 @@
  */
 package com.evernote.android.job.v21;
 
-import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
-import android.app.AlarmManager;
-import android.app.PendingIntent;
-import android.content.Context;
-import android.content.Intent;
+import android.app.job.JobInfo;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.PersistableBundle;
+import android.os.SystemClock;
+import android.util.SparseArray;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
 import com.evernote.android.job.JobRequest;
 import com.evernote.android.job.util.JobCat;
-import com.evernote.android.job.v14.PlatformAlarmServiceExact;
-
-import java.util.concurrent.TimeUnit;
-
-import static com.evernote.android.job.PendingIntentUtil.flagImmutable;
 
 /**
- * Dirty workaround. We schedule an alarm with the AlarmManager really far in the future.
- * The job will still be started by the JobScheduler, but executed by the PlatformAlarmService
- * with the help of the PendingIntent, because the PendingIntent holds the transient Bundle.
+ * Before O the JobScheduler can't hold a transient bundle. The bundles are kept in memory of this
+ * process, so checking whether a transient job is still valid doesn't need any binder call.
  *
- * If the PendingIntent is gone, that means our transient state is lost.
+ * The {@link JobInfo} carries the generation of the process, which planted it. If the generation
+ * doesn't match, then the process died in the meantime and the transient state is lost.
  *
  * Created by rwondratschek on 01.05.17.
  */
@@ -50,67 +45,65 @@ import static com.evernote.android.job.PendingIntentUtil.flagImmutable;
 
     private static final JobCat CAT = new JobCat("TransientBundleCompat");
 
+    private static final String EXTRA_GENERATION = "android-job-transient-generation";
+
+    // differs for each start of the process
+    /*package*/ static final long GENERATION = SystemClock.elapsedRealtimeNanos();
+
+    private static final SparseArray<Bundle> BUNDLES = new SparseArray<>();
+
     private TransientBundleCompat() {
         throw new UnsupportedOperationException();
     }
 
-    @SuppressLint("MissingPermission")
-    public static void persistBundle(@NonNull Context context, @NonNull JobRequest request) {
-        Intent intent = PlatformAlarmServiceExact.createIntent(context, request.getJobId(), request.getTransientExtras());
-        PendingIntent pendingIntent = PendingIntent.getService(context, request.getJobId(), intent, PendingIntent.FLAG_UPDATE_CURRENT | flagImmutable());
-
-        long when = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1000);
+    public static void persistBundle(@NonNull JobInfo.Builder builder, @NonNull JobRequest request) {
+        synchronized (BUNDLES) {
+            BUNDLES.put(request.getJobId(), request.getTransientExtras());
+        }
 
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        alarmManager.setExact(AlarmManager.RTC, when, pendingIntent);
+        PersistableBundle extras = new PersistableBundle();
+        extras.putLong(EXTRA_GENERATION, GENERATION);
+        builder.setExtras(extras);
     }
 
-    public static boolean startWithTransientBundle(@NonNull Context context, @NonNull JobRequest request) {
-        // transientExtras are not necessary in this case
-        Intent intent = PlatformAlarmServiceExact.createIntent(context, request.getJobId(), null);
-        PendingIntent pendingIntent = PendingIntent.getService(context, request.getJobId(), intent, PendingIntent.FLAG_NO_CREATE | flagImmutable());
+    /**
+     * @param extras The extras of the started job.
+     * @return The transient bundle or {@code null}, if it's lost. The bundle of a one-off request is
+     * removed.
+     */
+    @Nullable
+    public static Bundle startWithTransientBundle(@Nullable PersistableBundle extras, @NonNull JobRequest request) {
+        if (!isCurrentGeneration(extras)) {
+            CAT.d("Transient bundle of job %s was lost with its process", request);
+            return null;
+        }
 
-        if (pendingIntent == null) {
-            return false;
+        synchronized (BUNDLES) {
+            Bundle bundle = BUNDLES.get(request.getJobId());
+            if (bundle != null && !request.isPeriodic()) {
+                BUNDLES.remove(request.getJobId());
+            }
+            return bundle;
         }
+    }
 
-        try {
-            CAT.i("Delegating transient job %s to API 14", request);
-            pendingIntent.send();
-        } catch (PendingIntent.CanceledException e) {
-            CAT.e(e);
+    public static boolean isScheduled(@Nullable PersistableBundle extras, int jobId) {
+        if (!isCurrentGeneration(extras)) {
             return false;
         }
 
-        if (!request.isPeriodic()) {
-            cancel(context, request.getJobId(), pendingIntent);
+        synchronized (BUNDLES) {
+            return BUNDLES.get(jobId) != null;
         }
-
-        return true;
     }
 
-    public static boolean isScheduled(Context context, int jobId) {
-        Intent intent = PlatformAlarmServiceExact.createIntent(context, jobId, null);
-        return PendingIntent.getService(context, jobId, intent, PendingIntent.FLAG_NO_CREATE | flagImmutable()) != null;
+    public static void cancel(int jobId) {
+        synchronized (BUNDLES) {
+            BUNDLES.remove(jobId);
+        }
     }
 
-    public static void cancel(@NonNull Context context, int jobId, @Nullable PendingIntent pendingIntent) {
-        try {
-            if (pendingIntent == null) {
-                Intent intent = PlatformAlarmServiceExact.createIntent(context, jobId, null);
-                pendingIntent = PendingIntent.getService(context, jobId, intent, PendingIntent.FLAG_NO_CREATE | flagImmutable());
-
-                if (pendingIntent == null) {
-                    return;
-                }
-            }
-
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            alarmManager.cancel(pendingIntent);
-
-            pendingIntent.cancel();
-        } catch (Exception e) {
-            CAT.e(e); // we don't care if it fails, we don't want to crash the library
-        }
+    private static boolean isCurrentGeneration(@Nullable PersistableBundle extras) {
+        return extras != null && extras.getLong(EXTRA_GENERATION, -1L) == GENERATION;
     }
 }
@@ -2,7 +2,10 @@ package com.evernote.android.job.work;
 
 import android.content.Context;
 import android.os.Build;
+import android.os.SystemClock;
+import android.util.SparseBooleanArray;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
 import androidx.work.WorkInfo;
@@ -18,12 +21,20 @@ import java.util.concurrent.TimeUnit;
 
 import androidx.work.Configuration;
 import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.NetworkType;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
+import androidx.work.WorkQuery;
 
 /**
+ * Enqueues unique work named after the job ID, so scheduling a request again replaces the old work
+ * and canceling doesn't need to search by tag. The tag is still added, it identifies work in
+ * {@link WorkInfo} snapshots and work enqueued by older versions.
+ *
  * @author rwondratschek
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
@@ -31,11 +42,33 @@ public class JobProxyWorkManager implements JobProxy {
 
     private static final String PREFIX = "android-job-";
 
+    /*package*/ static final String KEY_JOB_ID = "android-job-id";
+
+    // rescheduling and transient checks query many requests in a row, share one query between them
+    private static final long SNAPSHOT_MAX_AGE = 1_000L;
+
     private static final JobCat CAT = new JobCat("JobProxyWork");
 
-    @SuppressWarnings({"FieldCanBeLocal", "unused"})
+    // WorkManager is a compileOnly dependency, WorkQuery was added in version 2.5
+    private static final boolean WORK_QUERY_IN_CLASSPATH;
+
+    static {
+        boolean workQueryInClasspath;
+        try {
+            Class.forName("androidx.work.WorkQuery");
+            workQueryInClasspath = true;
+        } catch (Throwable t) {
+            workQueryInClasspath = false;
+        }
+        WORK_QUERY_IN_CLASSPATH = workQueryInClasspath;
+    }
+
     private final Context mContext;
 
+    // WorkManager is shared by all proxy instances, so is the snapshot
+    private static SparseBooleanArray enqueuedJobIds;
+    private static long enqueuedJobIdsTime;
+
     public JobProxyWorkManager(Context context) {
         mContext = context;
     }
@@ -49,6 +82,7 @@ public class JobProxyWorkManager implements JobProxy {
         OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(PlatformWorker.class)
                 .setInitialDelay(request.getStartMs(), TimeUnit.MILLISECONDS) // don't use the average here, WorkManager will do the right thing
                 .setConstraints(buildConstraints(request))
+                .setInputData(createInputData(request.getJobId()))
                 .addTag(createTag(request.getJobId()))
                 .build();
 
@@ -59,7 +93,8 @@ public class JobProxyWorkManager implements JobProxy {
             throw new JobProxyIllegalStateException("WorkManager is null");
         }
 
-        workManager.enqueue(workRequest);
+        workManager.enqueueUniqueWork(createTag(request.getJobId()), ExistingWorkPolicy.REPLACE, workRequest);
+        onEnqueued(request.getJobId(), true);
     }
 
     @Override
@@ -67,6 +102,7 @@ public class JobProxyWorkManager implements JobProxy {
         PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(PlatformWorker.class, request.getIntervalMs(), TimeUnit.MILLISECONDS,
                 request.getFlexMs(), TimeUnit.MILLISECONDS)
                 .setConstraints(buildConstraints(request))
+                .setInputData(createInputData(request.getJobId()))
                 .addTag(createTag(request.getJobId()))
                 .build();
 
@@ -75,7 +111,8 @@ public class JobProxyWorkManager implements JobProxy {
             throw new JobProxyIllegalStateException("WorkManager is null");
         }
 
-        workManager.enqueue(workRequest);
+        workManager.enqueueUniquePeriodicWork(createTag(request.getJobId()), ExistingPeriodicWorkPolicy.REPLACE, workRequest);
+        onEnqueued(request.getJobId(), true);
     }
 
     @Override
@@ -84,6 +121,13 @@ public class JobProxyWorkManager implements JobProxy {
         plantPeriodic(request);
     }
 
+    @Override
+    public void plantBatch(@NonNull List<JobRequest> requests) {
+        for (JobRequest request : requests) {
+            Common.plant(this, request);
+        }
+    }
+
     @Override
     public void cancel(int jobId) {
         WorkManager workManager = getWorkManager();
@@ -91,25 +135,48 @@ public class JobProxyWorkManager implements JobProxy {
             return;
         }
 
-        workManager.cancelAllWorkByTag(createTag(jobId));
+        cancelWork(workManager, jobId);
+        onEnqueued(jobId, false);
         TransientBundleHolder.cleanUpBundle(jobId);
     }
 
     @Override
-    public boolean isPlatformJobScheduled(JobRequest request) {
-        List<WorkInfo> infos = getWorkStatusBlocking(createTag(request.getJobId()));
-        if (infos == null || infos.isEmpty()) {
-            return false;
+    public void cancelBatch(@NonNull int[] jobIds) {
+        WorkManager workManager = getWorkManager();
+        if (workManager == null) {
+            return;
+        }
+
+        for (int jobId : jobIds) {
+            cancelWork(workManager, jobId);
+            onEnqueued(jobId, false);
+            TransientBundleHolder.cleanUpBundle(jobId);
         }
+    }
+
+    private static void cancelWork(@NonNull WorkManager workManager, int jobId) {
+        String tag = createTag(jobId);
+        workManager.cancelUniqueWork(tag);
+        // work enqueued by older versions has no unique name, periodic work would keep running and
+        // one-off work could run a new request, which reuses the job ID
+        workManager.cancelAllWorkByTag(tag);
+    }
 
-        WorkInfo.State state = infos.get(0).getState();
-        return state == WorkInfo.State.ENQUEUED;
+    @Override
+    public boolean isPlatformJobScheduled(JobRequest request) {
+        return isEnqueued(request.getJobId());
     }
 
     /*package*/ static String createTag(int jobId) {
         return PREFIX + jobId;
     }
 
+    /*package*/ static Data createInputData(int jobId) {
+        return new Data.Builder()
+                .putInt(KEY_JOB_ID, jobId)
+                .build();
+    }
+
     /*package*/ static int getJobIdFromTags(Collection<String> tags) {
         for (String tag : tags) {
             if (tag.startsWith(PREFIX)) {
@@ -171,16 +238,93 @@ public class JobProxyWorkManager implements JobProxy {
         return workManager;
     }
 
-    private List<WorkInfo> getWorkStatusBlocking(String tag) {
+    private boolean isEnqueued(int jobId) {
+        if (!WORK_QUERY_IN_CLASSPATH) {
+            // older WorkManager versions can't query all enqueued work at once
+            return isEnqueuedByTag(jobId);
+        }
+
+        synchronized (JobProxyWorkManager.class) {
+            if (enqueuedJobIds != null && SystemClock.elapsedRealtime() - enqueuedJobIdsTime < SNAPSHOT_MAX_AGE) {
+                return enqueuedJobIds.get(jobId);
+            }
+        }
+
+        List<WorkInfo> infos = getEnqueuedWorkBlocking();
+        if (infos == null) {
+            // don't keep the result of a failed query
+            return false;
+        }
+
+        SparseBooleanArray jobIds = new SparseBooleanArray(infos.size());
+        for (WorkInfo info : infos) {
+            int id = getJobIdFromTags(info.getTags());
+            if (id >= 0) {
+                jobIds.put(id, true);
+            }
+        }
+
+        synchronized (JobProxyWorkManager.class) {
+            enqueuedJobIds = jobIds;
+            enqueuedJobIdsTime = SystemClock.elapsedRealtime();
+            return jobIds.get(jobId);
+        }
+    }
+
+    private boolean isEnqueuedByTag(int jobId) {
+        List<WorkInfo> infos = getWorkInfosByTagBlocking(createTag(jobId));
+        if (infos == null) {
+            return false;
+        }
+
+        for (WorkInfo info : infos) {
+            if (info.getState() == WorkInfo.State.ENQUEUED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void onEnqueued(int jobId, boolean enqueued) {
+        // keep the snapshot in sync with our own changes, only state changes by WorkManager may be missed
+        synchronized (JobProxyWorkManager.class) {
+            if (enqueuedJobIds == null) {
+                return;
+            }
+            if (enqueued) {
+                enqueuedJobIds.put(jobId, true);
+            } else {
+                enqueuedJobIds.delete(jobId);
+            }
+        }
+    }
+
+    @Nullable
+    private List<WorkInfo> getEnqueuedWorkBlocking() {
+        WorkManager workManager = getWorkManager();
+        if (workManager == null) {
+            return null;
+        }
+
+        try {
+            WorkQuery query = WorkQuery.Builder.fromStates(Collections.singletonList(WorkInfo.State.ENQUEUED)).build();
+            return workManager.getWorkInfos(query).get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private List<WorkInfo> getWorkInfosByTagBlocking(String tag) {
         WorkManager workManager = getWorkManager();
         if (workManager == null) {
-            return Collections.emptyList();
+            return null;
         }
 
         try {
             return workManager.getWorkInfosByTag(tag).get(5, TimeUnit.SECONDS);
         } catch (Exception e) {
-            return Collections.emptyList();
+            return null;
         }
     }
 }
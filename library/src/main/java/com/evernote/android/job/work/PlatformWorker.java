@@ -76,6 +76,11 @@ public class PlatformWorker extends Worker {
     }
 
     private int getJobId() {
-        return JobProxyWorkManager.getJobIdFromTags(getTags());
+        int jobId = getInputData().getInt(JobProxyWorkManager.KEY_JOB_ID, -1);
+        if (jobId < 0) {
+            // enqueued by an older version without input data
+            jobId = JobProxyWorkManager.getJobIdFromTags(getTags());
+        }
+        return jobId;
     }
 }
@@ -1,5 +1,6 @@
 package com.evernote.android.job;
 
+import android.app.job.JobScheduler;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
@@ -9,6 +10,7 @@ import androidx.annotation.NonNull;
 import android.test.mock.MockContext;
 import androidx.test.core.app.ApplicationProvider;
 import com.evernote.android.job.test.DummyJobs;
+import com.evernote.android.job.test.TestClock;
 import com.evernote.android.job.test.TestLogger;
 import java.util.Collections;
 import java.util.concurrent.Callable;
@@ -34,6 +36,8 @@ import static org.mockito.Mockito.when;
 @SuppressWarnings("WeakerAccess")
 public abstract class BaseJobManagerTest {
 
+    protected static final long TEST_CLOCK_START = 1_000_000L;
+
     @Rule
     public final JobManagerRule mJobManagerRule;
 
@@ -61,6 +65,33 @@ public abstract class BaseJobManagerTest {
         return mContext;
     }
 
+    /**
+     * Replaces the clock of the library, the returned clock starts at {@link #TEST_CLOCK_START}.
+     * {@link JobConfig#reset()} restores the default clock after the test.
+     */
+    @NonNull
+    protected final TestClock useTestClock() {
+        TestClock clock = new TestClock();
+        clock.setTime(TEST_CLOCK_START);
+        JobConfig.setClock(clock);
+        return clock;
+    }
+
+    @NonNull
+    protected final JobScheduler getJobScheduler() {
+        return (JobScheduler) mContext.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    }
+
+    /**
+     * @return A builder for a {@link DummyJobs.SuccessJob}, whose window starts after the given delay
+     * and is 100 seconds long.
+     */
+    @NonNull
+    protected static JobRequest.Builder createWindowBuilder(long startMs) {
+        return DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(startMs, startMs + 100_000L);
+    }
+
     protected final JobManager createManager() {
         Context mockContext = mock(MockContext.class);
         when(mockContext.getApplicationContext()).thenReturn(mContext);
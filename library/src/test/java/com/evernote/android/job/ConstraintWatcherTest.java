@@ -0,0 +1,150 @@
+package com.evernote.android.job;
+
+import android.content.Intent;
+import android.os.BatteryManager;
+import android.os.Bundle;
+import android.os.Looper;
+
+import com.evernote.android.job.test.DummyJobs;
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+@FixMethodOrder(MethodSorters.JVM)
+public class ConstraintWatcherTest extends BaseJobManagerTest {
+
+    @Before
+    public void prepare() {
+        JobConfig.setConstraintWatcherEnabled(true);
+    }
+
+    @Test
+    public void verifyUnmetJobParkedWithoutReschedule() {
+        int jobId = scheduleChargingJob();
+        executeJob(jobId, Job.Result.RESCHEDULE);
+
+        assertThat(manager().getConstraintWatcher().isParked(jobId)).isTrue();
+
+        Set<JobRequest> requests = manager().getAllJobRequests(null, true, false);
+        assertThat(requests).hasSize(1);
+
+        JobRequest request = requests.iterator().next();
+        assertThat(request.getJobId()).isEqualTo(jobId);
+        assertThat(request.isStarted()).isTrue();
+        assertThat(request.getFailureCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void verifyParkedJobReleasedByBroadcast() throws Exception {
+        int jobId = scheduleChargingJob();
+        executeJob(jobId, Job.Result.RESCHEDULE);
+
+        // other state changes don't release the job
+        context().sendBroadcast(new Intent(Intent.ACTION_SCREEN_ON));
+        shadowOf(Looper.getMainLooper()).idle();
+        assertThat(manager().getConstraintWatcher().isParked(jobId)).isTrue();
+
+        sendBatteryChanged(true);
+        assertThat(manager().getConstraintWatcher().isParked(jobId)).isFalse();
+
+        long end = System.currentTimeMillis() + 3_000;
+        while (manager().getJobRequest(jobId, true) != null && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+
+        assertThat(manager().getJobRequest(jobId, true)).isNull();
+        assertThat(manager().getAllJobRequests(null, true, false)).isEmpty();
+        assertThat(manager().getAllJobResults().get(jobId)).isEqualTo(Job.Result.SUCCESS);
+    }
+
+    @Test
+    public void verifyParkedJobStillPending() {
+        int jobId = scheduleChargingJob();
+        executeJob(jobId, Job.Result.RESCHEDULE);
+        assertThat(manager().getConstraintWatcher().isParked(jobId)).isTrue();
+
+        assertThat(manager().getJobRequest(jobId)).isNotNull();
+        assertThat(manager().getAllJobRequests()).hasSize(1);
+        assertThat(manager().getAllJobRequestsForTag(DummyJobs.SuccessJob.TAG)).hasSize(1);
+        assertThat(manager().getAllJobRequestsForTag("other")).isEmpty();
+    }
+
+    @Test
+    public void verifyJobNotParkedWhenRequirementsMetMeanwhile() throws Exception {
+        int jobId = scheduleChargingJob();
+        executeJob(jobId, Job.Result.RESCHEDULE);
+        assertThat(manager().getConstraintWatcher().isParked(jobId)).isTrue();
+
+        sendBatteryChanged(true);
+        assertThat(manager().getConstraintWatcher().isParked(jobId)).isFalse();
+
+        // the job checked its requirements before the broadcast, but parks after it
+        int otherJobId = scheduleChargingJob();
+        JobRequest request = manager().getJobRequest(otherJobId);
+        assertThat(manager().getConstraintWatcher().park(request, new Bundle(), DeviceStateCache.CHANGE_BATTERY)).isTrue();
+        assertThat(manager().getConstraintWatcher().isParked(otherJobId)).isFalse();
+
+        long end = System.currentTimeMillis() + 3_000;
+        while (manager().getAllJobResults().get(otherJobId) == null && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertThat(manager().getAllJobResults().get(otherJobId)).isEqualTo(Job.Result.SUCCESS);
+    }
+
+    @Test
+    public void verifyCancelUnparksJob() {
+        int jobId = scheduleChargingJob();
+        executeJob(jobId, Job.Result.RESCHEDULE);
+        assertThat(manager().getConstraintWatcher().isParked(jobId)).isTrue();
+
+        assertThat(manager().cancel(jobId)).isTrue();
+        assertThat(manager().getConstraintWatcher().isParked(jobId)).isFalse();
+        assertThat(manager().getConstraintWatcher().getParkedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void verifyJobRescheduledWhenDisabled() {
+        JobConfig.setConstraintWatcherEnabled(false);
+
+        int jobId = scheduleChargingJob();
+        executeJob(jobId, Job.Result.RESCHEDULE);
+
+        assertThat(manager().getConstraintWatcher().isParked(jobId)).isFalse();
+        assertThat(manager().getJobRequest(jobId, true)).isNull();
+
+        Set<JobRequest> requests = manager().getAllJobRequests(null, true, false);
+        assertThat(requests).hasSize(1);
+        assertThat(requests.iterator().next().getJobId()).isNotEqualTo(jobId);
+    }
+
+    private int scheduleChargingJob() {
+        return DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(300_000, 400_000)
+                .setRequiresCharging(true)
+                .setRequirementsEnforced(true)
+                .build()
+                .schedule();
+    }
+
+    private void sendBatteryChanged(boolean charging) {
+        Intent intent = new Intent(Intent.ACTION_BATTERY_CHANGED);
+        intent.putExtra(BatteryManager.EXTRA_LEVEL, 50);
+        intent.putExtra(BatteryManager.EXTRA_SCALE, 100);
+        intent.putExtra(BatteryManager.EXTRA_PLUGGED, charging ? BatteryManager.BATTERY_PLUGGED_AC : 0);
+        context().sendBroadcast(intent);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
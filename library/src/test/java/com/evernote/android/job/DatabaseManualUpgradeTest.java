@@ -2,6 +2,7 @@ package com.evernote.android.job;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import androidx.annotation.NonNull;
@@ -19,6 +20,7 @@ import static com.evernote.android.job.JobStorage.COLUMN_BACKOFF_POLICY;
 import static com.evernote.android.job.JobStorage.COLUMN_END_MS;
 import static com.evernote.android.job.JobStorage.COLUMN_EXACT;
 import static com.evernote.android.job.JobStorage.COLUMN_EXTRAS;
+import static com.evernote.android.job.JobStorage.COLUMN_EXTRAS_BINARY;
 import static com.evernote.android.job.JobStorage.COLUMN_FLEX_MS;
 import static com.evernote.android.job.JobStorage.COLUMN_FLEX_SUPPORT;
 import static com.evernote.android.job.JobStorage.COLUMN_ID;
@@ -125,6 +127,49 @@ public class DatabaseManualUpgradeTest extends BaseJobManagerTest {
         checkJob();
     }
 
+    @Test
+    public void testDatabaseUpgrade6to7MigratesExtrasLazily() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+
+        JobOpenHelper6 openHelper = new JobOpenHelper6(context);
+        createDatabase(openHelper, false);
+
+        PersistableBundleCompat extras = new PersistableBundleCompat();
+        extras.putString("key", "value");
+
+        SQLiteDatabase database = openHelper.getWritableDatabase();
+        ContentValues contentValues = openHelper.createBaseContentValues(1);
+        contentValues.put(JobStorage.COLUMN_START_MS, 60_000L);
+        contentValues.put(JobStorage.COLUMN_END_MS, 120_000L);
+        contentValues.put(JobStorage.COLUMN_EXTRAS, extras.saveToXml());
+        contentValues.remove("persisted");
+        database.insert(JobStorage.JOB_TABLE_NAME, null, contentValues);
+        database.close();
+
+        createManager();
+
+        JobRequest request = JobManager.instance().getJobRequest(1);
+        assertThat(request.getExtras().getString("key", null)).isEqualTo("value");
+
+        // the XML row is only migrated when the request is stored again
+        JobManager.instance().getJobStorage().put(request);
+
+        Cursor cursor = JobManager.instance().getJobStorage().getDatabase().query(JOB_TABLE_NAME,
+                new String[]{COLUMN_EXTRAS, COLUMN_EXTRAS_BINARY}, null, null, null, null, null);
+        try {
+            assertThat(cursor.moveToFirst()).isTrue();
+            assertThat(cursor.isNull(0)).isTrue();
+            byte[] binary = cursor.getBlob(1);
+            assertThat(PersistableBundleCompat.isBinary(binary)).isTrue();
+            assertThat(PersistableBundleCompat.fromBinary(binary).getString("key", null)).isEqualTo("value");
+        } finally {
+            cursor.close();
+        }
+
+        JobManager.instance().destroy();
+    }
+
     private void createDatabase(UpgradeAbleJobOpenHelper openHelper, boolean checkUpgraded) {
         SQLiteDatabase database = openHelper.getWritableDatabase();
         assertThat(openHelper.mDatabaseCreated).isTrue();
@@ -0,0 +1,150 @@
+package com.evernote.android.job;
+
+import android.app.AlarmManager;
+import android.content.Context;
+
+import com.evernote.android.job.test.DummyJobs;
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+import com.evernote.android.job.test.TestClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+public class JobAlarmQueueTest extends BaseJobManagerTest {
+
+    private TestClock mClock;
+
+    @Before
+    public void prepare() {
+        mClock = useTestClock();
+        JobConfig.setAlarmQueueEnabled(true);
+    }
+
+    @Test
+    public void verifyOneAlarmForExactJobs() {
+        int first = scheduleExact(300_000L);
+        scheduleExact(100_000L);
+        scheduleExact(200_000L);
+
+        ShadowAlarmManager alarmManager = getShadowAlarmManager();
+        assertThat(alarmManager.getScheduledAlarms()).hasSize(1);
+        assertThat(alarmManager.peekNextScheduledAlarm().triggerAtTime).isEqualTo(1_100_000L);
+        assertThat(alarmManager.peekNextScheduledAlarm().type).isEqualTo(AlarmManager.ELAPSED_REALTIME_WAKEUP);
+
+        JobRequest request = manager().getJobRequest(first);
+        assertThat(request.getAlarmAt()).isEqualTo(1_300_000L);
+        assertThat(manager().getJobProxy(JobApi.V_14).isPlatformJobScheduled(request)).isTrue();
+    }
+
+    @Test
+    public void verifyExactAndInexactUseDifferentAlarms() {
+        JobConfig.forceApi(JobApi.V_14);
+
+        scheduleExact(100_000L);
+        DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(100_000L, 300_000L)
+                .build()
+                .schedule();
+
+        assertThat(getShadowAlarmManager().getScheduledAlarms()).hasSize(2);
+        assertThat(manager().getJobStorage().getNextAlarmAt(true)).isEqualTo(1_100_000L);
+        assertThat(manager().getJobStorage().getNextAlarmAt(false)).isEqualTo(1_300_000L);
+    }
+
+    @Test
+    public void verifyOverlappingWindowsShareAlarm() {
+        JobConfig.forceApi(JobApi.V_14);
+
+        int first = scheduleInexact(100_000L, 300_000L);
+        int second = scheduleInexact(200_000L, 400_000L);
+        int third = scheduleInexact(350_000L, 500_000L);
+
+        // the first two windows overlap between 200s and 300s
+        ShadowAlarmManager alarmManager = getShadowAlarmManager();
+        assertThat(alarmManager.getScheduledAlarms()).hasSize(1);
+        assertThat(alarmManager.peekNextScheduledAlarm().type).isEqualTo(AlarmManager.ELAPSED_REALTIME);
+        assertThat(alarmManager.peekNextScheduledAlarm().triggerAtTime).isEqualTo(1_200_000L);
+        assertThat(alarmManager.peekNextScheduledAlarm().windowLengthMillis).isEqualTo(100_000L);
+
+        mClock.setTime(1_250_000L);
+        manager().getAlarmQueue().dispatch(false);
+
+        assertThat(manager().getJobRequest(first).getAlarmAt()).isEqualTo(0L);
+        assertThat(manager().getJobRequest(second).getAlarmAt()).isEqualTo(0L);
+        assertThat(manager().getJobRequest(third).getAlarmAt()).isEqualTo(1_500_000L);
+
+        assertThat(alarmManager.getScheduledAlarms()).hasSize(1);
+        assertThat(alarmManager.peekNextScheduledAlarm().triggerAtTime).isEqualTo(1_350_000L);
+        assertThat(alarmManager.peekNextScheduledAlarm().windowLengthMillis).isEqualTo(150_000L);
+    }
+
+    @Test
+    public void verifyDispatchPlantsNextAlarm() {
+        int first = scheduleExact(100_000L);
+        int second = scheduleExact(150_000L);
+        int third = scheduleExact(300_000L);
+
+        mClock.setTime(1_200_000L);
+        manager().getAlarmQueue().dispatch(true);
+
+        assertThat(manager().getJobRequest(first).getAlarmAt()).isEqualTo(0L);
+        assertThat(manager().getJobRequest(second).getAlarmAt()).isEqualTo(0L);
+        assertThat(manager().getJobRequest(third).getAlarmAt()).isEqualTo(1_300_000L);
+
+        ShadowAlarmManager alarmManager = getShadowAlarmManager();
+        assertThat(alarmManager.getScheduledAlarms()).hasSize(1);
+        assertThat(alarmManager.peekNextScheduledAlarm().triggerAtTime).isEqualTo(1_300_000L);
+    }
+
+    @Test
+    public void verifyAlarmCanceledWhenQueueEmpty() {
+        int jobId = scheduleExact(100_000L);
+        assertThat(getShadowAlarmManager().getScheduledAlarms()).hasSize(1);
+
+        manager().cancel(jobId);
+        mClock.setTime(1_100_000L);
+        manager().getAlarmQueue().dispatch(true);
+
+        assertThat(getShadowAlarmManager().getScheduledAlarms()).isEmpty();
+    }
+
+    @Test
+    public void verifyPeriodicJobsKeepOwnAlarm() {
+        JobConfig.forceApi(JobApi.V_14);
+
+        int jobId = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setPeriodic(JobRequest.MIN_INTERVAL)
+                .build()
+                .schedule();
+
+        assertThat(manager().getJobRequest(jobId).getAlarmAt()).isEqualTo(0L);
+        assertThat(getShadowAlarmManager().getScheduledAlarms()).hasSize(1);
+    }
+
+    private static int scheduleInexact(long startMs, long endMs) {
+        return DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(startMs, endMs)
+                .build()
+                .schedule();
+    }
+
+    private static int scheduleExact(long delayMs) {
+        return DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExact(delayMs)
+                .build()
+                .schedule();
+    }
+
+    private ShadowAlarmManager getShadowAlarmManager() {
+        return shadowOf((AlarmManager) context().getSystemService(Context.ALARM_SERVICE));
+    }
+}
@@ -0,0 +1,129 @@
+package com.evernote.android.job;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Looper;
+
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mockingDetails;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+public class JobApiSelectorTest extends BaseJobManagerTest {
+
+    @Test
+    public void verifyDefaultApiCached() {
+        JobApi api = JobApi.getDefault(context());
+        int queries = packageManagerQueries();
+
+        assertThat(JobApi.getDefault(context())).isEqualTo(api);
+        assertThat(JobApiSelector.isSupported(context(), api)).isTrue();
+        assertThat(packageManagerQueries()).isEqualTo(queries);
+    }
+
+    @Test
+    public void verifyConfigChangeInvalidatesCache() {
+        assertThat(JobApi.getDefault(context())).isEqualTo(JobApi.V_26);
+
+        JobConfig.setApiEnabled(JobApi.V_26, false);
+        assertThat(JobApi.getDefault(context())).isEqualTo(JobApi.V_24);
+
+        JobConfig.forceApi(JobApi.V_19);
+        assertThat(JobApi.getDefault(context())).isEqualTo(JobApi.V_19);
+    }
+
+    @Test
+    public void verifyPackageChangeInvalidatesCache() {
+        JobApi.getDefault(context());
+        int queries = packageManagerQueries();
+
+        sendPackageChanged("com.other.app");
+        JobApi.getDefault(context());
+        assertThat(packageManagerQueries()).isEqualTo(queries);
+
+        sendPackageChanged(context().getPackageName());
+        JobApi.getDefault(context());
+        assertThat(packageManagerQueries()).isGreaterThan(queries);
+    }
+
+    @Test
+    public void verifySeedIgnoredAfterInvalidation() {
+        int generation = JobApiSelector.getGeneration();
+        JobApiSelector.invalidate();
+
+        Map<JobApi, Boolean> supported = new EnumMap<>(JobApi.class);
+        supported.put(JobApi.V_26, false);
+        JobApiSelector.seed(context(), supported, generation);
+
+        assertThat(JobApiSelector.isSupported(context(), JobApi.V_26)).isTrue();
+    }
+
+    @Test
+    public void verifySeedUsedForDefaultApi() {
+        // start with an empty cache
+        JobApiSelector.invalidate();
+
+        Map<JobApi, Boolean> supported = new EnumMap<>(JobApi.class);
+        supported.put(JobApi.V_26, false);
+        JobApiSelector.seed(context(), supported, JobApiSelector.getGeneration());
+
+        // V_26 is supported in this environment, the default must come from the seeded value
+        assertThat(JobApi.getDefault(context())).isEqualTo(JobApi.V_24);
+
+        JobApiSelector.invalidate();
+        assertThat(JobApi.getDefault(context())).isEqualTo(JobApi.V_26);
+    }
+
+    @Test
+    public void verifyWarmCacheAvoidsPackageManagerCalls() {
+        int count = 200;
+
+        int queriesBefore = packageManagerQueries();
+        for (int i = 0; i < count; i++) {
+            JobApiSelector.invalidate();
+            schedule();
+        }
+        int coldQueries = packageManagerQueries() - queriesBefore;
+
+        manager().cancelAll();
+
+        // warms the selector and other memoized checks, e.g. the boot permission
+        schedule();
+        queriesBefore = packageManagerQueries();
+        for (int i = 0; i < count; i++) {
+            schedule();
+        }
+        int warmQueries = packageManagerQueries() - queriesBefore;
+
+        // a cold cache checks at least one API for each request, a warm cache none
+        assertThat(coldQueries).isGreaterThanOrEqualTo(count);
+        assertThat(warmQueries).isEqualTo(0);
+    }
+
+    private void schedule() {
+        new JobRequest.Builder("tag")
+                .setExecutionWindow(300_000L, 400_000L)
+                .build()
+                .schedule();
+    }
+
+    private int packageManagerQueries() {
+        return mockingDetails(context().getPackageManager()).getInvocations().size();
+    }
+
+    private void sendPackageChanged(String packageName) {
+        context().sendBroadcast(new Intent(Intent.ACTION_PACKAGE_CHANGED, Uri.parse("package:" + packageName)));
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
@@ -38,9 +38,14 @@ public class JobConfigTest extends BaseJobManagerTest {
         JobConfig.setAllowSmallerIntervalsForMarshmallow(true);
         assertThat(JobConfig.isAllowSmallerIntervalsForMarshmallow()).isTrue(); // did change
 
+        assertThat(JobConfig.getPlatformJobLimit()).isEqualTo(0); // default
+        JobConfig.setPlatformJobLimit(90);
+        assertThat(JobConfig.getPlatformJobLimit()).isEqualTo(90); // did change
+
         JobConfig.reset();
         assertThat(JobConfig.isApiEnabled(JobApi.V_19)).isTrue(); // default
         assertThat(JobConfig.isAllowSmallerIntervalsForMarshmallow()).isFalse(); // default
+        assertThat(JobConfig.getPlatformJobLimit()).isEqualTo(0); // default
     }
 
     @Test
@@ -1,7 +1,5 @@
 package com.evernote.android.job;
 
-import android.util.LruCache;
-
 import com.evernote.android.job.test.JobRobolectricTestRunner;
 
 import org.junit.FixMethodOrder;
@@ -9,7 +7,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
 
-import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -34,14 +33,54 @@ public class JobExecutorTest {
     }
 
     @Test
-    public void verifyCleanUpRoutine() {
-        LruCache<Integer, WeakReference<Job>> cache = new LruCache<>(20);
-        cache.put(1, new WeakReference<>(createJobMock(1)));
-        cache.put(2, new WeakReference<Job>(null));
+    public void verifyResultsAreBounded() {
+        JobExecutor executor = new JobExecutor();
+
+        for (int i = 1; i <= 250; i++) {
+            executor.markJobAsFinished(createJobMock(i));
+        }
+
+        assertThat(executor.getAllJobResults().size()).isEqualTo(200);
+        assertThat(executor.getAllJobResults().get(50)).isNull();
+        assertThat(executor.getAllJobResults().get(51)).isEqualTo(Job.Result.SUCCESS);
+
+        assertThat(executor.getAllJobs()).hasSize(20);
+        assertThat(executor.getJob(230)).isNull();
+        assertThat(executor.getJob(231)).isNotNull();
+    }
+
+    @Test
+    public void verifyNewestResultWins() {
+        FinishedJobs finishedJobs = new FinishedJobs(4, 2);
+
+        Job first = createJobMock(1);
+        Job second = createJobMock(1);
+        finishedJobs.put(1, first, Job.Result.FAILURE);
+        finishedJobs.put(1, second, Job.Result.SUCCESS);
+
+        assertThat(finishedJobs.getResults().size()).isEqualTo(1);
+        assertThat(finishedJobs.getResults().get(1)).isEqualTo(Job.Result.SUCCESS);
+        assertThat(finishedJobs.getJob(1)).isSameAs(second);
+
+        Set<Job> jobs = new HashSet<>();
+        finishedJobs.collectJobs(null, jobs);
+        assertThat(jobs).containsOnly(second);
+    }
+
+    @Test
+    public void verifyOlderEntriesKeepResultOnly() {
+        FinishedJobs finishedJobs = new FinishedJobs(4, 2);
+        finishedJobs.put(1, createJobMock(1), Job.Result.SUCCESS);
+        finishedJobs.put(2, createJobMock(2), Job.Result.FAILURE);
+        finishedJobs.put(3, createJobMock(3), Job.Result.SUCCESS);
 
-        new JobExecutor().cleanUpRoutine(cache);
+        assertThat(finishedJobs.getJob(1)).isNull();
+        assertThat(finishedJobs.getJob(2)).isNotNull();
+        assertThat(finishedJobs.getJob(3)).isNotNull();
 
-        assertThat(cache.size()).isEqualTo(1);
+        assertThat(finishedJobs.size()).isEqualTo(3);
+        assertThat(finishedJobs.getResults().get(1)).isEqualTo(Job.Result.SUCCESS);
+        assertThat(finishedJobs.getResults().get(2)).isEqualTo(Job.Result.FAILURE);
     }
 
     private Job createJobMock(int id) {
@@ -50,6 +89,7 @@ public class JobExecutorTest {
 
         Job job = mock(Job.class);
         when(job.getParams()).thenReturn(params);
+        when(job.getResult()).thenReturn(Job.Result.SUCCESS);
         return job;
     }
 }
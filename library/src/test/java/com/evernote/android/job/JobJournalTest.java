@@ -0,0 +1,101 @@
+package com.evernote.android.job;
+
+import com.evernote.android.job.test.DummyJobs;
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+public class JobJournalTest extends BaseJobManagerTest {
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void verifyLifecycleRecorded() throws Exception {
+        JobJournal journal = JobJournal.createInMemory(16);
+        JobConfig.setJournal(journal);
+
+        int jobId = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(300_000, 400_000)
+                .build()
+                .schedule();
+        executeJob(jobId, Job.Result.SUCCESS);
+
+        List<JobJournal.Event> events = journal.getEvents();
+        assertThat(events).hasSize(5);
+        assertThat(events.get(0).getType()).isEqualTo(JobJournal.EventType.SCHEDULED);
+        assertThat(events.get(1).getType()).isEqualTo(JobJournal.EventType.PLANTED);
+        assertThat(events.get(1).getApi()).isEqualTo(JobApi.V_26);
+        assertThat(events.get(2).getType()).isEqualTo(JobJournal.EventType.DISPATCHED);
+        assertThat(events.get(3).getType()).isEqualTo(JobJournal.EventType.STARTED);
+        assertThat(events.get(4).getType()).isEqualTo(JobJournal.EventType.FINISHED);
+        assertThat(events.get(4).getResult()).isEqualTo(Job.Result.SUCCESS);
+
+        for (JobJournal.Event event : events) {
+            assertThat(event.getJobId()).isEqualTo(jobId);
+            assertThat(event.hasTag(DummyJobs.SuccessJob.TAG)).isTrue();
+        }
+
+        StringWriter writer = new StringWriter();
+        journal.writeTo(writer);
+        assertThat(writer.toString().split("\n")).hasSize(5);
+
+        JobConfig.setJournal(null);
+        DummyJobs.createOneOff().schedule();
+        assertThat(journal.getEvents()).hasSize(5);
+    }
+
+    @Test
+    public void verifyOldestEventsOverwritten() {
+        JobJournal journal = JobJournal.createInMemory(4);
+        for (int i = 1; i <= 10; i++) {
+            journal.record(JobJournal.EventType.STARTED, i, "tag", i, null, null, 0);
+        }
+
+        List<JobJournal.Event> events = journal.getEvents();
+        assertThat(events).hasSize(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(events.get(i).getJobId()).isEqualTo(7 + i);
+        }
+
+        journal.clear();
+        assertThat(journal.getEvents()).isEmpty();
+
+        journal.record(JobJournal.EventType.STARTED, 11, "tag", 11, null, null, 0);
+        assertThat(journal.getEvents()).hasSize(1);
+    }
+
+    @Test
+    public void verifyMappedJournalSurvivesReopen() throws Exception {
+        File file = mTemporaryFolder.newFile("journal");
+
+        JobJournal journal = JobJournal.createMapped(file, 8);
+        journal.record(JobJournal.EventType.SCHEDULED, 1, "tag", 100L, null, null, 0);
+        journal.record(JobJournal.EventType.RESCHEDULED, 1, "tag", 200L, null, null, 2);
+        journal.flush();
+
+        JobJournal reopened = JobJournal.createMapped(file, 8);
+        reopened.record(JobJournal.EventType.STARTED, 2, "tag", 300L, null, null, 0);
+
+        List<JobJournal.Event> events = reopened.getEvents();
+        assertThat(events).hasSize(3);
+        assertThat(events.get(1).getValue()).isEqualTo(2);
+        assertThat(events.get(2).getTimestamp()).isEqualTo(300L);
+
+        // a different capacity discards the old events
+        assertThat(JobJournal.createMapped(file, 4).getEvents()).isEmpty();
+    }
+}
@@ -0,0 +1,327 @@
+package com.evernote.android.job;
+
+import android.app.job.JobParameters;
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+
+import com.evernote.android.job.test.DummyJobs;
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+import com.evernote.android.job.test.TestClock;
+import com.evernote.android.job.test.TestLogger;
+import com.evernote.android.job.v14.PlatformAlarmServiceExact;
+import com.evernote.android.job.v21.PlatformJobService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Simulates many jobs becoming eligible at once, e.g. after a reboot or when the device leaves doze,
+ * and fails if the library gets slower or more resource hungry than the thresholds allow. The
+ * thresholds can be tightened with system properties, e.g. {@code -Dloadtest.minThroughput=200}.
+ *
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+public class JobLoadTest extends BaseJobManagerTest {
+
+    private static final int JOB_COUNT = Integer.getInteger("loadtest.jobs", 1_000);
+    private static final long TIMEOUT_SECONDS = Integer.getInteger("loadtest.timeoutSeconds", 120);
+
+    private static final int MIN_THROUGHPUT = Integer.getInteger("loadtest.minThroughput", 20); // jobs per second
+    private static final int MAX_STORAGE_OPERATIONS_PER_JOB = Integer.getInteger("loadtest.maxStorageOperationsPerJob", 12);
+    // all jobs share one platform wake lock per SharedWakeLock group
+    private static final int MAX_PEAK_WAKE_LOCKS = Integer.getInteger("loadtest.maxPeakWakeLocks", 2);
+    // the library must not start threads besides the ones of the configured executor, the slack
+    // covers the pool of the worker test and threads of Robolectric
+    private static final int EXECUTOR_POOL_SIZE = Integer.getInteger("loadtest.executorPoolSize", 16);
+    private static final int MAX_PEAK_THREADS = Integer.getInteger("loadtest.maxPeakThreads", EXECUTOR_POOL_SIZE + 8);
+
+    private static final long START_TIME = TimeUnit.DAYS.toMillis(18_000);
+
+    private TestClock mClock;
+    private ExecutorService mExecutor;
+    private LoadListener mListener;
+
+    @Before
+    public void prepare() {
+        // printing thousands of log statements would dominate the measurement
+        JobConfig.removeLogger(TestLogger.INSTANCE);
+        JobConfig.setLogcatEnabled(false);
+        JobConfig.setLatencyTrackingEnabled(true);
+        JobConfig.setCloseDatabase(false);
+
+        mClock = new TestClock();
+        mClock.setTime(START_TIME);
+        JobConfig.setClock(mClock);
+
+        // services wait for the job on the same executor, instead of blocking when all threads are
+        // busy the dispatching thread runs the task itself
+        mExecutor = new ThreadPoolExecutor(0, EXECUTOR_POOL_SIZE, 10, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadPoolExecutor.CallerRunsPolicy());
+        JobConfig.setExecutorService(mExecutor);
+
+        mListener = new LoadListener(JOB_COUNT);
+        JobConfig.addMetricsListener(mListener);
+    }
+
+    @After
+    public void cleanup() {
+        JobConfig.removeMetricsListener(mListener);
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void verifyJobServiceDispatchStorm() throws Exception {
+        List<Integer> jobIds = scheduleJobs();
+        leaveDoze();
+
+        final PlatformJobService service = Robolectric.buildService(PlatformJobService.class).create().get();
+
+        LoadReport report = measure("PlatformJobService", jobIds, new Dispatcher() {
+            @Override
+            public void dispatch(int jobId) {
+                JobParameters params = mock(JobParameters.class);
+                when(params.getJobId()).thenReturn(jobId);
+                service.onStartJob(params);
+            }
+        });
+
+        report.verify();
+    }
+
+    @Test
+    public void verifyAlarmServiceDispatchStorm() throws Exception {
+        List<Integer> jobIds = scheduleJobs();
+        leaveDoze();
+
+        final PlatformAlarmServiceExact service = Robolectric.buildService(PlatformAlarmServiceExact.class).create().get();
+        final AtomicInteger startId = new AtomicInteger();
+
+        LoadReport report = measure("PlatformAlarmService", jobIds, new Dispatcher() {
+            @Override
+            public void dispatch(int jobId) {
+                service.onStartCommand(PlatformAlarmServiceExact.createIntent(context(), jobId, null), 0, startId.incrementAndGet());
+            }
+        });
+
+        report.verify();
+    }
+
+    @Test
+    public void verifyWorkerDispatchStorm() throws Exception {
+        List<Integer> jobIds = scheduleJobs();
+        leaveDoze();
+
+        // WorkManager isn't available in unit tests, run the same steps as PlatformWorker.doWork()
+        // on a thread pool as small as the one of WorkManager
+        final ExecutorService workManagerExecutor = Executors.newFixedThreadPool(4);
+        try {
+            LoadReport report = measure("PlatformWorker", jobIds, new Dispatcher() {
+                @Override
+                public void dispatch(final int jobId) {
+                    workManagerExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            JobProxy.Common common = new JobProxy.Common(context(), TestLogger.INSTANCE, jobId);
+                            JobRequest request = common.getPendingRequest(true, true);
+                            if (request != null) {
+                                common.executeJobRequest(request, null);
+                            }
+                        }
+                    });
+                }
+            });
+
+            report.verify();
+        } finally {
+            workManagerExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void verifyRebootStormReschedule() {
+        // after a reboot all requests are in the database, but none is known by the platform
+        SQLiteDatabase database = manager().getJobStorage().getDatabase();
+        database.beginTransaction();
+        try {
+            for (int i = 0; i < JOB_COUNT; i++) {
+                ContentValues contentValues = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                        .setExecutionWindow(300_000, 400_000)
+                        .build()
+                        .toContentValues();
+                database.insert(JobStorage.JOB_TABLE_NAME, null, contentValues);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        int baselineThreads = threadBean.getThreadCount();
+        threadBean.resetPeakThreadCount();
+        mListener.mStorageOperations.set(0);
+
+        long start = System.nanoTime();
+        int rescheduled = new JobRescheduleService().rescheduleJobs(manager());
+        long durationNanos = System.nanoTime() - start;
+
+        assertThat(rescheduled).isEqualTo(JOB_COUNT);
+        assertThat(manager().getAllJobRequests()).hasSize(JOB_COUNT);
+
+        LoadReport report = new LoadReport("JobRescheduleService", JOB_COUNT, durationNanos,
+                threadBean.getPeakThreadCount() - baselineThreads, SharedWakeLock.getHeldPlatformLocks(),
+                mListener.mStorageOperations.get());
+        report.verify();
+    }
+
+    private List<Integer> scheduleJobs() {
+        List<Integer> jobIds = new ArrayList<>(JOB_COUNT);
+        for (int i = 0; i < JOB_COUNT; i++) {
+            jobIds.add(DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                    .setExecutionWindow(300_000, 400_000)
+                    .build()
+                    .schedule());
+        }
+        return jobIds;
+    }
+
+    private void leaveDoze() {
+        // all execution windows passed while the device was dozing
+        mClock.setTime(START_TIME + TimeUnit.HOURS.toMillis(2));
+    }
+
+    private LoadReport measure(String name, List<Integer> jobIds, Dispatcher dispatcher) throws InterruptedException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        int baselineThreads = threadBean.getThreadCount();
+        threadBean.resetPeakThreadCount();
+        mListener.mStorageOperations.set(0);
+
+        long start = System.nanoTime();
+        for (int jobId : jobIds) {
+            dispatcher.dispatch(jobId);
+        }
+
+        assertThat(mListener.mFinished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        waitUntilStorageEmpty();
+        long durationNanos = System.nanoTime() - start;
+
+        assertThat(mListener.mStartedJobs).hasSize(JOB_COUNT);
+        assertThat(mListener.mDuplicateStarts.get()).isEqualTo(0);
+        // running jobs must have held a platform wake lock, otherwise the peak below says nothing
+        assertThat(mListener.mPeakWakeLocks.get()).isGreaterThan(0);
+        assertThat(SharedWakeLock.getHeldPlatformLocks()).isEqualTo(0);
+
+        return new LoadReport(name, JOB_COUNT, durationNanos, threadBean.getPeakThreadCount() - baselineThreads,
+                mListener.mPeakWakeLocks.get(), mListener.mStorageOperations.get());
+    }
+
+    private void waitUntilStorageEmpty() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!manager().getAllJobRequests().isEmpty()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private interface Dispatcher {
+        void dispatch(int jobId);
+    }
+
+    private static final class LoadReport {
+
+        private final String mName;
+        private final int mJobs;
+        private final long mDurationNanos;
+        private final int mPeakThreads;
+        private final int mPeakWakeLocks;
+        private final int mStorageOperations;
+
+        private LoadReport(String name, int jobs, long durationNanos, int peakThreads, int peakWakeLocks, int storageOperations) {
+            mName = name;
+            mJobs = jobs;
+            mDurationNanos = durationNanos;
+            mPeakThreads = peakThreads;
+            mPeakWakeLocks = peakWakeLocks;
+            mStorageOperations = storageOperations;
+        }
+
+        private double getThroughput() {
+            return mJobs / (mDurationNanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        private void verify() {
+            assertThat(getThroughput()).as(toString()).isGreaterThanOrEqualTo(MIN_THROUGHPUT);
+            assertThat(mStorageOperations).as(toString()).isLessThanOrEqualTo(mJobs * MAX_STORAGE_OPERATIONS_PER_JOB);
+            assertThat(mPeakWakeLocks).as(toString()).isLessThanOrEqualTo(MAX_PEAK_WAKE_LOCKS);
+            assertThat(mPeakThreads).as(toString()).isLessThanOrEqualTo(MAX_PEAK_THREADS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d jobs in %d ms, %.1f jobs/s, peak threads %d, peak wake locks %d, storage operations %d",
+                    mName, mJobs, TimeUnit.NANOSECONDS.toMillis(mDurationNanos), getThroughput(), mPeakThreads, mPeakWakeLocks,
+                    mStorageOperations);
+        }
+    }
+
+    private static final class LoadListener extends JobMetricsListener.Adapter {
+
+        private final CountDownLatch mFinished;
+        private final Set<Integer> mStartedJobs = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+        private final AtomicInteger mDuplicateStarts = new AtomicInteger();
+        private final AtomicInteger mPeakWakeLocks = new AtomicInteger();
+        private final AtomicInteger mStorageOperations = new AtomicInteger();
+
+        private LoadListener(int jobCount) {
+            mFinished = new CountDownLatch(jobCount);
+        }
+
+        @Override
+        public void onJobStarted(int jobId, @NonNull String tag, long timestamp) {
+            if (!mStartedJobs.add(jobId)) {
+                mDuplicateStarts.incrementAndGet();
+            }
+
+            // the job holds its wake lock token while it's running
+            int held = SharedWakeLock.getHeldPlatformLocks();
+            int peak = mPeakWakeLocks.get();
+            while (held > peak && !mPeakWakeLocks.compareAndSet(peak, held)) {
+                peak = mPeakWakeLocks.get();
+            }
+        }
+
+        @Override
+        public void onJobFinished(int jobId, @NonNull String tag, @NonNull Job.Result result, long timestamp, long durationNanos) {
+            mFinished.countDown();
+        }
+
+        @Override
+        public void onStorageOperation(@NonNull StorageOperation operation, long durationNanos) {
+            mStorageOperations.incrementAndGet();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import androidx.annotation.NonNull;
 import androidx.core.app.JobIntentServiceReset;
 
 import com.evernote.android.job.test.TestLogger;
+import com.evernote.android.job.util.JobUtil;
 
 import org.junit.rules.ExternalResource;
 
@@ -39,6 +40,7 @@ public final class JobManagerRule extends ExternalResource {
         mManager.cancelAll();
         mManager.destroy();
         JobConfig.reset();
+        JobUtil.invalidateBootPermission();
     }
 
     public JobManager getJobManager() {
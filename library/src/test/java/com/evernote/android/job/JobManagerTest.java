@@ -1,5 +1,6 @@
 package com.evernote.android.job;
 
+import android.app.job.JobScheduler;
 import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -86,6 +87,53 @@ public class JobManagerTest extends BaseJobManagerTest {
         assertThat(request.getScheduledAt()).isEqualTo(0L);
     }
 
+    @Test
+    public void testCancelTagCancelsPlatformJobs() {
+        int first = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(300_000, 400_000)
+                .build()
+                .schedule();
+        int second = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setPeriodic(JobRequest.MIN_INTERVAL)
+                .build()
+                .schedule();
+        int other = DummyJobs.createBuilder(DummyJobs.FailureJob.class)
+                .setExecutionWindow(300_000, 400_000)
+                .build()
+                .schedule();
+
+        assertThat(manager().cancelAllForTag(DummyJobs.SuccessJob.TAG)).isEqualTo(2);
+
+        JobScheduler jobScheduler = (JobScheduler) context().getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        assertThat(jobScheduler.getPendingJob(first)).isNull();
+        assertThat(jobScheduler.getPendingJob(second)).isNull();
+        assertThat(jobScheduler.getPendingJob(other)).isNotNull();
+        assertThat(manager().getAllJobRequests()).hasSize(1);
+    }
+
+    @Test
+    public void testCancelAllManyJobs() {
+        List<JobRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            requests.add(DummyJobs.createBuilder(i % 2 == 0 ? DummyJobs.SuccessJob.class : DummyJobs.FailureJob.class)
+                    .setExecutionWindow(300_000, 400_000)
+                    .build());
+        }
+        manager().schedule(requests);
+
+        assertThat(manager().cancelAllForTag(DummyJobs.SuccessJob.TAG)).isEqualTo(250);
+        assertThat(manager().getAllJobRequestsForTag(DummyJobs.SuccessJob.TAG)).isEmpty();
+        assertThat(manager().getAllJobRequestsForTag(DummyJobs.FailureJob.TAG)).hasSize(250);
+
+        assertThat(manager().cancelAll()).isEqualTo(250);
+        assertThat(manager().getAllJobRequests()).isEmpty();
+
+        JobScheduler jobScheduler = (JobScheduler) context().getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobRequest request : requests) {
+            assertThat(jobScheduler.getPendingJob(request.getJobId())).isNull();
+        }
+    }
+
     @Test
     public void testScheduleIsIdempotent() throws Exception {
         JobRequest request = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
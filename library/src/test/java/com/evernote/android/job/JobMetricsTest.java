@@ -0,0 +1,182 @@
+package com.evernote.android.job;
+
+import androidx.annotation.NonNull;
+
+import com.evernote.android.job.test.DummyJobs;
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+public class JobMetricsTest extends BaseJobManagerTest {
+
+    @Test
+    public void verifyLifecycleEvents() {
+        RecordingListener listener = new RecordingListener();
+        assertThat(JobConfig.addMetricsListener(listener)).isTrue();
+        assertThat(JobConfig.addMetricsListener(listener)).isFalse();
+
+        int jobId = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(300_000, 400_000)
+                .build()
+                .schedule();
+
+        executeJob(jobId, Job.Result.SUCCESS);
+
+        assertThat(listener.mEvents).containsExactly(
+                "scheduled " + jobId,
+                "planted " + jobId + " " + JobApi.V_26,
+                "dispatched " + jobId,
+                "started " + jobId,
+                "finished " + jobId + " " + Job.Result.SUCCESS);
+
+        assertThat(listener.mStorageOperations.get()).isGreaterThan(0);
+    }
+
+    @Test
+    public void verifyRequirementsMissedAndRescheduled() {
+        RecordingListener listener = new RecordingListener();
+        JobConfig.addMetricsListener(listener);
+
+        int jobId = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(300_000, 400_000)
+                .setRequiresCharging(true)
+                .setRequirementsEnforced(true)
+                .build()
+                .schedule();
+
+        executeJob(jobId, Job.Result.RESCHEDULE);
+
+        int newJobId = manager().getAllJobRequests().iterator().next().getJobId();
+        assertThat(listener.mEvents).contains(
+                "finished " + jobId + " " + Job.Result.RESCHEDULE,
+                "missed " + jobId,
+                "rescheduled " + jobId + " " + newJobId);
+    }
+
+    @Test
+    public void verifyCrashedJobFinished() {
+        RecordingListener listener = new RecordingListener();
+        JobConfig.addMetricsListener(listener);
+
+        manager().addJobCreator(new JobCreator() {
+            @Override
+            public Job create(@NonNull String tag) {
+                return new Job() {
+                    @NonNull
+                    @Override
+                    protected Result onRunJob(@NonNull Params params) {
+                        throw new IllegalStateException("crash");
+                    }
+                };
+            }
+        });
+
+        int jobId = new JobRequest.Builder("crash")
+                .setExecutionWindow(300_000, 400_000)
+                .build()
+                .schedule();
+
+        executeJob(jobId, Job.Result.FAILURE);
+
+        assertThat(listener.mEvents).containsSubsequence(
+                "started " + jobId,
+                "finished " + jobId + " " + Job.Result.FAILURE);
+    }
+
+    @Test
+    public void verifyRemovedListenerNotCalled() {
+        RecordingListener listener = new RecordingListener();
+        JobConfig.addMetricsListener(listener);
+        JobConfig.removeMetricsListener(listener);
+
+        DummyJobs.createOneOff().schedule();
+
+        assertThat(listener.mEvents).isEmpty();
+        assertThat(listener.mStorageOperations.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void verifyLatencyTracking() {
+        JobConfig.setLatencyTrackingEnabled(true);
+        manager().resetLatencyStats();
+
+        int jobId = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(300_000, 400_000)
+                .build()
+                .schedule();
+        executeJob(jobId, Job.Result.SUCCESS);
+
+        JobLatencyStats stats = manager().getLatencyStats();
+        assertThat(stats.getTags()).containsExactly(DummyJobs.SuccessJob.TAG);
+        assertThat(stats.getScheduleDelay(DummyJobs.SuccessJob.TAG).getCount()).isEqualTo(1);
+        assertThat(stats.getExecutionDuration(DummyJobs.SuccessJob.TAG).getCount()).isEqualTo(1);
+        assertThat(stats.getStorageLatency(JobMetricsListener.StorageOperation.INSERT).getCount()).isGreaterThan(0);
+
+        manager().resetLatencyStats();
+        assertThat(manager().getLatencyStats().getTags()).isEmpty();
+
+        JobConfig.setLatencyTrackingEnabled(false);
+        DummyJobs.createOneOff().schedule();
+        assertThat(manager().getLatencyStats().getStorageLatency(JobMetricsListener.StorageOperation.INSERT).getCount()).isEqualTo(0);
+    }
+
+    private static final class RecordingListener extends JobMetricsListener.Adapter {
+
+        private final List<String> mEvents = Collections.synchronizedList(new ArrayList<String>());
+        private final AtomicInteger mStorageOperations = new AtomicInteger();
+
+        @Override
+        public void onJobScheduled(int jobId, @NonNull String tag, long timestamp) {
+            mEvents.add("scheduled " + jobId);
+        }
+
+        @Override
+        public void onJobPlanted(int jobId, @NonNull String tag, @NonNull JobApi api, long timestamp) {
+            mEvents.add("planted " + jobId + " " + api);
+        }
+
+        @Override
+        public void onJobDispatched(int jobId, @NonNull String tag, long timestamp, long scheduleDelayMs) {
+            assertThat(scheduleDelayMs).isGreaterThanOrEqualTo(0);
+            mEvents.add("dispatched " + jobId);
+        }
+
+        @Override
+        public void onJobStarted(int jobId, @NonNull String tag, long timestamp) {
+            mEvents.add("started " + jobId);
+        }
+
+        @Override
+        public void onJobFinished(int jobId, @NonNull String tag, @NonNull Job.Result result, long timestamp, long durationNanos) {
+            assertThat(durationNanos).isGreaterThanOrEqualTo(0);
+            mEvents.add("finished " + jobId + " " + result);
+        }
+
+        @Override
+        public void onJobRequirementsMissed(int jobId, @NonNull String tag, long timestamp) {
+            mEvents.add("missed " + jobId);
+        }
+
+        @Override
+        public void onJobRescheduled(int jobId, int newJobId, @NonNull String tag, long timestamp) {
+            mEvents.add("rescheduled " + jobId + " " + newJobId);
+        }
+
+        @Override
+        public void onStorageOperation(@NonNull StorageOperation operation, long durationNanos) {
+            mStorageOperations.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.evernote.android.job;
+
+import android.app.job.JobInfo;
+
+import com.evernote.android.job.test.DirectExecutorService;
+import com.evernote.android.job.test.DummyJobs;
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+import com.evernote.android.job.test.TestClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+public class JobMultiplexerTest extends BaseJobManagerTest {
+
+    private TestClock mClock;
+
+    @Before
+    public void prepare() {
+        mClock = useTestClock();
+        JobConfig.setMultiplexingEnabled(true);
+    }
+
+    @Test
+    public void verifyOneSlotForManyRequests() {
+        int first = schedule(100_000L, false);
+        int second = schedule(200_000L, false);
+        int third = schedule(300_000L, false);
+
+        List<JobInfo> pendingJobs = getJobScheduler().getAllPendingJobs();
+        assertThat(pendingJobs).hasSize(1);
+        assertThat(pendingJobs.get(0).getId()).isNotIn(first, second, third);
+        assertThat(pendingJobs.get(0).getMinLatencyMillis()).isEqualTo(100_000L);
+        assertThat(pendingJobs.get(0).getMaxExecutionDelayMillis()).isEqualTo(200_000L);
+
+        assertThat(manager().getAllJobRequests()).hasSize(3);
+        assertThat(manager().getJobRequest(first).isMultiplexed()).isTrue();
+    }
+
+    @Test
+    public void verifyEarlierRequestReplacesSlot() {
+        schedule(300_000L, false);
+        int oldSlotId = getJobScheduler().getAllPendingJobs().get(0).getId();
+
+        schedule(100_000L, false);
+
+        List<JobInfo> pendingJobs = getJobScheduler().getAllPendingJobs();
+        assertThat(pendingJobs).hasSize(1);
+        assertThat(pendingJobs.get(0).getId()).isNotEqualTo(oldSlotId);
+        assertThat(pendingJobs.get(0).getMaxExecutionDelayMillis()).isEqualTo(200_000L);
+
+        // the old slot is gone, the members stay
+        assertThat(manager().getJobRequest(oldSlotId, true)).isNull();
+        assertThat(manager().getAllJobRequests(null, true, false)).hasSize(3);
+    }
+
+    @Test
+    public void verifySlotPerRequirements() {
+        schedule(100_000L, false);
+        schedule(200_000L, true);
+        schedule(300_000L, true);
+
+        assertThat(getJobScheduler().getAllPendingJobs()).hasSize(2);
+    }
+
+    @Test
+    public void verifySlotRunsDueRequests() {
+        // the slot and its requests run on the calling thread
+        JobConfig.setExecutorService(new DirectExecutorService());
+
+        int first = schedule(100_000L, false);
+        int second = schedule(150_000L, false);
+        int third = schedule(500_000L, false);
+
+        int slotId = getJobScheduler().getAllPendingJobs().get(0).getId();
+
+        mClock.setTime(mClock.currentTimeMillis() + 160_000L);
+        executeJob(slotId, Job.Result.SUCCESS);
+
+        assertThat(manager().getAllJobResults().get(first)).isEqualTo(Job.Result.SUCCESS);
+        assertThat(manager().getAllJobResults().get(second)).isEqualTo(Job.Result.SUCCESS);
+        assertThat(manager().getAllJobRequests()).hasSize(1);
+        assertThat(manager().getJobRequest(third)).isNotNull();
+
+        // planted again for the remaining request
+        List<JobInfo> pendingJobs = getJobScheduler().getAllPendingJobs();
+        assertThat(pendingJobs).hasSize(1);
+        assertThat(pendingJobs.get(0).getId()).isNotEqualTo(slotId);
+        assertThat(pendingJobs.get(0).getMinLatencyMillis()).isEqualTo(340_000L);
+        assertThat(pendingJobs.get(0).getMaxExecutionDelayMillis()).isEqualTo(440_000L);
+    }
+
+    @Test
+    public void verifySlotWaitsForItsRequests() {
+        int first = schedule(100_000L, false);
+        int second = schedule(150_000L, false);
+
+        int slotId = getJobScheduler().getAllPendingJobs().get(0).getId();
+
+        mClock.setTime(mClock.currentTimeMillis() + 160_000L);
+        executeJob(slotId, Job.Result.SUCCESS);
+
+        // the requests run on other threads, but the slot job only finishes after them
+        assertThat(manager().getAllJobResults().get(first)).isEqualTo(Job.Result.SUCCESS);
+        assertThat(manager().getAllJobResults().get(second)).isEqualTo(Job.Result.SUCCESS);
+        assertThat(manager().getAllJobRequests()).isEmpty();
+    }
+
+    @Test
+    public void verifyPeriodicRequestsPlantedIndividually() {
+        schedule(100_000L, false);
+        int periodic = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setPeriodic(JobRequest.MIN_INTERVAL)
+                .build()
+                .schedule();
+
+        assertThat(getJobScheduler().getAllPendingJobs()).hasSize(2);
+        assertThat(getJobScheduler().getPendingJob(periodic)).isNotNull();
+        assertThat(manager().getJobRequest(periodic).isMultiplexed()).isFalse();
+    }
+
+    @Test
+    public void verifyDisabledByDefault() {
+        JobConfig.setMultiplexingEnabled(false);
+
+        schedule(100_000L, false);
+        schedule(200_000L, false);
+
+        assertThat(getJobScheduler().getAllPendingJobs()).hasSize(2);
+    }
+
+    private static int schedule(long startMs, boolean charging) {
+        return createWindowBuilder(startMs)
+                .setRequiresCharging(charging)
+                .build()
+                .schedule();
+    }
+}
@@ -0,0 +1,162 @@
+package com.evernote.android.job;
+
+import android.app.job.JobInfo;
+import android.os.Bundle;
+import androidx.annotation.NonNull;
+
+import com.evernote.android.job.test.DummyJobs;
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+import com.evernote.android.job.test.TestClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+public class JobOverflowQueueTest extends BaseJobManagerTest {
+
+    private TestClock mClock;
+
+    @Before
+    public void prepare() {
+        mClock = useTestClock();
+        JobConfig.setPlatformJobLimit(3);
+    }
+
+    @Test
+    public void verifyOnlyMostUrgentRequestsPlanted() {
+        int first = schedule(100_000L);
+        int second = schedule(200_000L);
+        int third = schedule(300_000L);
+        int fourth = schedule(400_000L);
+
+        assertThat(getPlantedJobIds()).containsOnly(first, second, third);
+        assertThat(manager().getAllJobRequests()).hasSize(4);
+        assertThat(manager().getJobRequest(fourth).isOverflow()).isTrue();
+
+        // a more urgent request takes the slot of the least urgent one
+        int urgent = schedule(50_000L);
+
+        assertThat(getPlantedJobIds()).containsOnly(first, second, urgent);
+        assertThat(manager().getJobRequest(third).isOverflow()).isTrue();
+        assertThat(manager().getAllJobRequests()).hasSize(5);
+    }
+
+    @Test
+    public void verifyOverflowPromotedAfterJobFinished() {
+        int first = schedule(100_000L);
+        schedule(200_000L);
+        schedule(300_000L);
+        int fourth = schedule(400_000L);
+
+        assertThat(getPlantedJobIds()).doesNotContain(fourth);
+
+        executeJob(first, Job.Result.SUCCESS);
+
+        assertThat(getPlantedJobIds()).contains(fourth);
+        assertThat(manager().getJobRequest(fourth).isOverflow()).isFalse();
+    }
+
+    @Test
+    public void verifyOverflowPromotedAfterCancel() {
+        int first = schedule(100_000L);
+        int second = schedule(200_000L);
+        int third = schedule(300_000L);
+        int fourth = schedule(400_000L);
+        int fifth = schedule(500_000L);
+
+        manager().cancel(second);
+        assertThat(getPlantedJobIds()).containsOnly(first, third, fourth);
+
+        manager().cancel(fifth);
+        assertThat(getPlantedJobIds()).containsOnly(first, third, fourth);
+    }
+
+    @Test
+    public void verifyPromotedRequestKeepsDeadline() {
+        int first = schedule(100_000L);
+        schedule(200_000L);
+        schedule(300_000L);
+        int fourth = schedule(400_000L);
+
+        mClock.setTime(mClock.currentTimeMillis() + 60_000L);
+        manager().cancel(first);
+
+        JobInfo jobInfo = getJobScheduler().getPendingJob(fourth);
+        assertThat(jobInfo).isNotNull();
+        assertThat(jobInfo.getMinLatencyMillis()).isEqualTo(340_000L);
+        assertThat(jobInfo.getMaxExecutionDelayMillis()).isEqualTo(440_000L);
+    }
+
+    @Test
+    public void verifyEmptyQueueSkipsStorage() {
+        schedule(100_000L);
+
+        // finds the queue empty once
+        manager().promoteOverflow();
+
+        final AtomicInteger storageOperations = new AtomicInteger();
+        JobMetricsListener listener = new JobMetricsListener.Adapter() {
+            @Override
+            public void onStorageOperation(@NonNull StorageOperation operation, long durationNanos) {
+                storageOperations.incrementAndGet();
+            }
+        };
+        JobConfig.addMetricsListener(listener);
+
+        manager().promoteOverflow();
+        assertThat(storageOperations.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void verifyTransientRequestsIgnoreLimit() {
+        schedule(100_000L);
+        schedule(200_000L);
+        schedule(300_000L);
+
+        Bundle extras = new Bundle();
+        extras.putString("key", "value");
+
+        int transientId = DummyJobs.createBuilder(DummyJobs.SuccessJob.class)
+                .setExecutionWindow(400_000L, 500_000L)
+                .setTransientExtras(extras)
+                .build()
+                .schedule();
+
+        assertThat(getPlantedJobIds()).hasSize(4).contains(transientId);
+    }
+
+    @Test
+    public void verifyNoLimit() {
+        JobConfig.setPlatformJobLimit(0);
+
+        for (int i = 1; i <= 5; i++) {
+            schedule(i * 100_000L);
+        }
+
+        assertThat(getPlantedJobIds()).hasSize(5);
+    }
+
+    private static int schedule(long startMs) {
+        return createWindowBuilder(startMs)
+                .build()
+                .schedule();
+    }
+
+    private List<Integer> getPlantedJobIds() {
+        List<Integer> jobIds = new ArrayList<>();
+        for (JobInfo jobInfo : getJobScheduler().getAllPendingJobs()) {
+            jobIds.add(jobInfo.getId());
+        }
+        return jobIds;
+    }
+}
@@ -7,6 +7,7 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 
 import com.evernote.android.job.test.JobRobolectricTestRunner;
+import com.evernote.android.job.util.JobUtil;
 
 import org.junit.After;
 import org.junit.FixMethodOrder;
@@ -18,14 +19,19 @@ import org.robolectric.annotation.Config;
 import org.robolectric.shadows.ShadowAlarmManager;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -37,6 +43,7 @@ public class JobProxyTest {
 
     @After
     public void cleanup() {
+        JobUtil.invalidateBootPermission();
         try {
             JobManager instance = JobManager.instance();
             instance.destroy();
@@ -205,6 +212,75 @@ public class JobProxyTest {
         assertThat(scheduler.getAllPendingJobs().get(0).isPersisted()).isFalse();
     }
 
+    @Test
+    @Config(sdk = 21)
+    public void verifyBatchSharesComponentName() {
+        Context context = BaseJobManagerTest.createMockContext();
+        Context applicationContext = context.getApplicationContext();
+
+        JobScheduler scheduler = getJobScheduler(applicationContext);
+        when(applicationContext.getSystemService(Context.JOB_SCHEDULER_SERVICE)).thenReturn(scheduler);
+
+        JobManager.create(context).schedule(createRequests(3));
+
+        List<JobInfo> allPendingJobs = scheduler.getAllPendingJobs();
+        assertThat(allPendingJobs).hasSize(3);
+        for (JobInfo jobInfo : allPendingJobs) {
+            assertThat(jobInfo.getService()).isSameAs(allPendingJobs.get(0).getService());
+            assertThat(jobInfo.isPersisted()).isTrue();
+        }
+    }
+
+    @Test
+    @Config(sdk = 21)
+    public void verifyCancelBatchOnlyCancelsOwnJobs() {
+        Context context = BaseJobManagerTest.createMockContext();
+        Context applicationContext = context.getApplicationContext();
+
+        JobScheduler scheduler = spy(getJobScheduler(applicationContext));
+        when(applicationContext.getSystemService(Context.JOB_SCHEDULER_SERVICE)).thenReturn(scheduler);
+
+        JobManager manager = JobManager.create(context);
+        manager.schedule(createRequests(3));
+        assertThat(scheduler.getAllPendingJobs()).hasSize(3);
+
+        // all pending jobs belong to this library, but another one could be scheduled any time
+        assertThat(manager.cancelAllForTag("tag")).isEqualTo(3);
+
+        verify(scheduler, never()).cancelAll();
+        verify(scheduler, times(3)).cancel(anyInt());
+        assertThat(scheduler.getAllPendingJobs()).isEmpty();
+    }
+
+    @Test
+    @Config(sdk = 21)
+    public void verifyBatchRemembersMissingBootPermission() {
+        Context context = BaseJobManagerTest.createMockContext();
+        Context applicationContext = context.getApplicationContext();
+
+        JobScheduler scheduler = spy(getJobScheduler(applicationContext));
+        when(applicationContext.getSystemService(Context.JOB_SCHEDULER_SERVICE)).thenReturn(scheduler);
+
+        doThrow(new IllegalArgumentException("Error: requested job be persisted without holding RECEIVE_BOOT_COMPLETED permission."))
+                .when(scheduler)
+                .schedule(argThat(new ArgumentMatcher<JobInfo>() {
+                    @Override
+                    public boolean matches(JobInfo argument) {
+                        return argument.isPersisted();
+                    }
+                }));
+
+        JobManager.create(context).schedule(createRequests(3));
+
+        // only the first job tries to persist, the other ones know that it fails
+        verify(scheduler, times(4)).schedule(any(JobInfo.class));
+
+        assertThat(scheduler.getAllPendingJobs()).hasSize(3);
+        for (JobInfo jobInfo : scheduler.getAllPendingJobs()) {
+            assertThat(jobInfo.isPersisted()).isFalse();
+        }
+    }
+
     @Test
     @Config(sdk = 21)
     public void verifyRecoverWithoutServiceJobScheduler() throws Exception {
@@ -257,6 +333,16 @@ public class JobProxyTest {
         verifyAlarmCount(alarmManager, 1);
     }
 
+    private static List<JobRequest> createRequests(int count) {
+        List<JobRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(new JobRequest.Builder("tag")
+                    .setExecutionWindow(200_000, 300_000)
+                    .build());
+        }
+        return requests;
+    }
+
     private void verifyAlarmCount(AlarmManager alarmManager, int count) throws NoSuchFieldException, IllegalAccessException {
         Field declaredField = alarmManager.getClass().getDeclaredField("__robo_data__");
         declaredField.setAccessible(true);
@@ -263,6 +263,54 @@ public class JobRequestTest extends BaseJobManagerTest {
         );
     }
 
+    @Test
+    public void testExtrasDecodedLazily() {
+        JobRequest loaded = insertAndLoadRequestWithExtras();
+
+        // not decoded, the same raw bytes are written again
+        byte[] raw = loaded.toContentValues().getAsByteArray(JobStorage.COLUMN_EXTRAS_BINARY);
+        assertThat(raw).isNotNull();
+        assertThat(loaded.toContentValues().getAsByteArray(JobStorage.COLUMN_EXTRAS_BINARY)).isSameAs(raw);
+
+        PersistableBundleCompat extras = loaded.getExtras();
+        assertThat(extras.getString("key", null)).isEqualTo("value");
+        assertThat(loaded.getExtras()).isSameAs(extras);
+
+        // decoded bundles are mutable and encoded again
+        extras.putInt("int", 5);
+        byte[] encoded = loaded.toContentValues().getAsByteArray(JobStorage.COLUMN_EXTRAS_BINARY);
+        assertThat(encoded).isNotSameAs(raw);
+        assertThat(PersistableBundleCompat.fromBinary(encoded).getInt("int", 0)).isEqualTo(5);
+    }
+
+    @Test
+    public void testAddExtrasKeepsLoadedExtras() {
+        JobRequest loaded = insertAndLoadRequestWithExtras();
+
+        PersistableBundleCompat other = new PersistableBundleCompat();
+        other.putInt("int", 5);
+
+        JobRequest edited = loaded.cancelAndEdit().addExtras(other).build();
+        assertThat(edited.getExtras().getString("key", null)).isEqualTo("value");
+        assertThat(edited.getExtras().getInt("int", 0)).isEqualTo(5);
+    }
+
+    private JobRequest insertAndLoadRequestWithExtras() {
+        PersistableBundleCompat extras = new PersistableBundleCompat();
+        extras.putString("key", "value");
+
+        JobRequest request = getBuilder()
+                .setExecutionWindow(300_000L, 400_000L)
+                .setExtras(extras)
+                .build();
+
+        manager().getJobStorage().getDatabase().insert(JobStorage.JOB_TABLE_NAME, null, request.toContentValues());
+
+        JobRequest loaded = manager().getJobRequest(request.getJobId());
+        assertThat(loaded).isNotNull().isNotSameAs(request);
+        return loaded;
+    }
+
     private JobRequest.Builder getBuilder() {
         return DummyJobs.createBuilder(DummyJobs.SuccessJob.class);
     }
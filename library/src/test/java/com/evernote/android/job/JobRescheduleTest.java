@@ -16,6 +16,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
 import org.robolectric.annotation.Config;
 
+import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -98,6 +99,40 @@ public class JobRescheduleTest extends BaseJobManagerTest {
         assertThat(PendingIntent.getBroadcast(context(), jobId, intent, PendingIntent.FLAG_NO_CREATE)).isNotNull();
     }
 
+    @Test
+    @Config(sdk = 21)
+    public void verifyRescheduledJobsReplaceTheirRows() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            ContentValues contentValues = new JobRequest.Builder("tag")
+                    .setExecutionWindow(40_000, 50_000)
+                    .build()
+                    .toContentValues();
+
+            manager().getJobStorage().getDatabase()
+                    .insert(JobStorage.JOB_TABLE_NAME, null, contentValues);
+        }
+
+        Set<Integer> jobIds = new HashSet<>();
+        for (JobRequest request : manager().getAllJobRequests()) {
+            jobIds.add(request.getJobId());
+        }
+        assertThat(jobIds).hasSize(3);
+
+        int rescheduledJobs = new JobRescheduleService().rescheduleJobs(manager());
+        assertThat(rescheduledJobs).isEqualTo(3);
+
+        // the rows were overwritten, not removed and inserted with new IDs
+        Set<Integer> rescheduledIds = new HashSet<>();
+        for (JobRequest request : manager().getAllJobRequests()) {
+            rescheduledIds.add(request.getJobId());
+            assertThat(request.getScheduledAt()).isGreaterThan(0L);
+        }
+        assertThat(rescheduledIds).isEqualTo(jobIds);
+
+        JobScheduler scheduler = (JobScheduler) context().getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        assertThat(scheduler.getAllPendingJobs()).hasSize(3);
+    }
+
     @Test
     public void verifyTransientJobNotRescheduled() throws Exception {
         assertThat(manager().getAllJobRequests()).isEmpty();
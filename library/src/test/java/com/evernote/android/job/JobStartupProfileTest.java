@@ -0,0 +1,156 @@
+package com.evernote.android.job;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ResolveInfo;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+
+import androidx.core.app.JobIntentServiceReset;
+
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+@FixMethodOrder(MethodSorters.JVM)
+public class JobStartupProfileTest {
+
+    private JobManager mManager;
+
+    @Before
+    public void prepare() {
+        JobIntentServiceReset.reset();
+        JobConfig.setCloseDatabase(true);
+    }
+
+    @After
+    public void cleanup() {
+        if (mManager != null) {
+            mManager.destroy();
+        }
+        JobConfig.reset();
+    }
+
+    @Test
+    public void verifyAllPhasesMeasuredByDefault() throws Exception {
+        JobConfig.setSkipJobReschedule(true);
+
+        mManager = JobManager.create(BaseJobManagerTest.createMockContext());
+        JobStartupProfile profile = mManager.getStartupProfile();
+
+        assertThat(profile.isDeferred()).isFalse();
+        assertThat(profile.getCreateTime(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+        assertThat(profile.getApiProbeTime(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+        assertThat(profile.getRescheduleServiceTime(TimeUnit.NANOSECONDS)).isEqualTo(0);
+
+        mManager.getJobStorage();
+        assertThat(profile.getStorageInitTime(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+        assertThat(profile.isFinished()).isTrue();
+    }
+
+    @Test
+    public void verifyApiProbeDeferred() throws Exception {
+        JobConfig.setSkipJobReschedule(true);
+        JobConfig.setStartupProfileEnabled(true);
+
+        mManager = JobManager.create(BaseJobManagerTest.createMockContext());
+        JobStartupProfile profile = mManager.getStartupProfile();
+
+        assertThat(profile.isDeferred()).isTrue();
+        assertThat(profile.getCreateTime(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+
+        waitUntilFinished(profile);
+        assertThat(profile.getApiProbeTime(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void verifyJobCreatorsAddedBeforeDispatchInDeferredMode() {
+        JobConfig.setSkipJobReschedule(true);
+        JobConfig.setStartupProfileEnabled(true);
+
+        Context context = BaseJobManagerTest.createMockContext();
+        Context applicationContext = context.getApplicationContext();
+
+        final ResolveInfo resolveInfo = new ResolveInfo();
+        resolveInfo.activityInfo = new ActivityInfo();
+        resolveInfo.activityInfo.packageName = applicationContext.getPackageName();
+        resolveInfo.activityInfo.name = TestAddJobCreatorReceiver.class.getName();
+        resolveInfo.activityInfo.exported = false;
+        final AtomicReference<Thread> queryThread = new AtomicReference<>();
+        when(applicationContext.getPackageManager().queryBroadcastReceivers(any(Intent.class), anyInt()))
+                .thenAnswer(new Answer<List<ResolveInfo>>() {
+                    @Override
+                    public List<ResolveInfo> answer(InvocationOnMock invocation) {
+                        queryThread.set(Thread.currentThread());
+                        return Collections.singletonList(resolveInfo);
+                    }
+                });
+
+        mManager = JobManager.create(context);
+
+        // a job dispatched right after a cold start must find its creator
+        assertThat(mManager.getJobCreatorHolder().isEmpty()).isFalse();
+        assertThat(queryThread.get()).isNotNull().isNotEqualTo(Thread.currentThread());
+    }
+
+    @Test
+    public void verifyRescheduleServiceWaitsForIdleMainThread() throws Exception {
+        JobConfig.setSkipJobReschedule(false);
+        JobConfig.setStartupProfileEnabled(true);
+
+        mManager = JobManager.create(BaseJobManagerTest.createMockContext());
+        JobStartupProfile profile = mManager.getStartupProfile();
+
+        assertThat(profile.getRescheduleServiceTime(TimeUnit.NANOSECONDS)).isEqualTo(JobStartupProfile.NOT_FINISHED);
+
+        shadowOf(Looper.getMainLooper()).idle();
+
+        waitUntilFinished(profile);
+        assertThat(profile.getRescheduleServiceTime(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+    }
+
+    private void waitUntilFinished(JobStartupProfile profile) throws InterruptedException {
+        mManager.getJobStorage();
+
+        long end = System.currentTimeMillis() + 3_000;
+        while (!profile.isFinished() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertThat(profile.isFinished()).isTrue();
+    }
+
+    public static final class TestAddJobCreatorReceiver extends JobCreator.AddJobCreatorReceiver {
+        @Override
+        protected void addJobCreator(@NonNull Context context, @NonNull JobManager manager) {
+            manager.addJobCreator(new JobCreator() {
+                @Override
+                public Job create(@NonNull String tag) {
+                    return null;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.evernote.android.job;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * @author rwondratschek
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void verifyBucketBoundsCoverAllValues() {
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long lower = LatencyHistogram.getBucketLowerBound(i);
+            long upper = LatencyHistogram.getBucketUpperBound(i);
+
+            assertThat(LatencyHistogram.getBucketIndex(lower)).isEqualTo(i);
+            assertThat(LatencyHistogram.getBucketIndex(upper)).isEqualTo(i);
+            if (i > 0) {
+                assertThat(LatencyHistogram.getBucketUpperBound(i - 1)).isEqualTo(lower - 1);
+            }
+        }
+
+        assertThat(LatencyHistogram.getBucketUpperBound(LatencyHistogram.BUCKET_COUNT - 1)).isEqualTo(LatencyHistogram.MAX_VALUE);
+        assertThat(LatencyHistogram.getBucketIndex(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.BUCKET_COUNT - 1);
+    }
+
+    @Test
+    public void verifyRelativeError() {
+        for (long value = 1; value < LatencyHistogram.MAX_VALUE / 3; value = value * 3 + 1) {
+            int index = LatencyHistogram.getBucketIndex(value);
+            long upper = LatencyHistogram.getBucketUpperBound(index);
+            assertThat((upper - value) / (double) value).isLessThanOrEqualTo(1d / LatencyHistogram.SUB_BUCKET_COUNT);
+        }
+    }
+
+    @Test
+    public void verifyPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toMicros(i));
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(1_000);
+        assertThat(snapshot.getMax(TimeUnit.MILLISECONDS)).isEqualTo(1_000);
+        assertThat(snapshot.getMean(TimeUnit.MILLISECONDS)).isEqualTo(500);
+
+        assertThat(snapshot.getValueAtPercentile(50, TimeUnit.MILLISECONDS)).isBetween(500L, 532L);
+        assertThat(snapshot.getValueAtPercentile(99, TimeUnit.MILLISECONDS)).isBetween(990L, 1_000L);
+        assertThat(snapshot.getValueAtPercentile(100, TimeUnit.MILLISECONDS)).isEqualTo(1_000);
+    }
+
+    @Test
+    public void verifyEmptySnapshot() {
+        LatencySnapshot snapshot = new LatencyHistogram().snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(0);
+        assertThat(snapshot.getMean(TimeUnit.MILLISECONDS)).isEqualTo(0);
+        assertThat(snapshot.getValueAtPercentile(99, TimeUnit.MILLISECONDS)).isEqualTo(0);
+    }
+
+    @Test
+    public void verifyNegativeValuesClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertThat(histogram.snapshot().getValueAtPercentile(100, TimeUnit.MICROSECONDS)).isEqualTo(0);
+    }
+}
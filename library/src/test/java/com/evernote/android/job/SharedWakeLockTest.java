@@ -0,0 +1,106 @@
+package com.evernote.android.job;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.PowerManager;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+import com.evernote.android.job.test.TestClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowPowerManager;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+public class SharedWakeLockTest {
+
+    private TestClock mClock;
+    private Context mContext;
+
+    @Before
+    public void prepare() {
+        mClock = new TestClock();
+        mClock.setTime(10_000L);
+        JobConfig.setClock(mClock);
+
+        mContext = createContext(PackageManager.PERMISSION_GRANTED);
+    }
+
+    @After
+    public void cleanup() {
+        JobConfig.reset();
+    }
+
+    @Test
+    public void verifyOnePlatformLockForAllHolders() {
+        SharedWakeLock sharedWakeLock = new SharedWakeLock("test");
+
+        SharedWakeLock.Token first = sharedWakeLock.acquire(mContext, 60_000L);
+        PowerManager.WakeLock platformLock = ShadowPowerManager.getLatestWakeLock();
+        SharedWakeLock.Token second = sharedWakeLock.acquire(mContext, 60_000L);
+
+        assertThat(ShadowPowerManager.getLatestWakeLock()).isSameAs(platformLock);
+        assertThat(platformLock.isHeld()).isTrue();
+        assertThat(sharedWakeLock.getHolders()).isEqualTo(2);
+
+        first.release();
+        first.release();
+        assertThat(sharedWakeLock.getHolders()).isEqualTo(1);
+        assertThat(platformLock.isHeld()).isTrue();
+        assertThat(second.isHeld()).isTrue();
+
+        second.release();
+        assertThat(sharedWakeLock.getHolders()).isEqualTo(0);
+        assertThat(platformLock.isHeld()).isFalse();
+        assertThat(first.isHeld()).isFalse();
+    }
+
+    @Test
+    public void verifyTimedOutHoldersAreDropped() {
+        SharedWakeLock sharedWakeLock = new SharedWakeLock("test");
+
+        SharedWakeLock.Token leaked = sharedWakeLock.acquire(mContext, 1_000L);
+        mClock.setTime(12_000L);
+        assertThat(leaked.isHeld()).isFalse();
+
+        SharedWakeLock.Token token = sharedWakeLock.acquire(mContext, 1_000L);
+        assertThat(sharedWakeLock.getHolders()).isEqualTo(1);
+
+        // the leaked token belongs to an old generation and doesn't release the new holder
+        leaked.release();
+        assertThat(sharedWakeLock.getHolders()).isEqualTo(1);
+        assertThat(token.isHeld()).isTrue();
+
+        token.release();
+        assertThat(sharedWakeLock.getHolders()).isEqualTo(0);
+    }
+
+    @Test
+    public void verifyNoTokenWithoutPermission() {
+        SharedWakeLock sharedWakeLock = new SharedWakeLock("test");
+        assertThat(sharedWakeLock.acquire(createContext(PackageManager.PERMISSION_DENIED), 60_000L)).isNull();
+        assertThat(sharedWakeLock.getHolders()).isEqualTo(0);
+    }
+
+    private static Context createContext(int permissionResult) {
+        PackageManager packageManager = mock(PackageManager.class);
+        when(packageManager.checkPermission(anyString(), anyString())).thenReturn(permissionResult);
+
+        Context context = spy(ApplicationProvider.<Context>getApplicationContext());
+        when(context.getPackageManager()).thenReturn(packageManager);
+        when(context.getApplicationContext()).thenReturn(context);
+        return context;
+    }
+}
@@ -0,0 +1,50 @@
+package com.evernote.android.job.test;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs each task on the calling thread, so tests can assert the outcome without waiting.
+ *
+ * @author rwondratschek
+ */
+public class DirectExecutorService extends AbstractExecutorService {
+
+    private volatile boolean mShutdown;
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        command.run();
+    }
+
+    @Override
+    public void shutdown() {
+        mShutdown = true;
+    }
+
+    @NonNull
+    @Override
+    public List<Runnable> shutdownNow() {
+        mShutdown = true;
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return mShutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return mShutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) {
+        return true;
+    }
+}
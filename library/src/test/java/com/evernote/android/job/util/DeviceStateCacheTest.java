@@ -0,0 +1,145 @@
+package com.evernote.android.job.util;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+
+import com.evernote.android.job.JobRequest;
+import com.evernote.android.job.test.JobRobolectricTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author rwondratschek
+ */
+@RunWith(JobRobolectricTestRunner.class)
+@SuppressWarnings("deprecation")
+public class DeviceStateCacheTest {
+
+    @Test
+    public void verifyNetworkTypeCachedUntilConnectivityChanged() {
+        Context context = createContext();
+        DeviceStateCache cache = new DeviceStateCache(context);
+
+        assertThat(cache.getNetworkType()).isEqualTo(JobRequest.NetworkType.UNMETERED);
+        assertThat(cache.getNetworkType()).isEqualTo(JobRequest.NetworkType.UNMETERED);
+        verify(context, times(1)).getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        sendBroadcast(context, new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+
+        assertThat(cache.getNetworkType()).isEqualTo(JobRequest.NetworkType.UNMETERED);
+        verify(context, times(2)).getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    @Test
+    public void verifyIdleCachedUntilScreenChanged() {
+        Context context = createContext();
+        DeviceStateCache cache = new DeviceStateCache(context);
+
+        assertThat(cache.isIdle()).isTrue();
+        assertThat(cache.isIdle()).isTrue();
+        verify(context, times(1)).getSystemService(Context.POWER_SERVICE);
+
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        when(powerManager.isInteractive()).thenReturn(true);
+        sendBroadcast(context, new Intent(Intent.ACTION_SCREEN_ON));
+
+        assertThat(cache.isIdle()).isFalse();
+    }
+
+    @Test
+    public void verifyBatteryStatusTakenFromBroadcast() {
+        Context context = createContext();
+        DeviceStateCache cache = new DeviceStateCache(context);
+
+        assertThat(cache.getBatteryStatus().isBatteryLow()).isFalse();
+
+        Intent intent = new Intent(Intent.ACTION_BATTERY_CHANGED);
+        intent.putExtra(BatteryManager.EXTRA_LEVEL, 10);
+        intent.putExtra(BatteryManager.EXTRA_SCALE, 100);
+        intent.putExtra(BatteryManager.EXTRA_PLUGGED, 0);
+        sendBroadcast(context, intent);
+
+        assertThat(cache.getBatteryStatus().isBatteryLow()).isTrue();
+        assertThat(cache.getBatteryStatus().getBatteryPercent()).isEqualTo(0.1f);
+
+        // only the first call asked for the sticky intent
+        verify(context, times(1)).registerReceiver(isNull(BroadcastReceiver.class), any(IntentFilter.class));
+    }
+
+    @Test
+    public void verifyFallbackWithoutReceiver() {
+        Context context = createContext();
+        when(context.registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class))).thenThrow(new SecurityException());
+
+        DeviceStateCache cache = new DeviceStateCache(context);
+        cache.getNetworkType();
+        cache.getNetworkType();
+
+        verify(context, times(2)).getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    @Test
+    public void verifyUnregister() {
+        Context context = createContext();
+        DeviceStateCache cache = new DeviceStateCache(context);
+        cache.unregister();
+        verify(context, never()).unregisterReceiver(any(BroadcastReceiver.class));
+
+        cache.isIdle();
+        BroadcastReceiver receiver = getReceiver(context);
+        cache.unregister();
+        verify(context).unregisterReceiver(receiver);
+    }
+
+    private static Context createContext() {
+        NetworkInfo networkInfo = mock(NetworkInfo.class);
+        when(networkInfo.isConnected()).thenReturn(true);
+        when(networkInfo.isConnectedOrConnecting()).thenReturn(true);
+        when(networkInfo.getType()).thenReturn(ConnectivityManager.TYPE_WIFI);
+
+        ConnectivityManager connectivityManager = mock(ConnectivityManager.class);
+        when(connectivityManager.getActiveNetworkInfo()).thenReturn(networkInfo);
+
+        PowerManager powerManager = mock(PowerManager.class);
+        when(powerManager.isDeviceIdleMode()).thenReturn(false);
+        when(powerManager.isInteractive()).thenReturn(false);
+
+        Context context = mock(Context.class);
+        when(context.getSystemService(Context.CONNECTIVITY_SERVICE)).thenReturn(connectivityManager);
+        when(context.getSystemService(Context.POWER_SERVICE)).thenReturn(powerManager);
+        return context;
+    }
+
+    private static BroadcastReceiver getReceiver(Context context) {
+        ArgumentCaptor<BroadcastReceiver> captor = ArgumentCaptor.forClass(BroadcastReceiver.class);
+        verify(context, atLeastOnce()).registerReceiver(captor.capture(), any(IntentFilter.class));
+        for (BroadcastReceiver receiver : captor.getAllValues()) {
+            if (receiver != null) {
+                return receiver;
+            }
+        }
+        throw new AssertionError("no receiver registered");
+    }
+
+    private static void sendBroadcast(Context context, Intent intent) {
+        getReceiver(context).onReceive(context, intent);
+    }
+}
@@ -5,6 +5,7 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.test.mock.MockContext;
 
+import com.evernote.android.job.JobConfig;
 import com.evernote.android.job.JobRequest;
 
 import org.junit.FixMethodOrder;
@@ -157,4 +158,60 @@ public class DeviceTest {
 
         assertThat(Device.getNetworkType(context)).isEqualTo(JobRequest.NetworkType.ANY);
     }
+
+    @Test
+    public void testStorageLowPlatformThreshold() {
+        long gb = 1024L * 1024 * 1024;
+        long mb = 1024L * 1024;
+
+        // 5% of 4GB
+        assertThat(Device.isStorageLow(200 * mb, 4 * gb, 0)).isTrue();
+        assertThat(Device.isStorageLow(210 * mb, 4 * gb, 0)).isFalse();
+
+        // capped at 500MB
+        assertThat(Device.isStorageLow(499 * mb, 64 * gb, 0)).isTrue();
+        assertThat(Device.isStorageLow(500 * mb, 64 * gb, 0)).isFalse();
+    }
+
+    @Test
+    public void testStorageLowCustomThreshold() {
+        long gb = 1024L * 1024 * 1024;
+
+        assertThat(Device.isStorageLow(gb, 64 * gb, 2 * gb)).isTrue();
+        assertThat(Device.isStorageLow(2 * gb, 64 * gb, 2 * gb)).isFalse();
+    }
+
+    @Test
+    public void testStorageLowUnknownStats() {
+        assertThat(Device.isStorageLow(0, 0, 0)).isFalse();
+        assertThat(Device.isStorageLow(0, -1, 1024)).isFalse();
+
+        // the file system isn't available in unit tests
+        assertThat(Device.isStorageLow()).isFalse();
+    }
+
+    @Test
+    public void testStorageStatsCleared() {
+        Device.isStorageLow();
+        assertThat(Device.hasStorageStats()).isTrue();
+
+        JobConfig.setStorageLowThreshold(1024);
+        assertThat(Device.hasStorageStats()).isFalse();
+
+        Device.isStorageLow();
+        JobConfig.setStorageLowThreshold(1024);
+        assertThat(Device.hasStorageStats()).isTrue();
+
+        JobConfig.reset();
+        assertThat(Device.hasStorageStats()).isFalse();
+    }
+
+    @Test
+    public void testStorageStatsExpired() {
+        assertThat(Device.isStorageStatsExpired(1_000, 1_000, 30_000)).isFalse();
+        assertThat(Device.isStorageStatsExpired(1_000, 30_999, 30_000)).isFalse();
+        assertThat(Device.isStorageStatsExpired(1_000, 31_000, 30_000)).isTrue();
+        assertThat(Device.isStorageStatsExpired(1_000, 999, 30_000)).isTrue();
+        assertThat(Device.isStorageStatsExpired(1_000, 1_000, 0)).isTrue();
+    }
 }
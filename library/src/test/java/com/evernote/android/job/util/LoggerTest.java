@@ -1,5 +1,6 @@
 package com.evernote.android.job.util;
 
+import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -12,6 +13,7 @@ import org.junit.runners.MethodSorters;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 
@@ -112,6 +114,72 @@ public class LoggerTest {
         assertThat(removedPrinter.mMessages).containsExactly("hello", "world");
     }
 
+    @Test
+    public void testIsLoggable() {
+        JobConfig.reset();
+        JobCat cat = new JobCat("Tag");
+        assertThat(cat.isLoggable(Log.DEBUG)).isTrue();
+        assertThat(new JobCat("Tag", false).isLoggable(Log.ERROR)).isFalse();
+
+        JobCat.setLogcatEnabled(false);
+        assertThat(cat.isLoggable(Log.DEBUG)).isFalse();
+
+        TestLogger printer = new TestLogger();
+        JobConfig.addLogger(printer);
+        assertThat(cat.isLoggable(Log.DEBUG)).isTrue();
+
+        JobConfig.removeLogger(printer);
+        assertThat(cat.isLoggable(Log.DEBUG)).isFalse();
+    }
+
+    @Test
+    public void testMinPriority() {
+        JobConfig.reset();
+        assertThat(JobConfig.getMinLogPriority()).isEqualTo(Log.VERBOSE);
+
+        TestLogger printer = new TestLogger();
+        JobConfig.addLogger(printer);
+        JobConfig.setMinLogPriority(Log.INFO);
+
+        JobCat cat = new JobCat("Tag");
+        assertThat(cat.isLoggable(Log.DEBUG)).isFalse();
+        assertThat(cat.isLoggable(Log.INFO)).isTrue();
+        assertThat(cat.isLoggable(Log.ERROR)).isTrue();
+
+        cat.d("hello");
+        cat.i("world");
+        assertThat(printer.mMessages).containsExactly("world");
+
+        JobConfig.reset();
+        assertThat(JobConfig.getMinLogPriority()).isEqualTo(Log.VERBOSE);
+    }
+
+    @Test
+    public void testArgumentsNotFormattedIfNotLoggable() {
+        JobConfig.reset();
+        JobCat.setLogcatEnabled(false);
+
+        final AtomicInteger formatted = new AtomicInteger();
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                formatted.incrementAndGet();
+                return "argument";
+            }
+        };
+
+        JobCat cat = new JobCat("Tag");
+        cat.d("hello %s", argument);
+        cat.w(new Exception(), "world %s", argument);
+        assertThat(formatted.get()).isEqualTo(0);
+
+        TestLogger printer = new TestLogger();
+        JobConfig.addLogger(printer);
+        cat.d("hello %s", argument);
+        assertThat(formatted.get()).isEqualTo(1);
+        assertThat(printer.mMessages).containsExactly("hello argument");
+    }
+
     private static final class TestLogger implements JobLogger {
 
         private final List<String> mTags = new ArrayList<>();
@@ -7,6 +7,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
 
+import java.nio.charset.Charset;
+
 import static org.assertj.core.api.Java6Assertions.assertThat;
 
 /**
@@ -67,4 +69,106 @@ public class PersistableBundleCompatTest {
         String[] inflated = bundle.getStringArray("array");
         assertThat(inflated).isNotNull().hasSize(3).containsExactly("111", null, "333");
     }
+
+    @Test
+    public void testXmlSerializerReused() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            builder.append("<&\u00fc>");
+        }
+        String large = builder.toString();
+
+        PersistableBundleCompat bundle = new PersistableBundleCompat();
+        bundle.putString("large", large);
+
+        String xml = bundle.saveToXml();
+        assertThat(PersistableBundleCompat.fromXml(xml).getString("large", null)).isEqualTo(large);
+
+        // the second document on the same thread must not contain any state of the first one
+        PersistableBundleCompat small = new PersistableBundleCompat();
+        small.putInt("int", 1);
+        String smallXml = small.saveToXml();
+        assertThat(smallXml).doesNotContain("large");
+        assertThat(PersistableBundleCompat.fromXml(smallXml).keySet()).containsExactly("int");
+
+        assertThat(bundle.saveToXml()).isEqualTo(xml);
+    }
+
+    @Test
+    public void testBinaryBundle() {
+        PersistableBundleCompat bundle = createBundle();
+
+        byte[] binary = bundle.saveToBinary();
+        assertThat(binary).isNotEmpty();
+        assertThat(PersistableBundleCompat.isBinary(binary)).isTrue();
+
+        PersistableBundleCompat inflated = PersistableBundleCompat.fromBinary(binary);
+        assertThat(inflated.keySet()).isEqualTo(bundle.keySet());
+
+        assertThat(inflated.getBoolean("bool1", false)).isTrue();
+        assertThat(inflated.getInt("int1", 0)).isEqualTo(-1);
+        assertThat(inflated.getLong("long1", 0L)).isEqualTo(Long.MIN_VALUE);
+        assertThat(inflated.getDouble("double1", 0.0)).isEqualTo(1.5);
+        assertThat(inflated.getString("string1", null)).isEqualTo("hello \u00fc\u20ac\ud83d\ude00");
+        assertThat(inflated.getString("null", "default")).isNull();
+        assertThat(inflated.getIntArray("intArr")).containsExactly(1, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        assertThat(inflated.getLongArray("longArr")).containsExactly(4L, Long.MAX_VALUE, -6L);
+        assertThat(inflated.getDoubleArray("doubleArr")).containsExactly(7.0, Double.NaN, -9.0);
+        assertThat(inflated.getStringArray("stringArr")).containsExactly("Hello", null, "");
+
+        PersistableBundleCompat inflatedInner = inflated.getPersistableBundleCompat("bundle1");
+        assertThat(inflatedInner).isNotNull();
+        assertThat(inflatedInner.getString("string2", null)).isEqualTo("world");
+    }
+
+    @Test
+    public void testEmptyBinaryBundle() {
+        byte[] binary = new PersistableBundleCompat().saveToBinary();
+        assertThat(binary).hasSize(4);
+        assertThat(PersistableBundleCompat.fromBinary(binary).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testCorruptedBinaryBundle() {
+        byte[] binary = createBundle().saveToBinary();
+        assertThat(binary).isNotNull();
+
+        byte[] truncated = new byte[binary.length / 2];
+        System.arraycopy(binary, 0, truncated, 0, truncated.length);
+        assertThat(PersistableBundleCompat.fromBinary(truncated).isEmpty()).isTrue();
+
+        assertThat(PersistableBundleCompat.isBinary(new byte[]{1, 2, 3})).isFalse();
+        assertThat(PersistableBundleCompat.fromBinary(new byte[]{1, 2, 3}).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void verifyBinarySmallerThanXml() {
+        // timings are measured by PersistableBundleCompatBenchmark in the benchmark module
+        PersistableBundleCompat bundle = createBundle();
+
+        String xml = bundle.saveToXml();
+        byte[] binary = bundle.saveToBinary();
+
+        assertThat(binary.length).isLessThan(xml.getBytes(Charset.forName("UTF-8")).length);
+        assertThat(PersistableBundleCompat.fromBinary(binary).saveToXml()).isEqualTo(PersistableBundleCompat.fromXml(xml).saveToXml());
+    }
+
+    private static PersistableBundleCompat createBundle() {
+        PersistableBundleCompat bundle = new PersistableBundleCompat();
+        bundle.putBoolean("bool1", true);
+        bundle.putInt("int1", -1);
+        bundle.putLong("long1", Long.MIN_VALUE);
+        bundle.putDouble("double1", 1.5);
+        bundle.putString("string1", "hello \u00fc\u20ac\ud83d\ude00");
+        bundle.putString("null", null);
+        bundle.putIntArray("intArr", new int[]{1, Integer.MAX_VALUE, Integer.MIN_VALUE});
+        bundle.putLongArray("longArr", new long[]{4L, Long.MAX_VALUE, -6L});
+        bundle.putDoubleArray("doubleArr", new double[]{7.0, Double.NaN, -9.0});
+        bundle.putStringArray("stringArr", new String[]{"Hello", null, ""});
+
+        PersistableBundleCompat other = new PersistableBundleCompat();
+        other.putString("string2", "world");
+        bundle.putPersistableBundleCompat("bundle1", other);
+        return bundle;
+    }
 }